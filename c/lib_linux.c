@@ -1,7 +1,15 @@
+#ifndef _GNU_SOURCE
+#define _GNU_SOURCE
+#endif
 #include <stdint.h>
 #include <sys/epoll.h>
 #include <netinet/in.h>
 #include <sys/socket.h>
+#include <sys/uio.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <sched.h>
+#include <linux/io_uring.h>
 #include <netinet/tcp.h>
 #include <arpa/inet.h>
 #include <unistd.h>
@@ -10,6 +18,7 @@
 #include <string.h>
 #include <stdbool.h>
 #include <stdlib.h>
+#include <limits.h>
 #include "share.h"
 #include "lib_linux.h"
 
@@ -28,6 +37,16 @@ int l_interrupt_code()
     return EINTR;
 }
 
+int l_timeout_code()
+{
+    return ETIME;
+}
+
+int l_no_buffer_code()
+{
+    return ENOBUFS;
+}
+
 int l_ipv4_address_len()
 {
     return INET_ADDRSTRLEN;
@@ -88,6 +107,68 @@ int l_epoll_wait(int epfd, struct epoll_event *events, int maxEvents, int timeou
     return r;
 }
 
+int l_io_uring_setup(unsigned int entries, struct io_uring_params *params)
+{
+    int r = (int)syscall(__NR_io_uring_setup, entries, params);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+int l_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags, void *arg, size_t argSize)
+{
+    int r = (int)syscall(__NR_io_uring_enter, fd, toSubmit, minComplete, flags, arg, argSize);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+int l_io_uring_register(int fd, unsigned int opcode, void *arg, unsigned int nrArgs)
+{
+    int r = (int)syscall(__NR_io_uring_register, fd, opcode, arg, nrArgs);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+int l_mmap(int fd, size_t len, int64_t offset, void **ptr)
+{
+    void *r = mmap(NULL, len, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd, (off_t)offset);
+    if (unlikely(r == MAP_FAILED))
+    {
+        return -errno;
+    }
+    *ptr = r;
+    return 0;
+}
+
+int l_mmap_anonymous(size_t len, void **ptr)
+{
+    void *r = mmap(NULL, len, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+    if (unlikely(r == MAP_FAILED))
+    {
+        return -errno;
+    }
+    *ptr = r;
+    return 0;
+}
+
+int l_munmap(void *addr, size_t len)
+{
+    int r = munmap(addr, len);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
 int l_get_ipv4_address(struct sockaddr_in *sockAddr, char *addrStr, socklen_t len)
 {
     const char *result = inet_ntop(AF_INET, &(sockAddr->sin_addr), addrStr, len);
@@ -188,6 +269,20 @@ int l_set_reuse_addr(int socket, int value)
     return r;
 }
 
+int l_set_reuse_port(int socket, int value)
+{
+#ifdef SO_REUSEPORT
+    int r = setsockopt(socket, SOL_SOCKET, SO_REUSEPORT, (void *)&value, sizeof(value));
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+#else
+    return -ENOPROTOOPT;
+#endif
+}
+
 int l_set_keep_alive(int socket, int value)
 {
     int r = setsockopt(socket, SOL_SOCKET, SO_KEEPALIVE, (void *)&value, sizeof(value));
@@ -208,6 +303,57 @@ int l_set_tcp_no_delay(int socket, int value)
     return r;
 }
 
+int l_set_busy_poll(int socket, int value)
+{
+#ifdef SO_BUSY_POLL
+    int r = setsockopt(socket, SOL_SOCKET, SO_BUSY_POLL, (void *)&value, sizeof(value));
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+#else
+    return -ENOPROTOOPT;
+#endif
+}
+
+int l_set_affinity(int cpu)
+{
+    if (cpu < 0 || cpu >= CPU_SETSIZE)
+    {
+        return -EINVAL;
+    }
+    cpu_set_t set;
+    CPU_ZERO(&set);
+    CPU_SET(cpu, &set);
+    int r = sched_setaffinity(0, sizeof(set), &set);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+int l_get_affinity(int *cpus, int len)
+{
+    cpu_set_t set;
+    CPU_ZERO(&set);
+    int r = sched_getaffinity(0, sizeof(set), &set);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    int count = 0;
+    for (int cpu = 0; cpu < CPU_SETSIZE && count < len; cpu++)
+    {
+        if (CPU_ISSET(cpu, &set))
+        {
+            cpus[count++] = cpu;
+        }
+    }
+    return count;
+}
+
 int l_set_ipv6_only(int socket, int value)
 {
     int r = setsockopt(socket, IPPROTO_IPV6, IPV6_V6ONLY, (void *)&value, sizeof(value));
@@ -231,7 +377,11 @@ int l_get_err_opt(int socket, int *ptr)
 
 int l_set_nonblocking(int socket)
 {
-    int flag = fcntl(socket, F_GETFD, 0);
+    int flag = fcntl(socket, F_GETFL, 0);
+    if (unlikely(flag == -1))
+    {
+        return -errno;
+    }
     int r = fcntl(socket, F_SETFL, flag | O_NONBLOCK);
     if (unlikely(r == -1))
     {
@@ -280,6 +430,16 @@ int l_accept(int socket, void *clientAddr, socklen_t clientAddrSize)
     return r;
 }
 
+int l_accept4(int socket, void *clientAddr, socklen_t clientAddrSize)
+{
+    int r = accept4(socket, (struct sockaddr *)clientAddr, &clientAddrSize, SOCK_NONBLOCK | SOCK_CLOEXEC);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
 ssize_t l_recv(int socket, void *buf, size_t len)
 {
     int r = recv(socket, buf, len, 0);
@@ -300,6 +460,45 @@ ssize_t l_send(int socket, void *buf, size_t len)
     return r;
 }
 
+int l_iov_max()
+{
+    return IOV_MAX;
+}
+
+ssize_t l_writev(int socket, struct iovec *iov, int iovcnt)
+{
+    ssize_t r = writev(socket, iov, iovcnt);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+ssize_t l_readv(int socket, struct iovec *iov, int iovcnt)
+{
+    ssize_t r = readv(socket, iov, iovcnt);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
+ssize_t l_sendmsg(int socket, struct iovec *iov, int iovcnt, int flags)
+{
+    struct msghdr msg;
+    memset(&msg, 0, sizeof(msg));
+    msg.msg_iov = iov;
+    msg.msg_iovlen = iovcnt;
+    ssize_t r = sendmsg(socket, &msg, flags);
+    if (unlikely(r == -1))
+    {
+        return -errno;
+    }
+    return r;
+}
+
 int l_shutdown_write(int fd)
 {
     int r = shutdown(fd, SHUT_WR);
@@ -6,6 +6,8 @@
 #include <sys/epoll.h>
 #include <netinet/in.h>
 #include <sys/socket.h>
+#include <sys/uio.h>
+#include <linux/io_uring.h>
 
 EXPORT_SYMBOL int l_connect_block_code();
 
@@ -13,6 +15,10 @@ EXPORT_SYMBOL int l_send_block_code();
 
 EXPORT_SYMBOL int l_interrupt_code();
 
+EXPORT_SYMBOL int l_timeout_code();
+
+EXPORT_SYMBOL int l_no_buffer_code();
+
 EXPORT_SYMBOL int l_ipv4_address_len();
 
 EXPORT_SYMBOL int l_ipv6_address_len();
@@ -31,6 +37,18 @@ EXPORT_SYMBOL int l_epoll_ctl(int epfd, int op, int socket, struct epoll_event *
 
 EXPORT_SYMBOL int l_epoll_wait(int epfd, struct epoll_event *events, int maxEvents, int timeout);
 
+EXPORT_SYMBOL int l_io_uring_setup(unsigned int entries, struct io_uring_params *params);
+
+EXPORT_SYMBOL int l_io_uring_enter(int fd, unsigned int toSubmit, unsigned int minComplete, unsigned int flags, void *arg, size_t argSize);
+
+EXPORT_SYMBOL int l_io_uring_register(int fd, unsigned int opcode, void *arg, unsigned int nrArgs);
+
+EXPORT_SYMBOL int l_mmap(int fd, size_t len, int64_t offset, void **ptr);
+
+EXPORT_SYMBOL int l_mmap_anonymous(size_t len, void **ptr);
+
+EXPORT_SYMBOL int l_munmap(void *addr, size_t len);
+
 EXPORT_SYMBOL int l_get_ipv4_address(struct sockaddr_in *sockAddr, char *addrStr, socklen_t len);
 
 EXPORT_SYMBOL int l_get_ipv6_address(struct sockaddr_in6 *sockAddr, char *addrStr, socklen_t len);
@@ -49,10 +67,18 @@ EXPORT_SYMBOL int l_set_ipv6_sock_addr(struct sockaddr_in6 *sockAddr, char *addr
 
 EXPORT_SYMBOL int l_set_reuse_addr(int socket, int value);
 
+EXPORT_SYMBOL int l_set_reuse_port(int socket, int value);
+
 EXPORT_SYMBOL int l_set_keep_alive(int socket, int value);
 
 EXPORT_SYMBOL int l_set_tcp_no_delay(int socket, int value);
 
+EXPORT_SYMBOL int l_set_busy_poll(int socket, int value);
+
+EXPORT_SYMBOL int l_set_affinity(int cpu);
+
+EXPORT_SYMBOL int l_get_affinity(int *cpus, int len);
+
 EXPORT_SYMBOL int l_set_ipv6_only(int socket, int value);
 
 EXPORT_SYMBOL int l_get_err_opt(int socket, int *ptr);
@@ -67,10 +93,20 @@ EXPORT_SYMBOL int l_connect(int socket, void *sockAddr, socklen_t size);
 
 EXPORT_SYMBOL int l_accept(int socket, void *clientAddr, socklen_t clientAddrSize);
 
+EXPORT_SYMBOL int l_accept4(int socket, void *clientAddr, socklen_t clientAddrSize);
+
 EXPORT_SYMBOL ssize_t l_recv(int socket, void *buf, size_t len);
 
 EXPORT_SYMBOL ssize_t l_send(int socket, void *buf, size_t len);
 
+EXPORT_SYMBOL int l_iov_max();
+
+EXPORT_SYMBOL ssize_t l_writev(int socket, struct iovec *iov, int iovcnt);
+
+EXPORT_SYMBOL ssize_t l_readv(int socket, struct iovec *iov, int iovcnt);
+
+EXPORT_SYMBOL ssize_t l_sendmsg(int socket, struct iovec *iov, int iovcnt, int flags);
+
 EXPORT_SYMBOL int l_shutdown_write(int fd);
 
 EXPORT_SYMBOL int l_close(int fd);
@@ -42,6 +42,11 @@ void rp_tfinalize()
     rpmalloc_thread_finalize(1);
 }
 
+int rp_tinitialized()
+{
+    return rpmalloc_is_thread_initialized();
+}
+
 void rp_finalize()
 {
     rpmalloc_finalize();
@@ -60,4 +65,14 @@ void rp_free(void *ptr)
 void *rp_realloc(void *ptr, size_t size)
 {
     return rprealloc(ptr, size);
+}
+
+void *rp_aligned_alloc(size_t alignment, size_t size)
+{
+    return rpaligned_alloc(alignment, size);
+}
+
+size_t rp_page_size()
+{
+    return rpmalloc_config()->page_size;
 }
\ No newline at end of file
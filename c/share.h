@@ -28,6 +28,8 @@ EXPORT_SYMBOL void rp_tinitialize();
 
 EXPORT_SYMBOL void rp_tfinalize();
 
+EXPORT_SYMBOL int rp_tinitialized();
+
 EXPORT_SYMBOL void rp_finalize();
 
 EXPORT_SYMBOL void *rp_malloc(size_t size);
@@ -36,4 +38,8 @@ EXPORT_SYMBOL void rp_free(void *ptr);
 
 EXPORT_SYMBOL void *rp_realloc(void *ptr, size_t size);
 
+EXPORT_SYMBOL void *rp_aligned_alloc(size_t alignment, size_t size);
+
+EXPORT_SYMBOL size_t rp_page_size();
+
 #endif
@@ -0,0 +1,204 @@
+package com.lei.network.loom.panama.buffer;
+
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ * ByteView   <br/>
+ * <ol>
+ *     <li>对一段字节的只读视图，直接引用ReadBuffer底层的MemorySegment，创建时不会拷贝任何数据，用于在解码时解析报文头、key等短小的字段</li>
+ *     <li>equals、hashCode、compareTo均基于字节内容，hashCode的计算方式与{@link java.util.Arrays#hashCode(byte[])}相同，可以直接作为Map的key进行查找</li>
+ *     <li>视图只在底层内存有效期间可用，若需要在解码结束后继续持有，需要先调用{@link #copy()}</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class ByteView implements Comparable<ByteView> {
+
+    public static final ByteView EMPTY = new ByteView(MemorySegment.ofArray(new byte[0]));
+
+    private final MemorySegment segment;
+
+    public ByteView(MemorySegment segment) {
+        this.segment = segment;
+    }
+
+    public static ByteView of(byte[] bytes) {
+        return new ByteView(MemorySegment.ofArray(bytes));
+    }
+
+    public static ByteView of(String str) {
+        return of(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    public int size() {
+        return (int) segment.byteSize();
+    }
+
+    public boolean isEmpty() {
+        return segment.byteSize() == 0L;
+    }
+
+    public byte byteAt(int index) {
+        return segment.get(ValueLayout.JAVA_BYTE, index);
+    }
+
+    public ByteView slice(int offset, int len) {
+        return new ByteView(segment.asSlice(offset, len));
+    }
+
+    /**
+     * @return b第一次出现的位置，未找到时返回-1
+     */
+    public int indexOf(byte b) {
+        return (int) DelimiterSearcher.CURRENT.indexOf(segment, 0L, segment.byteSize(), new byte[]{b});
+    }
+
+    /**
+     * 去除首尾的ASCII空白字符
+     */
+    public ByteView trim() {
+        int start = 0;
+        int end = size();
+        while (start < end && isWhitespace(byteAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(byteAt(end - 1))) {
+            end--;
+        }
+        return start == 0 && end == size() ? this : slice(start, end - start);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    public boolean contentEquals(byte[] bytes) {
+        return segment.byteSize() == bytes.length && MemorySegment.mismatch(segment, 0L, bytes.length, MemorySegment.ofArray(bytes), 0L, bytes.length) == -1L;
+    }
+
+    /**
+     * 忽略ASCII字母大小写的比较，适用于HTTP报文头名称这类大小写不敏感的字段
+     */
+    public boolean equalsIgnoreCase(ByteView other) {
+        int len = size();
+        if (other.size() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            byte a = byteAt(i);
+            byte b = other.byteAt(i);
+            if (a != b && toLowerCase(a) != toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * 按ASCII十进制解析为int，允许以'-'或'+'开头，格式不正确或溢出时抛出异常
+     */
+    public int parseInt() {
+        long result = parseLong();
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Int overflow : %s", toString());
+        }
+        return (int) result;
+    }
+
+    /**
+     * 按ASCII十进制解析为long，允许以'-'或'+'开头，格式不正确或溢出时抛出异常
+     */
+    public long parseLong() {
+        int len = size();
+        int index = 0;
+        boolean negative = false;
+        if (len > 0 && (byteAt(0) == '-' || byteAt(0) == '+')) {
+            negative = byteAt(0) == '-';
+            index = 1;
+        }
+        if (index == len) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Not a number : %s", toString());
+        }
+        // 以负数的形式累加，这样Long.MIN_VALUE也不会溢出
+        long result = 0L;
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyMin = limit / 10;
+        for (; index < len; index++) {
+            int digit = byteAt(index) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Not a number : %s", toString());
+            }
+            if (result < multiplyMin || result * 10 < limit + digit) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Long overflow : %s", toString());
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public byte[] toArray() {
+        return segment.toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    /**
+     * 拷贝至堆内存，返回的视图不再依赖原有的内存
+     */
+    public ByteView copy() {
+        return of(toArray());
+    }
+
+    @Override
+    public int compareTo(ByteView other) {
+        long len = Math.min(segment.byteSize(), other.segment.byteSize());
+        long index = MemorySegment.mismatch(segment, 0L, len, other.segment, 0L, len);
+        if (index >= 0) {
+            return Byte.toUnsignedInt(byteAt((int) index)) - Byte.toUnsignedInt(other.byteAt((int) index));
+        }
+        return Long.compare(segment.byteSize(), other.segment.byteSize());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteView other)) {
+            return false;
+        }
+        long len = segment.byteSize();
+        return len == other.segment.byteSize() && MemorySegment.mismatch(segment, 0L, len, other.segment, 0L, len) == -1L;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        int len = size();
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + byteAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * 按UTF-8解码，会产生拷贝
+     */
+    @Override
+    public String toString() {
+        return new String(toArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.lei.network.loom.panama.buffer;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * <p>
+ * DelimiterSearcher   <br/>
+ * <ol>
+ *     <li>在MemorySegment中查找分隔符第一次出现的位置，用于{@link ReadBuffer#readUntil(byte...)}</li>
+ *     <li>当启动参数中包含 --add-modules jdk.incubator.vector 时使用基于Vector API的实现，否则使用按8字节批量比较的标量实现</li>
+ *     <li>Vector API的实现类只会通过反射加载，因此在缺少该模块时不会触发任何类加载错误</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+interface DelimiterSearcher {
+
+    DelimiterSearcher CURRENT = create();
+
+    /**
+     * 在[from, to)范围内查找separators
+     * @return separators第一个字节所在的索引，未找到时返回-1
+     */
+    long indexOf(MemorySegment segment, long from, long to, byte[] separators);
+
+    private static DelimiterSearcher create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (DelimiterSearcher) Class.forName("com.lei.network.loom.panama.buffer.VectorDelimiterSearcher")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // 无法使用Vector API时回退至标量实现
+            }
+        }
+        return new ScalarDelimiterSearcher();
+    }
+
+    /**
+     * 逐字节比较offset处的内容是否与separators完全一致，调用方需要保证不会越界
+     */
+    static boolean matches(MemorySegment segment, long offset, byte[] separators) {
+        for (int i = 0; i < separators.length; i++) {
+            if (segment.get(ValueLayout.JAVA_BYTE, offset + i) != separators[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
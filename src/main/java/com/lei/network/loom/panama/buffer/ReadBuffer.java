@@ -106,6 +106,13 @@ public final class ReadBuffer {
         return result;
     }
 
+    /**
+     * 与{@link #readBytes(int)}相同，但返回的是底层内存的视图，不会产生拷贝
+     */
+    public ByteView readView(long count) {
+        return count == 0 ? ByteView.EMPTY : new ByteView(readSegment(count));
+    }
+
     /**
      * 获取堆内存中的 {@link MemorySegment} 对象，如果是堆外的，则进行拷贝
      */
@@ -122,17 +129,37 @@ public final class ReadBuffer {
     }
 
     /**
-     * 读取字节直到某个分隔符
+     * 读取字节直到某个分隔符，分隔符本身会被跳过但不包含在返回值中，未找到分隔符时返回null且readIndex不变
      */
     public byte[] readUntil(byte... separators) {
-        for (long cur = readIndex; cur <= size - separators.length; cur++) {
-            if (NativeUtil.matches(segment, cur, separators)) {
-                byte[] result = cur == readIndex ? EMPTY_BYTES : segment.asSlice(readIndex, cur - readIndex).toArray(ValueLayout.JAVA_BYTE);
-                readIndex = cur + separators.length;
-                return result;
-            }
+        long cur = DelimiterSearcher.CURRENT.indexOf(segment, readIndex, size, separators);
+        if (cur < 0) {
+            return null;
         }
-        return null;
+        byte[] result = cur == readIndex ? EMPTY_BYTES : segment.asSlice(readIndex, cur - readIndex).toArray(ValueLayout.JAVA_BYTE);
+        readIndex = cur + separators.length;
+        return result;
+    }
+
+    /**
+     * 与{@link #readUntil(byte...)}相同，但返回的是底层内存的视图，不会产生拷贝
+     */
+    public ByteView readUntilView(byte... separators) {
+        long cur = DelimiterSearcher.CURRENT.indexOf(segment, readIndex, size, separators);
+        if (cur < 0) {
+            return null;
+        }
+        ByteView result = cur == readIndex ? ByteView.EMPTY : new ByteView(segment.asSlice(readIndex, cur - readIndex));
+        readIndex = cur + separators.length;
+        return result;
+    }
+
+    /**
+     * 与{@link #readCStr()}相同，但返回的是不包含结尾'\0'的视图，字符串为空时同样返回null
+     */
+    public ByteView readCStrView() {
+        ByteView view = readUntilView(NUT);
+        return view == null || view.isEmpty() ? null : view;
     }
 
     public String readCStr() {
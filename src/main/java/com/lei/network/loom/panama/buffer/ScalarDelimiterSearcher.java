@@ -0,0 +1,49 @@
+package com.lei.network.loom.panama.buffer;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * ScalarDelimiterSearcher
+ * 每次读取8个字节，通过位运算一次性找出其中与分隔符首字节相同的位置，只在这些候选位置上比较完整的分隔符
+ * </p>
+ *
+ * @author 伍磊
+ */
+final class ScalarDelimiterSearcher implements DelimiterSearcher {
+
+    private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    @Override
+    public long indexOf(MemorySegment segment, long from, long to, byte[] separators) {
+        if (separators.length == 0) {
+            return from <= to ? from : -1L;
+        }
+        // 分隔符起始位置的最大值
+        long limit = to - separators.length;
+        long pattern = ONES * (separators[0] & 0xFF);
+        long cur = from;
+        for (; cur + Long.BYTES - 1 <= limit; cur += Long.BYTES) {
+            long x = segment.get(LONG_LE, cur) ^ pattern;
+            // 与首字节相同的字节在x中为0，对应的最高位会被置为1，位于真正匹配之后的字节可能出现误报，因此候选位置仍需完整比较
+            long found = (x - ONES) & ~x & HIGHS;
+            while (found != 0L) {
+                long index = cur + (Long.numberOfTrailingZeros(found) >>> 3);
+                if (DelimiterSearcher.matches(segment, index, separators)) {
+                    return index;
+                }
+                found &= found - 1;
+            }
+        }
+        for (; cur <= limit; cur++) {
+            if (DelimiterSearcher.matches(segment, cur, separators)) {
+                return cur;
+            }
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,58 @@
+package com.lei.network.loom.panama.buffer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * VectorDelimiterSearcher
+ * 同时加载两个向量，分别从候选位置和候选位置加上分隔符长度减一处开始，只有首字节与尾字节同时相同的位置才会被完整比较，
+ * 对于 \r\n 这类两个字节的分隔符，向量比较的结果就是最终结果，无需再逐字节确认
+ * 该类依赖 jdk.incubator.vector 模块，只能由{@link DelimiterSearcher}通过反射创建
+ * </p>
+ *
+ * @author 伍磊
+ */
+final class VectorDelimiterSearcher implements DelimiterSearcher {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    // 不足一个向量长度的部分交由标量实现处理，AVX-512下一个向量即为64字节，短报文可能完全不会进入向量循环
+    private final DelimiterSearcher scalar = new ScalarDelimiterSearcher();
+
+    VectorDelimiterSearcher() {
+        // 触发Vector API的类加载，使模块不可用时的错误在创建阶段就暴露出来
+        ByteVector.zero(SPECIES);
+    }
+
+    @Override
+    public long indexOf(MemorySegment segment, long from, long to, byte[] separators) {
+        int len = separators.length;
+        if (len == 0) {
+            return from <= to ? from : -1L;
+        }
+        long limit = to - len;
+        long cur = from;
+        if (cur + LANES - 1 <= limit) {
+            ByteVector first = ByteVector.broadcast(SPECIES, separators[0]);
+            ByteVector last = ByteVector.broadcast(SPECIES, separators[len - 1]);
+            for (; cur + LANES - 1 <= limit; cur += LANES) {
+                ByteVector head = ByteVector.fromMemorySegment(SPECIES, segment, cur, ByteOrder.LITTLE_ENDIAN);
+                ByteVector tail = len == 1 ? head : ByteVector.fromMemorySegment(SPECIES, segment, cur + len - 1, ByteOrder.LITTLE_ENDIAN);
+                long bits = head.eq(first).and(tail.eq(last)).toLong();
+                while (bits != 0L) {
+                    long index = cur + Long.numberOfTrailingZeros(bits);
+                    if (len <= 2 || DelimiterSearcher.matches(segment, index, separators)) {
+                        return index;
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return scalar.indexOf(segment, cur, to, separators);
+    }
+}
@@ -3,6 +3,7 @@ package com.lei.network.loom.panama.buffer;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
 import com.lei.network.loom.panama.util.NativeUtil;
+import com.lei.network.loom.panama.util.RpMalloc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +52,27 @@ public final class WriteBuffer implements AutoCloseable {
         return new WriteBuffer(memorySegment, new FixedWriteBufferPolicy(arena));
     }
 
+    /**
+     * 通过rpmalloc申请内存，只能在已经调用过{@link RpMalloc#tInitialize()}的线程中使用
+     */
+    public static WriteBuffer newRpMallocWriteBuffer(long size) {
+        if (!RpMalloc.tInitialized()) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Current thread is not initialized for rpmalloc");
+        }
+        MemorySegment memorySegment = RpMalloc.malloc(size);
+        return new WriteBuffer(memorySegment, new RpMallocWriteBufferPolicy(memorySegment));
+    }
+
+    /**
+     * 由{@link WriteBufferPool}调用，block的大小必须为2的幂
+     */
+    static WriteBuffer newPooledWriteBuffer(WriteBufferPool pool, MemorySegment block) {
+        PooledWriteBufferPolicy policy = new PooledWriteBufferPolicy(pool, block);
+        WriteBuffer writeBuffer = new WriteBuffer(block, policy);
+        policy.owner = writeBuffer;
+        return writeBuffer;
+    }
+
     public static WriteBuffer newReservedWriteBuffer(MemorySegment memorySegment) {
         return new WriteBuffer(memorySegment, new ReservedWriteBufferPolicy());
     }
@@ -72,6 +94,13 @@ public final class WriteBuffer implements AutoCloseable {
         return writeIndex;
     }
 
+    /**
+     * 清空已写入的数据，保留底层内存以便继续写入
+     */
+    public void reset() {
+        writeIndex = 0;
+    }
+
     public void resize(long nextIndex) {
         if (nextIndex < 0) {
             throw new FrameworkException(ExceptionType.NATIVE, "Index overflow");
@@ -168,6 +197,13 @@ public final class WriteBuffer implements AutoCloseable {
         NativeUtil.setByte(segment, index, value);
     }
 
+    public void setShort(long index, short value) {
+        if (index + SHORT_SIZE > writeIndex) {
+            throw new RuntimeException("Index out of bound");
+        }
+        NativeUtil.setShort(segment, index, value);
+    }
+
     public void setInt(long index, int value) {
         if (index + INT_SIZE > writeIndex) {
             throw new RuntimeException("Index out of bound");
@@ -280,6 +316,110 @@ public final class WriteBuffer implements AutoCloseable {
         }
     }
 
+    /**
+     * rpmalloc扩容策略
+     * 与DefaultWriteBufferPolicy不同，扩容后旧的内存块会被立即释放，而不是一直保留到WriteBuffer关闭，
+     * block记录的是当前持有的完整内存块，WriteBuffer被truncate之后其segment只是block的一个切片，此时无法原地realloc，只能重新申请后拷贝
+     */
+    static final class RpMallocWriteBufferPolicy implements WriteBufferPolicy {
+
+        private MemorySegment block;
+
+        RpMallocWriteBufferPolicy(MemorySegment block) {
+            this.block = block;
+        }
+
+        @Override
+        public void resize(WriteBuffer writeBuffer, long nextIndex) {
+            long newLen = Math.max(nextIndex, writeBuffer.size() << 1);
+            if (newLen < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "MemorySize overflow");
+            }
+            MemorySegment newSegment;
+            if (writeBuffer.segment.address() == block.address()) {
+                // rpmalloc会尽可能在原地扩容，无法原地扩容时由其负责拷贝并释放旧的内存块
+                newSegment = RpMalloc.realloc(block, newLen);
+            } else {
+                newSegment = RpMalloc.malloc(newLen);
+                MemorySegment.copy(writeBuffer.segment, 0, newSegment, 0, writeBuffer.writeIndex);
+                RpMalloc.free(block);
+            }
+            block = newSegment;
+            writeBuffer.segment = newSegment;
+            writeBuffer.size = newLen;
+        }
+
+        @Override
+        public void close(WriteBuffer writeBuffer) {
+            if (block != null) {
+                RpMalloc.free(block);
+                block = null;
+            }
+        }
+    }
+
+    /**
+     * 池化扩容策略
+     * 扩容与RpMallocWriteBufferPolicy相同，但新的大小始终为2的幂，关闭时内存块连同最初创建的WriteBuffer对象一起放回WriteBufferPool，
+     * 无论关闭的是原始的WriteBuffer还是truncate之后的WriteBuffer，放回池中的都是原始的WriteBuffer，重新取出时其segment会被恢复为完整的内存块
+     */
+    static final class PooledWriteBufferPolicy implements WriteBufferPolicy {
+
+        private final WriteBufferPool pool;
+        private MemorySegment block;
+        private WriteBuffer owner;
+        // 已经被放回池中，用于忽略重复的close()
+        private boolean pooled = false;
+
+        PooledWriteBufferPolicy(WriteBufferPool pool, MemorySegment block) {
+            this.pool = pool;
+            this.block = block;
+        }
+
+        @Override
+        public void resize(WriteBuffer writeBuffer, long nextIndex) {
+            long newLen = WriteBufferPool.roundUp(Math.max(nextIndex, writeBuffer.size() << 1));
+            MemorySegment newSegment;
+            if (writeBuffer.segment.address() == block.address()) {
+                newSegment = RpMalloc.realloc(block, newLen);
+            } else {
+                newSegment = RpMalloc.malloc(newLen);
+                MemorySegment.copy(writeBuffer.segment, 0, newSegment, 0, writeBuffer.writeIndex);
+                RpMalloc.free(block);
+            }
+            block = newSegment;
+            writeBuffer.segment = newSegment;
+            writeBuffer.size = newLen;
+        }
+
+        @Override
+        public void close(WriteBuffer writeBuffer) {
+            if (pooled || block == null) {
+                return;
+            }
+            if (pool.offer(this, block.byteSize())) {
+                pooled = true;
+            } else {
+                free();
+            }
+        }
+
+        WriteBuffer reuse() {
+            pooled = false;
+            owner.segment = block;
+            owner.size = block.byteSize();
+            owner.reset();
+            return owner;
+        }
+
+        void free() {
+            if (block != null) {
+                RpMalloc.free(block);
+                block = null;
+            }
+        }
+    }
+
     /**
      * 此种策略会接收一个 MemorySegment 对象，这个对象不在 WriteBuffer 中产生，所以开发者需要自己管理 MemorySegment 内存
      *
@@ -0,0 +1,131 @@
+package com.lei.network.loom.panama.buffer;
+
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.util.RpMalloc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * WriteBufferPool   <br/>
+ * <ol>
+ *     <li>按照2的幂划分大小等级，每个等级维护一个空闲列表，WriteBuffer关闭时不会释放内存，而是重置后放回对应等级的空闲列表中</li>
+ *     <li>不考虑线程安全，每个Writer线程独享一个pool，内存通过该线程的rpmalloc缓存申请，因此只能在该线程中使用</li>
+ *     <li>超过最大等级的WriteBuffer，以及会使空闲内存总量超过上限的WriteBuffer，在关闭时会被直接释放</li>
+ *     <li>hit、miss与retainedBytes只用于监控，其他线程读取时可能不是最新的值</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class WriteBufferPool {
+
+    private final long minSize;
+    private final int minShift;
+    private final long maxRetainedBytes;
+    private final List<ArrayDeque<WriteBuffer.PooledWriteBufferPolicy>> classes;
+    private boolean closed = false;
+
+    private long hit = 0L;
+    private long miss = 0L;
+    private long retainedBytes = 0L;
+
+    /**
+     * @param minSize           最小等级的大小，会被向上取整为2的幂
+     * @param maxSize           最大等级的大小，会被向上取整为2的幂
+     * @param maxRetainedBytes  空闲列表中最多保留的内存总量
+     */
+    public WriteBufferPool(long minSize, long maxSize, long maxRetainedBytes) {
+        if (minSize <= 0 || maxSize < minSize || maxRetainedBytes < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Invalid write buffer pool config");
+        }
+        this.minSize = roundUp(minSize);
+        this.minShift = Long.numberOfTrailingZeros(this.minSize);
+        this.maxRetainedBytes = maxRetainedBytes;
+        int count = Long.numberOfTrailingZeros(roundUp(maxSize)) - minShift + 1;
+        this.classes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            classes.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * 获取一个容量至少为size的WriteBuffer，使用完毕后调用close()即可归还
+     */
+    public WriteBuffer acquire(long size) {
+        long classSize = roundUp(Math.max(size, minSize));
+        int index = classIndex(classSize);
+        if (index < classes.size()) {
+            WriteBuffer.PooledWriteBufferPolicy policy = classes.get(index).pollLast();
+            if (policy != null) {
+                hit++;
+                retainedBytes -= classSize;
+                return policy.reuse();
+            }
+        }
+        miss++;
+        return WriteBuffer.newPooledWriteBuffer(this, RpMalloc.malloc(classSize));
+    }
+
+    /**
+     * 由PooledWriteBufferPolicy在WriteBuffer关闭时调用
+     * @return 是否被放回了空闲列表，为false时由调用方负责释放内存
+     */
+    boolean offer(WriteBuffer.PooledWriteBufferPolicy policy, long blockSize) {
+        if (closed || Long.bitCount(blockSize) != 1 || blockSize < minSize || retainedBytes + blockSize > maxRetainedBytes) {
+            return false;
+        }
+        int index = classIndex(blockSize);
+        if (index >= classes.size()) {
+            return false;
+        }
+        classes.get(index).addLast(policy);
+        retainedBytes += blockSize;
+        return true;
+    }
+
+    /**
+     * 释放空闲列表中的所有内存，之后归还的WriteBuffer都会被直接释放，需要在所属线程调用
+     */
+    public void close() {
+        closed = true;
+        for (ArrayDeque<WriteBuffer.PooledWriteBufferPolicy> deque : classes) {
+            WriteBuffer.PooledWriteBufferPolicy policy;
+            while ((policy = deque.pollLast()) != null) {
+                policy.free();
+            }
+        }
+        retainedBytes = 0L;
+    }
+
+    public long hit() {
+        return hit;
+    }
+
+    public long miss() {
+        return miss;
+    }
+
+    public long retainedBytes() {
+        return retainedBytes;
+    }
+
+    private int classIndex(long classSize) {
+        return Long.numberOfTrailingZeros(classSize) - minShift;
+    }
+
+    /**
+     * 向上取整为2的幂
+     */
+    static long roundUp(long size) {
+        long r = Long.highestOneBit(size);
+        r = r == size ? r : r << 1;
+        if (r <= 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "MemorySize overflow");
+        }
+        return r;
+    }
+}
@@ -0,0 +1,113 @@
+package com.lei.network.loom.panama.coder;
+
+import com.lei.network.loom.panama.buffer.ReadBuffer;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.util.NativeUtil;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * <p>
+ * LengthFieldDecoder   <br/>
+ * 按长度字段拆分数据帧，每次调用最多解析出一帧，帧数据不足时不移动readIndex，等待框架缓冲更多的数据后再次调用  <br/>
+ * <ol>
+ *     <li>lengthFieldOffset：长度字段在帧中的起始位置</li>
+ *     <li>lengthFieldLength：长度字段所占的字节数，只能为1、2、4、8，1、2、4字节按无符号数解析</li>
+ *     <li>lengthAdjustment：长度字段的值加上该值后，等于长度字段之后剩余的字节数，例如长度字段的值包含了自身的长度时，该值应为 -lengthFieldLength</li>
+ *     <li>initialBytesToStrip：交给frameDecoder之前需要从帧的头部跳过的字节数，通常设置为lengthFieldOffset + lengthFieldLength以跳过整个帧头</li>
+ * </ol>
+ * 帧数据以{@link ReadBuffer}的形式交给frameDecoder，该ReadBuffer直接引用底层的内存，不会产生拷贝，
+ * frameDecoder需要在返回前完成解析，不能继续持有该ReadBuffer或从中切分出的MemorySegment
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class LengthFieldDecoder implements Decoder {
+
+    /**
+     * 将帧数据拷贝至堆内存后作为MemorySegment添加至entityList中
+     */
+    public static final Decoder HEAP_FRAME = (readBuffer, entityList) -> entityList.add(readBuffer.readHeapSegment(readBuffer.size()));
+
+    private final int lengthFieldOffset;
+    private final int lengthFieldLength;
+    private final int lengthFieldEnd;
+    private final int lengthAdjustment;
+    private final int initialBytesToStrip;
+    private final long maxFrameLength;
+    private final boolean swap;
+    private final Decoder frameDecoder;
+
+    public LengthFieldDecoder(int lengthFieldOffset, int lengthFieldLength, int lengthAdjustment, int initialBytesToStrip,
+                              long maxFrameLength, ByteOrder byteOrder, Decoder frameDecoder) {
+        if (lengthFieldLength != 1 && lengthFieldLength != 2 && lengthFieldLength != 4 && lengthFieldLength != 8) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Unsupported lengthFieldLength : %d", lengthFieldLength);
+        }
+        if (lengthFieldOffset < 0 || initialBytesToStrip < 0 || maxFrameLength <= 0 || frameDecoder == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid length field decoder config");
+        }
+        this.lengthFieldOffset = lengthFieldOffset;
+        this.lengthFieldLength = lengthFieldLength;
+        this.lengthFieldEnd = lengthFieldOffset + lengthFieldLength;
+        this.lengthAdjustment = lengthAdjustment;
+        this.initialBytesToStrip = initialBytesToStrip;
+        this.maxFrameLength = maxFrameLength;
+        this.swap = byteOrder != ByteOrder.nativeOrder();
+        this.frameDecoder = frameDecoder;
+    }
+
+    /**
+     * 帧头只包含长度字段，长度字段的值即为其后的字节数，解析时跳过帧头
+     */
+    public LengthFieldDecoder(int lengthFieldLength, long maxFrameLength, Decoder frameDecoder) {
+        this(0, lengthFieldLength, 0, lengthFieldLength, maxFrameLength, ByteOrder.BIG_ENDIAN, frameDecoder);
+    }
+
+    @Override
+    public void decode(ReadBuffer readBuffer, List<Object> entityList) {
+        long start = readBuffer.readIndex();
+        long available = readBuffer.size() - start;
+        if (available < lengthFieldEnd) {
+            return;
+        }
+        MemorySegment header = readBuffer.readSegment(lengthFieldEnd);
+        long frameLength = readLength(header) + lengthAdjustment + lengthFieldEnd;
+        if (frameLength < lengthFieldEnd || frameLength < initialBytesToStrip) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Corrupted frame length : %d", frameLength);
+        }
+        if (frameLength > maxFrameLength) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Frame length %d exceeds limit %d", frameLength, maxFrameLength);
+        }
+        readBuffer.setReadIndex(start);
+        if (available < frameLength) {
+            return;
+        }
+        MemorySegment frame = readBuffer.readSegment(frameLength);
+        frameDecoder.decode(new ReadBuffer(frame.asSlice(initialBytesToStrip)), entityList);
+    }
+
+    private long readLength(MemorySegment header) {
+        return switch (lengthFieldLength) {
+            case 1 -> Byte.toUnsignedLong(NativeUtil.getByte(header, lengthFieldOffset));
+            case 2 -> {
+                short s = NativeUtil.getShort(header, lengthFieldOffset);
+                yield Short.toUnsignedLong(swap ? Short.reverseBytes(s) : s);
+            }
+            case 4 -> {
+                int i = NativeUtil.getInt(header, lengthFieldOffset);
+                yield Integer.toUnsignedLong(swap ? Integer.reverseBytes(i) : i);
+            }
+            default -> {
+                long l = NativeUtil.getLong(header, lengthFieldOffset);
+                l = swap ? Long.reverseBytes(l) : l;
+                if (l < 0) {
+                    throw new FrameworkException(ExceptionType.NETWORK, "Negative frame length : %d", l);
+                }
+                yield l;
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.lei.network.loom.panama.coder;
+
+import com.lei.network.loom.panama.buffer.WriteBuffer;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * LengthFieldPrepender   <br/>
+ * 与{@link LengthFieldDecoder}对应的编码器，先在WriteBuffer中预留长度字段的位置，再由bodyEncoder直接写入消息体，
+ * 写入完成后根据writeIndex的变化计算出消息体的长度并回填至预留的位置，整个过程不需要额外的byte[]，也不需要对消息体进行第二次遍历
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class LengthFieldPrepender implements Encoder {
+
+    private final int lengthFieldLength;
+    private final int lengthAdjustment;
+    private final boolean lengthIncludesLengthField;
+    private final boolean swap;
+    private final Encoder bodyEncoder;
+
+    /**
+     * @param lengthFieldLength         长度字段所占的字节数，只能为1、2、4、8
+     * @param lengthAdjustment          写入长度字段前需要加上的值
+     * @param lengthIncludesLengthField 长度字段的值是否包含长度字段自身
+     */
+    public LengthFieldPrepender(int lengthFieldLength, int lengthAdjustment, boolean lengthIncludesLengthField, ByteOrder byteOrder, Encoder bodyEncoder) {
+        if (lengthFieldLength != 1 && lengthFieldLength != 2 && lengthFieldLength != 4 && lengthFieldLength != 8) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Unsupported lengthFieldLength : %d", lengthFieldLength);
+        }
+        if (bodyEncoder == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid length field prepender config");
+        }
+        this.lengthFieldLength = lengthFieldLength;
+        this.lengthAdjustment = lengthAdjustment;
+        this.lengthIncludesLengthField = lengthIncludesLengthField;
+        this.swap = byteOrder != ByteOrder.nativeOrder();
+        this.bodyEncoder = bodyEncoder;
+    }
+
+    /**
+     * 大端序，长度字段的值即为消息体的字节数
+     */
+    public LengthFieldPrepender(int lengthFieldLength, Encoder bodyEncoder) {
+        this(lengthFieldLength, 0, false, ByteOrder.BIG_ENDIAN, bodyEncoder);
+    }
+
+    @Override
+    public void encode(WriteBuffer writeBuffer, Object o) {
+        long start = writeBuffer.writeIndex();
+        switch (lengthFieldLength) {
+            case 1 -> writeBuffer.writeByte((byte) 0);
+            case 2 -> writeBuffer.writeShort((short) 0);
+            case 4 -> writeBuffer.writeInt(0);
+            default -> writeBuffer.writeLong(0L);
+        }
+        bodyEncoder.encode(writeBuffer, o);
+        long length = writeBuffer.writeIndex() - start - lengthFieldLength + lengthAdjustment + (lengthIncludesLengthField ? lengthFieldLength : 0);
+        if (length < 0 || (lengthFieldLength < 8 && length >= 1L << (lengthFieldLength << 3))) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Length %d doesn't fit into %d bytes", length, lengthFieldLength);
+        }
+        switch (lengthFieldLength) {
+            case 1 -> writeBuffer.setByte(start, (byte) length);
+            case 2 -> writeBuffer.setShort(start, swap ? Short.reverseBytes((short) length) : (short) length);
+            case 4 -> writeBuffer.setInt(start, swap ? Integer.reverseBytes((int) length) : (int) length);
+            default -> writeBuffer.setLong(start, swap ? Long.reverseBytes(length) : length);
+        }
+    }
+}
@@ -65,5 +65,12 @@ public interface Constants {
     int NET_RW = NET_R | NET_W; // register read and write
     // 表示除了可读事件和可写事件以外的其他事件，比如epoll中默认注册的EPOLL_ERR和EPOLL_HUP等
     int NET_OTHER = Integer.MIN_VALUE | (1 << 20);
+    // 表示io_uring接收模式下，内核已经将数据接收至缓冲区环中，事件本身携带了接收的结果
+    int NET_RECV = Integer.MIN_VALUE | (1 << 22);
+
+    // 由框架根据CPU拓扑自动决定线程绑定的CPU
+    String AFFINITY_AUTO = "auto";
+    // Writer绑定至与其配对的Poller共享缓存的CPU
+    String AFFINITY_PAIRED = "paired";
 
 }
@@ -0,0 +1,165 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+import com.lei.network.loom.panama.library.Socket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.List;
+
+/**
+ * <p>
+ * Acceptor
+ * 一个处于监听状态的服务端socket，可读时循环调用accept()直到没有新的连接或是用完了单次的接收额度，
+ * 新连接以轮询的方式分配给pollers与writers，并以TcpSentry的形式注册至对应的Poller中，
+ * 开启SO_REUSEPORT时每个Poller各自持有一个Acceptor，pollers中只包含其自身，新连接不会跨线程转移，
+ * 否则所有连接都由net线程中唯一的Acceptor接收，再分配给全部的Poller，
+ * 不考虑线程安全，只能在注册了该socket的线程中使用
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class Acceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(Acceptor.class);
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
+
+    // accept()的返回值，依次表示：队列中的连接已经全部接收、用完了单次的接收额度、因为EMFILE等错误而中止
+    public static final int DRAINED = 0;
+    public static final int EXHAUSTED = 1;
+    public static final int FAILED = 2;
+
+    // 返回FAILED之后重新接收的间隔，单位毫秒，期间调用方不应再关注监听socket的可读事件，否则水平触发模式下会持续空转
+    public static final long RETRY_DELAY = 100L;
+
+    // 连续失败时错误日志的最小间隔，单位毫秒
+    private static final long FAILURE_LOG_INTERVAL = 1000L;
+
+    private final Socket socket;
+
+    private final Loc loc;
+
+    private final ListenerConfig listenerConfig;
+
+    private final List<Poller> pollers;
+
+    private final List<Writer> writers;
+
+    // 用于接收对端地址，每次accept()都会被覆盖
+    private final MemorySegment clientAddr;
+
+    private int pollerIndex;
+
+    private int writerIndex;
+
+    // 上一次输出失败日志的时间，以及之后被省略的失败次数
+    private long lastFailureLog = 0L;
+
+    private int suppressedFailures = 0;
+
+    /**
+     * @param sequence 轮询的起始位置，使多个Acceptor分配的连接均匀地分布在writers中
+     */
+    public Acceptor(Socket socket, Loc loc, ListenerConfig listenerConfig, List<Poller> pollers, List<Writer> writers, int sequence) {
+        this.socket = socket;
+        this.loc = loc;
+        this.listenerConfig = listenerConfig;
+        this.pollers = pollers;
+        this.writers = writers;
+        this.clientAddr = osNetworkLibrary.allocateSockAddr(loc.ipType(), Arena.ofAuto());
+        this.pollerIndex = sequence % pollers.size();
+        this.writerIndex = sequence % writers.size();
+    }
+
+    public Socket socket() {
+        return socket;
+    }
+
+    public Loc loc() {
+        return loc;
+    }
+
+    /**
+     * 接收已经完成握手的连接，单次最多接收acceptBudget个，未处理完的连接在水平触发模式下会在下一轮继续通知，
+     * 边缘触发模式下则需要由调用方根据返回值主动再次调用，
+     * 返回FAILED时队列中的连接同样没有被接收，例如文件描述符耗尽的EMFILE、ENFILE或内存不足的ENOBUFS，这类错误通常需要等待一段时间才能恢复
+     * @return DRAINED、EXHAUSTED或FAILED，后两者表示队列中可能还有未接收的连接
+     */
+    public int accept() {
+        int budget = listenerConfig.getAcceptBudget();
+        for (int i = 0; i < budget; i++) {
+            int r = osNetworkLibrary.accept(socket, clientAddr);
+            if (r < 0) {
+                int errno = Math.abs(r);
+                if (errno == osNetworkLibrary.interruptCode()) {
+                    continue;
+                }
+                if (errno == osNetworkLibrary.sendBlockCode()) {
+                    return DRAINED;
+                }
+                onFailure(errno);
+                return FAILED;
+            }
+            dispatch(new Socket(r));
+        }
+        return EXHAUSTED;
+    }
+
+    /**
+     * 文件描述符耗尽时每次重试都会失败，因此限制日志的频率
+     */
+    private void onFailure(int errno) {
+        long now = System.currentTimeMillis();
+        if (now - lastFailureLog < FAILURE_LOG_INTERVAL) {
+            suppressedFailures++;
+            return;
+        }
+        log.error("Failed to accept connection on {}, errno : {}, suppressed failures : {}", loc, errno, suppressedFailures);
+        lastFailureLog = now;
+        suppressedFailures = 0;
+    }
+
+    private void dispatch(Socket client) {
+        Channel channel;
+        try {
+            osNetworkLibrary.configureClientSocket(client, listenerConfig.getSocketConfig());
+            Loc clientLoc = osNetworkLibrary.getLoc(loc.ipType(), clientAddr);
+            channel = new ChannelImpl(client,
+                    listenerConfig.getEncoderSupplier().get(),
+                    listenerConfig.getDecoderSupplier().get(),
+                    listenerConfig.getHandlerSupplier().get(),
+                    nextPoller(),
+                    nextWriter(),
+                    clientLoc);
+        } catch (RuntimeException e) {
+            log.error("Failed to initialize accepted connection on {}", loc, e);
+            osNetworkLibrary.closeSocket(client);
+            return;
+        }
+        Sentry sentry = new TcpSentry(channel);
+        channel.poller().submit(new PollerTask(PollerTaskType.REGISTER, channel, new SentryWithCallback(sentry, null, null, listenerConfig.getDispatchMode())));
+    }
+
+    private Poller nextPoller() {
+        Poller poller = pollers.get(pollerIndex);
+        pollerIndex = pollerIndex + 1 == pollers.size() ? 0 : pollerIndex + 1;
+        return poller;
+    }
+
+    private Writer nextWriter() {
+        Writer writer = writers.get(writerIndex);
+        writerIndex = writerIndex + 1 == writers.size() ? 0 : writerIndex + 1;
+        return writer;
+    }
+
+    public void close() {
+        int r = osNetworkLibrary.closeSocket(socket);
+        if (r < 0) {
+            log.error("Failed to close listener socket on {}, errno : {}", loc, Math.abs(r));
+        }
+    }
+}
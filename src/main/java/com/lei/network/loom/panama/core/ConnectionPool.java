@@ -0,0 +1,304 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.lei.network.loom.panama.constant.Constants.INITIAL;
+import static com.lei.network.loom.panama.constant.Constants.RUNNING;
+import static com.lei.network.loom.panama.constant.Constants.STOPPED;
+
+/**
+ * <p>
+ * ConnectionPool   <br/>
+ * <ol>
+ *     <li>按后端地址维护固定个数的客户端连接，连接通过{@link Net#connect(Loc, ConnectorConfig)}建立，关闭后会在{@link Handler#onRemoved(Channel)}中自动补齐</li>
+ *     <li>select()在当前地址的所有可写连接中选择{@link Channel#pendingWrites()}最小的一个，所有连接积压的消息总数达到上限时不返回任何连接，由调用方决定丢弃或重试</li>
+ *     <li>连续建立连接失败达到maxFailures次时，后端地址会被剔除ejectTime毫秒，期间select()直接返回null，也不会再发起新的连接</li>
+ *     <li>ConnectorConfig中的Handler会被包装一层用于感知连接的移除，因此连接上的channel.handler()并不是handlerSupplier直接创建的对象</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class ConnectionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final Net net;
+
+    private final ConnectorConfig connectorConfig;
+
+    private final PoolConfig poolConfig;
+
+    private final Map<Loc, Backend> backends = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    public ConnectionPool(Net net, ConnectorConfig connectorConfig, PoolConfig poolConfig) {
+        if (net == null || connectorConfig == null || poolConfig == null || connectorConfig.getHandlerSupplier() == null) {
+            throw new NullPointerException();
+        }
+        if (poolConfig.getConnectionsPerLoc() <= 0 || poolConfig.getMaxPendingPerLoc() <= 0 || poolConfig.getMaxFailures() <= 0 || poolConfig.getEjectTime() < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid pool config");
+        }
+        this.net = net;
+        this.connectorConfig = connectorConfig;
+        this.poolConfig = poolConfig;
+    }
+
+    /**
+     * 预先建立loc对应的全部连接
+     * @return 所有连接尝试结束后完成，完成时并不代表全部连接都建立成功
+     */
+    public CompletableFuture<Void> warmUp(Loc loc) {
+        return backend(loc).fill();
+    }
+
+    /**
+     * 选择loc上积压消息最少的连接，连接不足时会在后台补齐
+     * @return 没有可用的连接、后端已被剔除或积压的消息超过上限时返回null
+     */
+    public Channel select(Loc loc) {
+        Backend backend = backend(loc);
+        backend.fill();
+        return backend.select();
+    }
+
+    /**
+     * 通过select()选择的连接发送消息
+     * @return 没有可用的连接时返回false，消息不会被发送
+     */
+    public boolean send(Loc loc, Object msg) {
+        Channel channel = select(loc);
+        if (channel == null) {
+            return false;
+        }
+        channel.sendMsg(msg);
+        return true;
+    }
+
+    /**
+     * 关闭所有连接，之后不会再建立新的连接
+     */
+    public void close() {
+        closed = true;
+        for (Backend backend : backends.values()) {
+            for (Channel channel : backend.channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private Backend backend(Loc loc) {
+        if (closed) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Connection pool already closed");
+        }
+        return backends.computeIfAbsent(loc, Backend::new);
+    }
+
+    private final class Backend {
+
+        private final Loc loc;
+
+        private final ConnectorConfig backendConfig;
+
+        // 已经升级完成的连接
+        private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+        // 正在建立中的连接个数
+        private final AtomicInteger connecting = new AtomicInteger(0);
+
+        private final AtomicInteger failures = new AtomicInteger(0);
+
+        private volatile long ejectedUntil = 0L;
+
+        Backend(Loc loc) {
+            this.loc = loc;
+            this.backendConfig = new ConnectorConfig();
+            backendConfig.setEncoderSupplier(connectorConfig.getEncoderSupplier());
+            backendConfig.setDecoderSupplier(connectorConfig.getDecoderSupplier());
+            backendConfig.setHandlerSupplier(() -> new PooledHandler(this, connectorConfig.getHandlerSupplier().get()));
+            backendConfig.setSocketConfig(connectorConfig.getSocketConfig());
+            backendConfig.setDispatchMode(connectorConfig.getDispatchMode());
+        }
+
+        /**
+         * 每次发起连接之前都重新检查closed与ejectedUntil，连接同步失败时直接结束循环，由之后的select()再次补齐
+         */
+        CompletableFuture<Void> fill() {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            while (!closed && System.currentTimeMillis() >= ejectedUntil) {
+                int current = connecting.get();
+                if (current + channels.size() >= poolConfig.getConnectionsPerLoc()) {
+                    break;
+                }
+                if (connecting.compareAndSet(current, current + 1)) {
+                    CompletableFuture<Void> future = connect();
+                    if (future == null) {
+                        break;
+                    }
+                    futures.add(future);
+                }
+            }
+            return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        }
+
+        /**
+         * @return 在当前线程中同步失败时返回null，例如Net已经停止或创建socket失败
+         */
+        private CompletableFuture<Void> connect() {
+            CompletableFuture<Channel> future;
+            try {
+                future = net.connect(loc, backendConfig);
+            } catch (RuntimeException e) {
+                connecting.decrementAndGet();
+                onFailure(e);
+                return null;
+            }
+            if (future.isCompletedExceptionally()) {
+                connecting.decrementAndGet();
+                onFailure(future.exceptionNow());
+                return null;
+            }
+            return future.handle((channel, throwable) -> {
+                if (throwable != null) {
+                    connecting.decrementAndGet();
+                    // 在新的虚拟线程中重试，future恰好在注册回调之前完成时当前线程即为调用fill()的线程
+                    if (onFailure(throwable)) {
+                        Thread.ofVirtual().start(this::fill);
+                    }
+                } else {
+                    // 先加入channels再减少connecting，避免并发的fill()多建立连接
+                    onConnected(channel);
+                    connecting.decrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        private void onConnected(Channel channel) {
+            failures.set(0);
+            if (channel.handler() instanceof PooledHandler pooledHandler) {
+                pooledHandler.attach(channel);
+            }
+            if (closed) {
+                channel.close();
+            }
+        }
+
+        /**
+         * 记录一次连接失败
+         * @return 后端没有被剔除时返回true，由调用方决定是否重试
+         */
+        private boolean onFailure(Throwable throwable) {
+            if (failures.incrementAndGet() >= poolConfig.getMaxFailures()) {
+                failures.set(0);
+                ejectedUntil = System.currentTimeMillis() + poolConfig.getEjectTime();
+                log.warn("Backend {} ejected for {} ms, last failure : {}", loc, poolConfig.getEjectTime(), throwable.getMessage());
+                return false;
+            }
+            log.debug("Failed to connect to backend {}", loc, throwable);
+            return true;
+        }
+
+        /**
+         * 由PooledHandler在连接被移除后调用
+         */
+        void onRemoved() {
+            fill();
+        }
+
+        Channel select() {
+            if (System.currentTimeMillis() < ejectedUntil) {
+                return null;
+            }
+            Channel selected = null;
+            int min = Integer.MAX_VALUE;
+            long total = 0L;
+            for (Channel channel : channels) {
+                int pending = channel.pendingWrites();
+                total += pending;
+                // 超过高水位的连接不再分配新的消息
+                if (pending < min && channel.isWritable()) {
+                    min = pending;
+                    selected = channel;
+                }
+            }
+            return total >= poolConfig.getMaxPendingPerLoc() ? null : selected;
+        }
+    }
+
+    /**
+     * 将连接的加入与移除放在同一把锁下，保证连接即使在future完成之前就已经被移除，也不会残留在channels中，
+     * state为RUNNING表示已经加入channels，STOPPED表示已经被移除
+     */
+    private static final class PooledHandler implements Handler {
+
+        private final Backend backend;
+
+        private final Handler delegate;
+
+        private final State state = new State(INITIAL);
+
+        PooledHandler(Backend backend, Handler delegate) {
+            this.backend = backend;
+            this.delegate = delegate;
+        }
+
+        void attach(Channel channel) {
+            try (Mutex _ = state.withMutex()) {
+                if (state.cas(INITIAL, RUNNING)) {
+                    backend.channels.add(channel);
+                }
+            }
+        }
+
+        @Override
+        public void onConnected(Channel channel) {
+            delegate.onConnected(channel);
+        }
+
+        @Override
+        public void onRecv(Channel channel, Object data) {
+            delegate.onRecv(channel, data);
+        }
+
+        @Override
+        public void onShutdown(Channel channel) {
+            delegate.onShutdown(channel);
+        }
+
+        @Override
+        public void onWritabilityChanged(Channel channel, boolean writable) {
+            delegate.onWritabilityChanged(channel, writable);
+        }
+
+        @Override
+        public void onRemoved(Channel channel) {
+            try {
+                delegate.onRemoved(channel);
+            } finally {
+                boolean detached;
+                try (Mutex _ = state.withMutex()) {
+                    detached = state.get() == RUNNING && backend.channels.remove(channel);
+                    state.set(STOPPED);
+                }
+                if (detached) {
+                    backend.onRemoved();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.Decoder;
+import com.lei.network.loom.panama.coder.Encoder;
+import com.lei.network.loom.panama.handler.Handler;
+import com.lei.network.loom.panama.library.SocketConfig;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * ConnectorConfig
+ * 通过Net.connect()发起的客户端连接的配置，同一个ConnectorConfig可以用于连接多个不同的地址
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class ConnectorConfig {
+
+    // 每个新发起的连接都会通过以下Supplier创建独享的Encoder、Decoder与Handler
+    private Supplier<Encoder> encoderSupplier;
+
+    private Supplier<Decoder> decoderSupplier;
+
+    private Supplier<Handler> handlerSupplier;
+
+    // 客户端socket的选项，只有keepAlive与tcpNoDelay会生效
+    private SocketConfig socketConfig = new SocketConfig();
+
+    // 连接调用Handler.onRecv()的方式，默认在Poller线程中直接调用
+    private DispatchMode dispatchMode = DispatchMode.INLINE;
+
+    public Supplier<Encoder> getEncoderSupplier() {
+        return encoderSupplier;
+    }
+
+    public void setEncoderSupplier(Supplier<Encoder> encoderSupplier) {
+        this.encoderSupplier = encoderSupplier;
+    }
+
+    public Supplier<Decoder> getDecoderSupplier() {
+        return decoderSupplier;
+    }
+
+    public void setDecoderSupplier(Supplier<Decoder> decoderSupplier) {
+        this.decoderSupplier = decoderSupplier;
+    }
+
+    public Supplier<Handler> getHandlerSupplier() {
+        return handlerSupplier;
+    }
+
+    public void setHandlerSupplier(Supplier<Handler> handlerSupplier) {
+        this.handlerSupplier = handlerSupplier;
+    }
+
+    public SocketConfig getSocketConfig() {
+        return socketConfig;
+    }
+
+    public void setSocketConfig(SocketConfig socketConfig) {
+        this.socketConfig = socketConfig;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+}
@@ -0,0 +1,19 @@
+package com.lei.network.loom.panama.core;
+
+/**
+ * <p>
+ * DispatchMode
+ * 解码得到的实体交给{@link com.lei.network.loom.panama.handler.Handler#onRecv}的方式，在ListenerConfig中按监听端口配置
+ * </p>
+ *
+ * @author 伍磊
+ */
+public enum DispatchMode {
+    // 直接在Poller线程中调用，延迟最低，但onRecv中的任何阻塞都会导致该Poller上的所有连接无法读取，只适用于不会阻塞的Handler，
+    // 由于调用发生在解码之后、读缓冲区被复用之前，实体可以直接引用读缓冲区中的内存
+    INLINE,
+    // 每个连接拥有一个串行的信箱，由虚拟线程按照接收顺序依次调用，onRecv中可以执行JDBC、文件读写等阻塞操作，
+    // 调用发生时读缓冲区、暂存区或io_uring的缓冲区环可能已经被复用，因此放入信箱之前，引用了读内存的MemorySegment与ByteView实体会被拷贝至堆内存，
+    // 其他类型的实体框架无法识别，不能在其中持有读内存，例如ByteView的字段需要先调用copy()
+    VIRTUAL_THREAD
+}
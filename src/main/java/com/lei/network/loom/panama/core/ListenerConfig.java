@@ -1,5 +1,12 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.coder.Decoder;
+import com.lei.network.loom.panama.coder.Encoder;
+import com.lei.network.loom.panama.handler.Handler;
+import com.lei.network.loom.panama.library.SocketConfig;
+
+import java.util.function.Supplier;
+
 /**
  * <p>
  * ListenerConfig
@@ -8,4 +15,111 @@ package com.lei.network.loom.panama.core;
  * @author 伍磊
  */
 public final class ListenerConfig {
+
+    // 监听的协议栈
+    private IpType ipType = IpType.IPV4;
+
+    // 监听的地址，为空时表示监听所有地址
+    private String ip = null;
+
+    private int port = 8080;
+
+    // listen()的backlog，即已完成握手但尚未被accept()的连接队列长度，超过系统的SOMAXCONN时会被截断
+    private int backlog = 1024;
+
+    // 监听socket每次可读时最多连续accept()的连接个数，剩余的连接会在下一轮多路复用中继续处理，避免连接风暴时长时间阻塞同一线程中的读写事件
+    private int acceptBudget = 64;
+
+    // 每个新建立的连接都会通过以下Supplier创建独享的Encoder、Decoder与Handler
+    private Supplier<Encoder> encoderSupplier;
+
+    private Supplier<Decoder> decoderSupplier;
+
+    private Supplier<Handler> handlerSupplier;
+
+    // 监听socket与新建立连接的socket选项
+    private SocketConfig socketConfig = new SocketConfig();
+
+    // 该端口上所有连接调用Handler.onRecv()的方式，默认在Poller线程中直接调用，使零拷贝解码得到的实体在onRecv()期间始终有效
+    private DispatchMode dispatchMode = DispatchMode.INLINE;
+
+    public IpType getIpType() {
+        return ipType;
+    }
+
+    public void setIpType(IpType ipType) {
+        this.ipType = ipType;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    public int getAcceptBudget() {
+        return acceptBudget;
+    }
+
+    public void setAcceptBudget(int acceptBudget) {
+        this.acceptBudget = acceptBudget;
+    }
+
+    public Supplier<Encoder> getEncoderSupplier() {
+        return encoderSupplier;
+    }
+
+    public void setEncoderSupplier(Supplier<Encoder> encoderSupplier) {
+        this.encoderSupplier = encoderSupplier;
+    }
+
+    public Supplier<Decoder> getDecoderSupplier() {
+        return decoderSupplier;
+    }
+
+    public void setDecoderSupplier(Supplier<Decoder> decoderSupplier) {
+        this.decoderSupplier = decoderSupplier;
+    }
+
+    public Supplier<Handler> getHandlerSupplier() {
+        return handlerSupplier;
+    }
+
+    public void setHandlerSupplier(Supplier<Handler> handlerSupplier) {
+        this.handlerSupplier = handlerSupplier;
+    }
+
+    public SocketConfig getSocketConfig() {
+        return socketConfig;
+    }
+
+    public void setSocketConfig(SocketConfig socketConfig) {
+        this.socketConfig = socketConfig;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    public void setDispatchMode(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
 }
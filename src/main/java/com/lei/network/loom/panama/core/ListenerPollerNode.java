@@ -0,0 +1,132 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * <p>
+ * ListenerPollerNode
+ * 开启SO_REUSEPORT时注册在Poller中的监听socket，只关注可读事件，由Poller线程直接接收新连接，
+ * accept()因为EMFILE等错误中止时，连接仍然留在队列中，通过时间轮在一段时间之后重新接收，
+ * 边缘触发模式下剩余的连接不会再产生新的通知，水平触发模式下监听socket则会一直可读，因此在重新接收成功之前暂时取消注册可读事件，避免Poller空转
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class ListenerPollerNode implements PollerNode {
+
+    private static final Logger log = LoggerFactory.getLogger(ListenerPollerNode.class);
+
+    private final Poller poller;
+
+    private final IntMap<PollerNode> nodeMap;
+
+    private final Acceptor acceptor;
+
+    private boolean readPending = false;
+
+    // 水平触发模式下是否因为accept()失败而暂时取消了可读事件的注册
+    private boolean suspended = false;
+
+    // 重新接收的定时任务，没有失败过时为null
+    private TimingWheel.Timeout retryTimeout;
+
+    public ListenerPollerNode(Poller poller, IntMap<PollerNode> nodeMap, Acceptor acceptor) {
+        this.poller = poller;
+        this.nodeMap = nodeMap;
+        this.acceptor = acceptor;
+    }
+
+    @Override
+    public void onReadableEvent(MemorySegment reserved, int len) {
+        int r = acceptor.accept();
+        readPending = r == Acceptor.EXHAUSTED;
+        if (r == Acceptor.FAILED) {
+            suspend();
+            scheduleRetry(Acceptor.RETRY_DELAY);
+        }
+    }
+
+    /**
+     * 由时间轮触发，此时节点不在Poller的pendingNodes中，因此边缘触发模式下用完额度时同样需要由时间轮在下一个刻度继续接收，
+     * 水平触发模式下重新注册可读事件之后，剩余的连接会由下一轮的通知继续接收
+     */
+    private void retryAccept() {
+        int r = acceptor.accept();
+        if (r == Acceptor.FAILED) {
+            scheduleRetry(Acceptor.RETRY_DELAY);
+            return;
+        }
+        resume();
+        if (r == Acceptor.EXHAUSTED && poller.mux().edgeTriggered()) {
+            scheduleRetry(0L);
+        }
+    }
+
+    private void suspend() {
+        if (suspended || poller.mux().edgeTriggered()) {
+            return;
+        }
+        int r = poller.ctl(acceptor.socket(), Constants.NET_R, Constants.NET_NONE);
+        if (r < 0) {
+            log.error("Failed to suspend listener {}, errno : {}", acceptor.loc(), Math.abs(r));
+            return;
+        }
+        suspended = true;
+    }
+
+    private void resume() {
+        if (!suspended) {
+            return;
+        }
+        int r = poller.ctl(acceptor.socket(), Constants.NET_NONE, Constants.NET_R);
+        if (r < 0) {
+            // 无法重新注册时继续由时间轮接收
+            log.error("Failed to resume listener {}, errno : {}", acceptor.loc(), Math.abs(r));
+            scheduleRetry(Acceptor.RETRY_DELAY);
+            return;
+        }
+        suspended = false;
+    }
+
+    private void scheduleRetry(long delay) {
+        TimingWheel timingWheel = poller.timingWheel();
+        if (retryTimeout == null) {
+            retryTimeout = timingWheel.schedule(this::retryAccept, poller.now() + delay);
+        } else if (!retryTimeout.isScheduled()) {
+            timingWheel.reschedule(retryTimeout, poller.now() + delay);
+        }
+    }
+
+    @Override
+    public boolean readPending() {
+        return readPending;
+    }
+
+    @Override
+    public void onWritableEvent() {
+        // 监听socket不会注册可写事件
+    }
+
+    @Override
+    public void onCloseEvent() {
+        if (nodeMap.remove(acceptor.socket().intValue(), this)) {
+            readPending = false;
+            if (retryTimeout != null) {
+                poller.timingWheel().cancel(retryTimeout);
+            }
+            if (!suspended && !poller.mux().removedOnClose()) {
+                int r = poller.ctl(acceptor.socket(), Constants.NET_R, Constants.NET_NONE);
+                if (r < 0) {
+                    log.debug("Failed to deregister listener {}, errno : {}", acceptor.loc(), Math.abs(r));
+                }
+            }
+            acceptor.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.handler.Channel;
+import org.jctools.queues.atomic.SpscUnboundedAtomicArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * Mailbox
+ * {@link DispatchMode#VIRTUAL_THREAD}模式下每个连接独享的信箱，连接被移除之前Poller线程是唯一的生产者，
+ * 信箱从空变为非空时启动一个虚拟线程，该线程依次调用onRecv直到信箱被取空后退出，
+ * 同一时刻最多只有一个虚拟线程在处理同一个连接的消息，因此消息的处理顺序与接收顺序一致，而空闲的连接不会占用任何线程，
+ * 连接被移除后由Writer线程放入最后一条消息，onRemoved()总是在onConnected()与所有的onRecv()之后执行
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class Mailbox {
+
+    private static final Logger log = LoggerFactory.getLogger(Mailbox.class);
+
+    // 放入信箱中表示连接建立完成，在处理线程中回调onConnected()
+    private static final Object CONNECTED = new Object();
+
+    // 放入信箱中表示连接已经被移除，在处理线程中回调onRemoved()
+    private static final Object REMOVED = new Object();
+
+    private final Channel channel;
+
+    private final Queue<Object> queue = new SpscUnboundedAtomicArrayQueue<>(16);
+
+    // 是否已经有虚拟线程在处理当前信箱
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    public Mailbox(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 只能由Poller线程调用
+     */
+    public void offer(List<Object> entityList) {
+        for (Object entity : entityList) {
+            queue.offer(entity);
+        }
+        schedule();
+    }
+
+    /**
+     * 只能由Poller线程调用，在连接升级为Protocol后、放入任何消息之前调用
+     */
+    public void connected() {
+        queue.offer(CONNECTED);
+        schedule();
+    }
+
+    /**
+     * 由Writer线程在处理CLOSE任务时调用，此时Poller已经移除了连接，不会再放入任何消息，
+     * CLOSE任务由Poller在最后一次放入消息之后提交，因此生产者由Poller切换为Writer时两者不会并发，信箱仍然只有一个生产者
+     */
+    public void removed() {
+        queue.offer(REMOVED);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            Thread.ofVirtual().start(this::drain);
+        }
+    }
+
+    private void drain() {
+        for (; ; ) {
+            Object entity;
+            while ((entity = queue.poll()) != null) {
+                try {
+                    if (entity == CONNECTED) {
+                        channel.handler().onConnected(channel);
+                    } else if (entity == REMOVED) {
+                        channel.handler().onRemoved(channel);
+                    } else {
+                        channel.handler().onRecv(channel, entity);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Exception thrown in handler", e);
+                }
+            }
+            scheduled.set(false);
+            // 在重置标志位之前，Poller可能已经放入了新的消息但没有启动新的虚拟线程，需要由当前线程继续处理
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+}
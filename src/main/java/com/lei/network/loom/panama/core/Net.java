@@ -3,19 +3,44 @@ package com.lei.network.loom.panama.core;
 import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.library.Mux;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+import com.lei.network.loom.panama.library.Socket;
+import com.lei.network.loom.panama.library.SocketConfig;
+import com.lei.network.loom.panama.util.CpuTopology;
+import com.lei.network.loom.panama.util.IntMap;
+import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.lei.network.loom.panama.constant.Constants.INITIAL;
 import static com.lei.network.loom.panama.constant.Constants.RUNNING;
+import static com.lei.network.loom.panama.constant.Constants.STOPPED;
 
 /**
  * <p>
  * Net
+ * 添加监听时优先为每个Poller创建一个开启了SO_REUSEPORT的监听socket，由内核将新连接均匀地分配给各个Poller，
+ * 接收连接与后续的读事件都在同一个Poller线程中完成，当前系统不支持SO_REUSEPORT时，
+ * 退化为由net线程持有唯一的监听socket，接收后的连接再轮询分配给各个Poller，
+ * 通过connect()发起的客户端连接不经过net线程，非阻塞connect()之后直接以TcpSentry的形式注册至Poller，等待可写后升级为TcpProtocol，
+ * Writer的affinity为"paired"时，第i个Poller与第i个Writer互相配对并绑定至共享缓存的CPU上，连接总是分配给同一对Poller与Writer
  * </p>
  *
  * @author 伍磊
@@ -23,24 +48,31 @@ import static com.lei.network.loom.panama.constant.Constants.RUNNING;
 public class Net extends AbstractLifeCycle {
 
     private static final Logger log = LoggerFactory.getLogger(Net.class);
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
 
     private static final AtomicBoolean instanceFlag = new AtomicBoolean(false);
     private final State state = new State(INITIAL);
 
+    private final Mux mux;
+    // 等待注册至net线程的监听socket
+    private final Queue<Acceptor> acceptorQueue = new MpscUnboundedAtomicArrayQueue<>(16);
+    private volatile boolean netExiting = false;
     private final Thread netThread;
     private final List<Poller> pollers;
     private final List<Writer> writers;
+    // 第i个Poller上的连接是否只分配给第i个Writer
+    private final boolean paired;
+    // 客户端连接轮询分配Poller与Writer的序号
+    private final AtomicInteger connectSequence = new AtomicInteger(0);
 
     public Net(NetConfig netConfig, PollerConfig pollerConfig, WriterConfig writerConfig) {
         if (netConfig == null || pollerConfig == null || writerConfig == null) {
             throw new NullPointerException();
         }
 
-        // 类似于单例模式
-        if (!instanceFlag.compareAndSet(false, true)) {
-            throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+        if (netConfig.getMaxEvents() <= 0 || netConfig.getMuxTimeout() < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid net config");
         }
-
         int pollerCount = pollerConfig.getPollerCount();
         if (pollerCount <= 0) {
             throw new FrameworkException(ExceptionType.NETWORK, "Poller instances cannot be zero");
@@ -50,37 +82,353 @@ public class Net extends AbstractLifeCycle {
             throw new FrameworkException(ExceptionType.NETWORK, "Writer instances cannot be zero");
         }
 
-        this.pollers = IntStream.range(0, pollerCount).mapToObj(_ -> new Poller(pollerConfig)).toList();
-        this.writers = IntStream.range(0, writerCount).mapToObj(_ -> new Writer(writerConfig)).toList();
-        this.netThread = createNetThread(netConfig);
+        this.paired = Constants.AFFINITY_PAIRED.equals(writerConfig.getAffinity());
+        // 只在开启了绑定时才读取当前进程允许运行的CPU，Mac与Windows下不支持绑定
+        Set<Integer> allowed = pollerConfig.getAffinity() == null && writerConfig.getAffinity() == null ? Set.of() :
+                Arrays.stream(osNetworkLibrary.getAffinity()).boxed().collect(Collectors.toSet());
+        int[] pollerCpus = assignCpus(pollerConfig.getAffinity(), pollerCount, 0, allowed);
+        int[] writerCpus;
+        if (paired) {
+            if (pollerCpus == null || writerCount != pollerCount) {
+                throw new FrameworkException(ExceptionType.NETWORK, "Paired writer affinity requires pinned pollers and the same number of writers");
+            }
+            writerCpus = pairCpus(pollerCpus, allowed);
+        } else {
+            // 自动绑定时Writer从Poller之后的CPU开始分配，尽量不与Poller共用同一个CPU
+            writerCpus = assignCpus(writerConfig.getAffinity(), writerCount, pollerCount, allowed);
+        }
+        if (pollerCpus != null || writerCpus != null) {
+            log.info("Binding pollers to cpus {}, writers to cpus {}", Arrays.toString(pollerCpus), Arrays.toString(writerCpus));
+        }
+
+        // 类似于单例模式，同一时刻只能存在一个运行中的Net，上一个Net退出之后才能创建新的实例
+        if (!instanceFlag.compareAndSet(false, true)) {
+            throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+        }
+        // Poller与Writer的配置在各自的构造方法中校验，任何一个创建失败时都需要释放已经创建的mux，并允许重新创建Net
+        List<Poller> createdPollers = new ArrayList<>(pollerCount);
+        Mux createdMux = null;
+        try {
+            for (int i = 0; i < pollerCount; i++) {
+                createdPollers.add(new Poller(pollerConfig, pollerCpus == null ? -1 : pollerCpus[i]));
+            }
+            this.writers = IntStream.range(0, writerCount).mapToObj(i -> new Writer(writerConfig, writerCpus == null ? -1 : writerCpus[i])).toList();
+            createdMux = osNetworkLibrary.createMux(false);
+            this.mux = createdMux;
+            this.pollers = List.copyOf(createdPollers);
+            this.netThread = createNetThread(netConfig);
+        } catch (RuntimeException e) {
+            createdPollers.forEach(Poller::exitMux);
+            if (createdMux != null) {
+                osNetworkLibrary.exitMux(createdMux);
+            }
+            instanceFlag.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 计算count个线程各自绑定的CPU，第i个线程绑定至CPU列表中的第 (offset + i) % n 个，offset只在自动绑定时生效，
+     * CPU列表会先与allowed取交集，指定的CPU中不允许运行的部分会被忽略，交集为空时无法绑定任何线程
+     * @return affinity为null时返回null，表示不绑定
+     */
+    private static int[] assignCpus(String affinity, int count, int offset, Set<Integer> allowed) {
+        if (affinity == null) {
+            return null;
+        }
+        int[] cpus;
+        if (Constants.AFFINITY_AUTO.equals(affinity)) {
+            cpus = CpuTopology.spread(allowed);
+        } else {
+            int[] specified = CpuTopology.parse(affinity);
+            cpus = CpuTopology.filter(specified, allowed);
+            if (cpus.length < specified.length) {
+                log.warn("Ignoring cpus not allowed for current process in affinity : {}, allowed : {}", affinity, allowed);
+            }
+            offset = 0;
+        }
+        if (cpus.length == 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "No allowed cpu for affinity : %s", affinity);
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = cpus[(offset + i) % cpus.length];
+        }
+        return result;
+    }
+
+    /**
+     * 为每个Poller选择一个与之共享缓存并且允许运行的CPU作为配对Writer的CPU，已被Poller或之前的Writer占用的CPU不会被重复选择，
+     * 找不到可用的CPU时Writer与Poller绑定至同一个CPU
+     */
+    private static int[] pairCpus(int[] pollerCpus, Set<Integer> allowed) {
+        Set<Integer> used = new HashSet<>();
+        for (int cpu : pollerCpus) {
+            used.add(cpu);
+        }
+        int[] result = new int[pollerCpus.length];
+        for (int i = 0; i < pollerCpus.length; i++) {
+            result[i] = CpuTopology.sibling(pollerCpus[i], allowed, used);
+            used.add(result[i]);
+        }
+        return result;
     }
 
     @Override
     protected void doInit() {
         try (Mutex _ = state.withMutex()) {
-
+            if (!state.cas(INITIAL, RUNNING)) {
+                throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+            }
+            netThread.start();
+            pollers.forEach(poller -> poller.thread().start());
+            writers.forEach(writer -> writer.thread().start());
         }
     }
 
     @Override
     protected void doExit() throws InterruptedException {
         try (Mutex _ = state.withMutex()) {
-
+            if (!state.cas(RUNNING, STOPPED)) {
+                throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+            }
+            // 先停止net线程，避免在Poller退出之后仍有新的连接被分配给它们
+            netExiting = true;
+            netThread.join();
+            for (Poller poller : pollers) {
+                poller.submit(new PollerTask(PollerTaskType.EXIT, null, null));
+            }
+            for (Poller poller : pollers) {
+                poller.thread().join();
+            }
+            // Poller退出时提交的CLOSE任务会先于EXIT被Writer处理
+            for (Writer writer : writers) {
+                writer.submit(new WriterTask(WriterTaskType.EXIT, null, null));
+            }
+            for (Writer writer : writers) {
+                writer.thread().join();
+            }
+            // 所有线程退出之后才允许创建新的Net
+            instanceFlag.set(false);
         }
     }
 
     public void addListener(ListenerConfig listenerConfig) {
+        if (listenerConfig == null || listenerConfig.getIpType() == null || listenerConfig.getSocketConfig() == null || listenerConfig.getDispatchMode() == null) {
+            throw new NullPointerException();
+        }
+        if (listenerConfig.getEncoderSupplier() == null || listenerConfig.getDecoderSupplier() == null || listenerConfig.getHandlerSupplier() == null) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Encoder, decoder and handler supplier must be provided");
+        }
+        if (listenerConfig.getBacklog() <= 0 || listenerConfig.getAcceptBudget() <= 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid listener config");
+        }
+        Loc loc = new Loc(listenerConfig.getIpType(), listenerConfig.getIp(), listenerConfig.getPort());
         try (Mutex _ = state.withMutex()) {
             int current = state.get();
             if (current > RUNNING) {
-                throw new RuntimeException(Constants.UNREACHED);
+                throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+            }
+            if (listenerConfig.getSocketConfig().isReusePort() && bindReusePort(loc, listenerConfig)) {
+                return;
+            }
+            Socket socket = osNetworkLibrary.createSocket(loc.ipType());
+            try {
+                osNetworkLibrary.configureServerSocket(socket, loc, listenerConfig.getSocketConfig());
+                bindAndListen(socket, loc, listenerConfig.getBacklog());
+            } catch (RuntimeException e) {
+                osNetworkLibrary.closeSocket(socket);
+                throw e;
             }
+            // pollers与writers个数相同时两者的轮询下标始终一致，因此配对关系不会被打乱
+            acceptorQueue.offer(new Acceptor(socket, loc, listenerConfig, pollers, writers, 0));
+            log.info("Listening on {} with a single acceptor", loc);
         }
     }
 
-    private Thread createNetThread(NetConfig netConfig) {
-        return Thread.ofPlatform().unstarted(() -> {
+    /**
+     * 向loc发起非阻塞连接，连接建立并升级为TcpProtocol之后返回的future才会完成，此时Handler.onConnected()已经被调度，
+     * 连接失败时future以FrameworkException异常完成，future在虚拟线程中完成，其回调不会阻塞Poller线程，
+     * 需要同时连接大量地址时，可以先依次调用connect()再统一等待，所有的握手会在各个Poller中并行完成
+     */
+    public CompletableFuture<Channel> connect(Loc loc, ConnectorConfig connectorConfig) {
+        if (loc == null || loc.ipType() == null || connectorConfig == null || connectorConfig.getSocketConfig() == null || connectorConfig.getDispatchMode() == null) {
+            throw new NullPointerException();
+        }
+        if (connectorConfig.getEncoderSupplier() == null || connectorConfig.getDecoderSupplier() == null || connectorConfig.getHandlerSupplier() == null) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Encoder, decoder and handler supplier must be provided");
+        }
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        // 持有锁直到注册任务提交完成，保证Poller退出之前一定能处理到该任务
+        try (Mutex _ = state.withMutex()) {
+            if (state.get() != RUNNING) {
+                throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+            }
+            Socket socket = osNetworkLibrary.createSocket(loc.ipType());
+            Channel channel;
+            try {
+                int r = osNetworkLibrary.setNonBlocking(socket);
+                if (r < 0) {
+                    throw new FrameworkException(ExceptionType.NETWORK, "Failed to set O_NONBLOCK, errno : %d", Math.abs(r));
+                }
+                osNetworkLibrary.configureClientSocket(socket, connectorConfig.getSocketConfig());
+                try (Arena arena = Arena.ofConfined()) {
+                    r = osNetworkLibrary.connect(socket, osNetworkLibrary.createSockAddr(loc, arena));
+                }
+                if (r < 0 && Math.abs(r) != osNetworkLibrary.connectBlockCode()) {
+                    throw new FrameworkException(ExceptionType.NETWORK, "Failed to connect to %s, errno : %d", loc.toString(), Math.abs(r));
+                }
+                // 配对时pollers与writers个数相同，同一个序号选中的Poller与Writer正好互相配对
+                int sequence = connectSequence.getAndIncrement() & Integer.MAX_VALUE;
+                channel = new ChannelImpl(socket,
+                        connectorConfig.getEncoderSupplier().get(),
+                        connectorConfig.getDecoderSupplier().get(),
+                        connectorConfig.getHandlerSupplier().get(),
+                        pollers.get(sequence % pollers.size()),
+                        writers.get(sequence % writers.size()),
+                        loc);
+            } catch (RuntimeException e) {
+                osNetworkLibrary.closeSocket(socket);
+                future.completeExceptionally(e);
+                return future;
+            }
+            Runnable callback = () -> future.completeExceptionally(new FrameworkException(ExceptionType.NETWORK, "Failed to connect to %s", loc.toString()));
+            Runnable connectedCallback = () -> future.complete(channel);
+            SentryWithCallback sentryWithCallback = new SentryWithCallback(new TcpSentry(channel), callback, connectedCallback, connectorConfig.getDispatchMode());
+            channel.poller().submit(new PollerTask(PollerTaskType.REGISTER, channel, sentryWithCallback));
+        }
+        return future;
+    }
 
+    /**
+     * 为每个Poller创建一个开启了SO_REUSEPORT的监听socket
+     * @return 当前系统不支持SO_REUSEPORT时返回false，已经创建的socket会被全部关闭
+     */
+    private boolean bindReusePort(Loc loc, ListenerConfig listenerConfig) {
+        SocketConfig socketConfig = listenerConfig.getSocketConfig();
+        List<Socket> sockets = new ArrayList<>(pollers.size());
+        try {
+            for (int i = 0; i < pollers.size(); i++) {
+                Socket socket = osNetworkLibrary.createSocket(loc.ipType());
+                sockets.add(socket);
+                osNetworkLibrary.configureServerSocket(socket, loc, socketConfig);
+                int r = osNetworkLibrary.setReusePort(socket, true);
+                if (r < 0) {
+                    log.warn("SO_REUSEPORT is not available, errno : {}, fallback to single acceptor", Math.abs(r));
+                    sockets.forEach(osNetworkLibrary::closeSocket);
+                    return false;
+                }
+                bindAndListen(socket, loc, listenerConfig.getBacklog());
+            }
+        } catch (RuntimeException e) {
+            sockets.forEach(osNetworkLibrary::closeSocket);
+            throw e;
+        }
+        for (int i = 0; i < pollers.size(); i++) {
+            Poller poller = pollers.get(i);
+            Acceptor acceptor = new Acceptor(sockets.get(i), loc, listenerConfig, List.of(poller), paired ? List.of(writers.get(i)) : writers, i);
+            poller.submit(new PollerTask(PollerTaskType.BIND, null, acceptor));
+        }
+        log.info("Listening on {} with {} reuseport acceptors", loc, pollers.size());
+        return true;
+    }
+
+    private static void bindAndListen(Socket socket, Loc loc, int backlog) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment sockAddr = osNetworkLibrary.createSockAddr(loc, arena);
+            int r = osNetworkLibrary.bind(socket, sockAddr);
+            if (r < 0) {
+                throw new FrameworkException(ExceptionType.NETWORK, "Failed to bind %s, errno : %d", loc.toString(), Math.abs(r));
+            }
+        }
+        int r = osNetworkLibrary.listen(socket, backlog);
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to listen on %s, errno : %d", loc.toString(), Math.abs(r));
+        }
+    }
+
+    private boolean suspendAcceptor(Acceptor acceptor) {
+        int r = osNetworkLibrary.ctl(mux, acceptor.socket(), Constants.NET_R, Constants.NET_NONE);
+        if (r < 0) {
+            log.error("Failed to suspend listener {}, errno : {}", acceptor.loc(), Math.abs(r));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 重新接收成功后恢复可读事件的注册，剩余的连接由之后的通知继续接收
+     * @return 已经恢复时返回true
+     */
+    private boolean resumeAcceptor(Acceptor acceptor) {
+        if (acceptor.accept() == Acceptor.FAILED) {
+            return false;
+        }
+        int r = osNetworkLibrary.ctl(mux, acceptor.socket(), Constants.NET_NONE, Constants.NET_R);
+        if (r < 0) {
+            log.error("Failed to resume listener {}, errno : {}", acceptor.loc(), Math.abs(r));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * net线程只负责在不支持SO_REUSEPORT时接收新连接，未添加任何此类监听时会一直空转在多路复用的超时上
+     */
+    private Thread createNetThread(NetConfig netConfig) {
+        int maxEvents = netConfig.getMaxEvents();
+        int muxTimeout = netConfig.getMuxTimeout();
+        return Thread.ofPlatform().name("net").unstarted(() -> {
+            IntMap<Acceptor> acceptorMap = new IntMap<>(16);
+            // 因为accept()失败而暂时取消了可读事件注册的监听socket，在retryAt之后统一重新接收
+            List<Acceptor> suspended = new ArrayList<>();
+            long retryAt = 0L;
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment events = arena.allocateArray(osNetworkLibrary.eventLayout(), maxEvents);
+                while (!netExiting) {
+                    int timeout = suspended.isEmpty() ? muxTimeout : (int) Math.clamp(retryAt - System.currentTimeMillis(), 0L, muxTimeout);
+                    int count = osNetworkLibrary.muxWait(mux, events, maxEvents, timeout);
+                    if (count < 0) {
+                        int errno = Math.abs(count);
+                        if (errno != osNetworkLibrary.interruptCode()) {
+                            throw new FrameworkException(ExceptionType.NETWORK, "Mux wait failed with errno : %d", errno);
+                        }
+                        count = 0;
+                    }
+                    for (int index = 0; index < count; index++) {
+                        Acceptor acceptor = acceptorMap.get(osNetworkLibrary.eventSocket(events, index));
+                        // net线程使用水平触发，连接留在队列中时监听socket会一直可读，因此失败后需要暂时取消注册
+                        if (acceptor != null && acceptor.accept() == Acceptor.FAILED && suspendAcceptor(acceptor)) {
+                            if (suspended.isEmpty()) {
+                                retryAt = System.currentTimeMillis() + Acceptor.RETRY_DELAY;
+                            }
+                            suspended.add(acceptor);
+                        }
+                    }
+                    if (!suspended.isEmpty() && System.currentTimeMillis() >= retryAt) {
+                        suspended.removeIf(this::resumeAcceptor);
+                        retryAt = System.currentTimeMillis() + Acceptor.RETRY_DELAY;
+                    }
+                    Acceptor acceptor;
+                    while ((acceptor = acceptorQueue.poll()) != null) {
+                        int r = osNetworkLibrary.ctl(mux, acceptor.socket(), Constants.NET_NONE, Constants.NET_R);
+                        if (r < 0) {
+                            log.error("Failed to register listener {} to mux, errno : {}", acceptor.loc(), Math.abs(r));
+                            acceptor.close();
+                        } else {
+                            acceptorMap.put(acceptor.socket().intValue(), acceptor);
+                        }
+                    }
+                }
+            } finally {
+                acceptorMap.asList().forEach(Acceptor::close);
+                Acceptor acceptor;
+                while ((acceptor = acceptorQueue.poll()) != null) {
+                    acceptor.close();
+                }
+                osNetworkLibrary.exitMux(mux);
+            }
+            log.debug("Exiting net thread");
         });
     }
 }
@@ -3,9 +3,32 @@ package com.lei.network.loom.panama.core;
 /**
  * <p>
  * NetConfig
+ * 当前系统不支持SO_REUSEPORT时，所有监听socket都注册在net线程的多路复用中，由net线程统一接收新连接
  * </p>
  *
  * @author 伍磊
  */
 public final class NetConfig {
+
+    // net线程单次多路复用最多返回的事件个数
+    private int maxEvents = 16;
+
+    // net线程多路复用的超时时间，单位毫秒，同时也决定了新添加的监听socket生效的最大延迟
+    private int muxTimeout = 25;
+
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    public void setMaxEvents(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    public int getMuxTimeout() {
+        return muxTimeout;
+    }
+
+    public void setMuxTimeout(int muxTimeout) {
+        this.muxTimeout = muxTimeout;
+    }
 }
@@ -3,16 +3,34 @@ package com.lei.network.loom.panama.core;
 import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.library.Mux;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+import com.lei.network.loom.panama.library.Socket;
+import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.NativeUtil;
+import com.lei.network.loom.panama.util.RpMalloc;
+import com.lei.network.loom.panama.util.TimingWheel;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
  * Poller
+ * 每个Poller持有一个只在Poller线程中使用的时间轮，用于空闲连接、Sentry握手与写阻塞的超时检查，
+ * 多路复用等待的超时时间不会超过距离时间轮下一个刻度的时间，每轮事件处理之后推进时间轮，因此不需要额外的定时线程，
+ * 使用io_uring时上一轮中产生的注册修改会在muxWait()中与等待一起提交，ctl()本身不会产生系统调用，
+ * 开启了spinTime时，Poller在收到事件之后的一段时间内以不等待的方式持续轮询，期间每轮之间只调用Thread.onSpinWait()，超时之后才退回到阻塞等待，
+ * 开启了uringRecv时，连接升级为Protocol之后由内核直接接收数据，Poller收到的是已经携带数据的NET_RECV事件，数据所在的缓冲区在下一次muxWait()时归还
  * </p>
  *
  * @author 伍磊
@@ -21,11 +39,66 @@ public final class Poller {
 
     private static final Logger log = LoggerFactory.getLogger(Poller.class);
     private static final AtomicInteger counter = new AtomicInteger(0);
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
 
+    private final Mux mux;
     private final Thread pollerThread;
     private final Queue<PollerTask> readerTaskQueue = new MpscUnboundedAtomicArrayQueue<>(1024);
+    private final PollerStats stats = new PollerStats();
+    private final int maxFrameSize;
+    // 是否使用io_uring的缓冲区环接收数据
+    private final boolean uringRecv;
+    // 每次可读事件最多调用recv()的次数，水平触发模式下固定为1，剩余的数据由下一次可读事件继续处理
+    private final int readBudget;
+    private final long idleTimeout;
+    private final long handshakeTimeout;
+    private final long writeTimeout;
+    // 自旋轮询的时长，单位纳秒，为0表示不自旋
+    private final long spinNanos;
+    // 绑定的CPU，为-1表示不绑定
+    private final int cpu;
+    // 以下两个字段只在Poller线程中访问
+    private final TimingWheel timingWheel;
+    // 最近一次多路复用等待返回时的时间，单位毫秒
+    private long now;
 
     public Poller(PollerConfig pollerConfig) {
+        this(pollerConfig, -1);
+    }
+
+    /**
+     * @param cpu Poller线程启动时绑定的CPU，为-1表示不绑定
+     */
+    public Poller(PollerConfig pollerConfig, int cpu) {
+        if (pollerConfig.getMaxEvents() <= 0 || pollerConfig.getReadBufferSize() <= 0 || pollerConfig.getMaxFrameSize() <= 0 || pollerConfig.getMuxTimeout() < 0 || pollerConfig.getReadBudget() <= 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid poller config");
+        }
+        if (Integer.bitCount(pollerConfig.getWheelSize()) != 1 || pollerConfig.getTickMillis() <= 0 || pollerConfig.getIdleTimeout() < 0 || pollerConfig.getHandshakeTimeout() < 0 || pollerConfig.getWriteTimeout() < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid poller timeout config");
+        }
+        if (pollerConfig.isIoUring() && (!pollerConfig.isEdgeTriggered() || pollerConfig.getUringEntries() <= 0)) {
+            throw new FrameworkException(ExceptionType.NETWORK, "io_uring poller requires edge triggered mode and positive uring entries");
+        }
+        if (pollerConfig.getSpinTime() < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid poller spin time");
+        }
+        if (pollerConfig.isUringRecv() && !pollerConfig.isIoUring()) {
+            throw new FrameworkException(ExceptionType.NETWORK, "uring recv requires io_uring poller");
+        }
+        this.uringRecv = pollerConfig.isUringRecv();
+        this.mux = pollerConfig.isIoUring() ? osNetworkLibrary.createUringMux(pollerConfig.getUringEntries(), uringRecv ? pollerConfig.getUringBufferCount() : 0, pollerConfig.getUringBufferSize()) : osNetworkLibrary.createMux(pollerConfig.isEdgeTriggered());
+        this.maxFrameSize = pollerConfig.getMaxFrameSize();
+        this.readBudget = pollerConfig.isEdgeTriggered() ? pollerConfig.getReadBudget() : 1;
+        this.idleTimeout = pollerConfig.getIdleTimeout();
+        this.handshakeTimeout = pollerConfig.getHandshakeTimeout();
+        this.writeTimeout = pollerConfig.getWriteTimeout();
+        this.spinNanos = TimeUnit.MICROSECONDS.toNanos(pollerConfig.getSpinTime());
+        if (spinNanos > 0 && NativeUtil.getCpuCores() < 2) {
+            log.warn("Poller spinning on a single core will delay writer and handler threads");
+        }
+        this.cpu = cpu;
+        this.now = System.currentTimeMillis();
+        this.timingWheel = new TimingWheel(pollerConfig.getWheelSize(), pollerConfig.getTickMillis(), now);
         this.pollerThread = createPollerThread(pollerConfig);
     }
 
@@ -33,6 +106,128 @@ public final class Poller {
         return pollerThread;
     }
 
+    public Mux mux() {
+        return mux;
+    }
+
+    /**
+     * 释放构造时创建的mux，只能在Poller线程启动之前调用，用于Net创建失败时的清理
+     */
+    void exitMux() {
+        osNetworkLibrary.exitMux(mux);
+    }
+
+    public PollerStats stats() {
+        return stats;
+    }
+
+    /**
+     * 只能在Poller线程中调用
+     */
+    TimingWheel timingWheel() {
+        return timingWheel;
+    }
+
+    /**
+     * 只能在Poller线程中调用，返回缓存的当前时间，精度为一轮事件循环
+     */
+    long now() {
+        return now;
+    }
+
+    long idleTimeout() {
+        return idleTimeout;
+    }
+
+    long handshakeTimeout() {
+        return handshakeTimeout;
+    }
+
+    long writeTimeout() {
+        return writeTimeout;
+    }
+
+    boolean uringRecv() {
+        return uringRecv;
+    }
+
+    /**
+     * 开启uringRecv时，将socket之后注册的可读事件替换为由内核直接接收数据，必须在Poller线程中，并且在注册可读事件之前调用
+     * @return 是否开启了接收模式
+     */
+    boolean receive(Socket socket) {
+        if (!uringRecv) {
+            return false;
+        }
+        mux.uring().receive(socket.intValue());
+        return true;
+    }
+
+    /**
+     * 修改socket在当前Poller的多路复用中注册的事件，可能在Poller或Writer线程中被调用
+     * @return 成功返回0，失败返回负数形式的 errno
+     */
+    public int ctl(Socket socket, int from, int to) {
+        stats.onCtl();
+        return osNetworkLibrary.ctl(mux, socket, from, to);
+    }
+
+    /**
+     * 将socket的注册状态修改为expected，channelState中记录着当前已注册的状态，状态没有变化时不会调用epoll_ctl()，
+     * expected为NET_PR、NET_PW时表示在当前状态的基础上追加可读或可写事件，必须在持有channelState互斥锁的情况下调用
+     * @return 成功返回0，失败返回负数形式的 errno，失败时channelState保持不变
+     */
+    public int ctl(Socket socket, State channelState, int expected) {
+        if (expected == Constants.NET_PR) {
+            return register(socket, channelState, Constants.NET_R);
+        } else if (expected == Constants.NET_PW) {
+            return register(socket, channelState, Constants.NET_W);
+        }
+        int current = channelState.get();
+        if (current == expected) {
+            stats.onCtlSkipped();
+            return 0;
+        }
+        int r = ctl(socket, current, expected);
+        if (r == 0) {
+            channelState.set(expected);
+        }
+        return r;
+    }
+
+    /**
+     * 追加mask对应的事件，已经注册时直接返回，必须在持有channelState互斥锁的情况下调用
+     */
+    public int register(Socket socket, State channelState, int mask) {
+        int current = channelState.get();
+        if ((current & mask) == mask) {
+            stats.onCtlSkipped();
+            return 0;
+        }
+        channelState.register(mask);
+        int r = ctl(socket, current, channelState.get());
+        if (r < 0) {
+            channelState.set(current);
+        }
+        return r;
+    }
+
+    /**
+     * 取消mask对应的事件，全部取消后socket会从多路复用中移除，没有注册时直接返回，必须在持有channelState互斥锁的情况下调用
+     */
+    public int unregister(Socket socket, State channelState, int mask) {
+        int current = channelState.get();
+        if (!channelState.unregister(mask)) {
+            stats.onCtlSkipped();
+            return 0;
+        }
+        int r = ctl(socket, current, channelState.get());
+        if (r < 0) {
+            channelState.set(current);
+        }
+        return r;
+    }
+
     public void submit(PollerTask pollerTask) {
         if (pollerTask == null || !readerTaskQueue.offer(pollerTask)) {
             throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
@@ -43,13 +238,207 @@ public final class Poller {
     private Thread createPollerThread(PollerConfig pollerConfig) {
         int sequence = counter.getAndIncrement();
         return Thread.ofPlatform().name(STR."poller-\{sequence}").unstarted(() -> {
-            for (; ; ) {
-                // 多路复用监听
+            // 先绑定CPU，之后再初始化rpmalloc的线程缓存，使读缓冲区在首次访问时分配在当前CPU所在的NUMA节点上
+            if (cpu >= 0) {
+                int r = osNetworkLibrary.setAffinity(cpu);
+                if (r < 0) {
+                    log.warn("Failed to bind poller-{} to cpu {}, errno : {}", sequence, cpu, Math.abs(r));
+                }
+            }
+            int maxEvents = pollerConfig.getMaxEvents();
+            int muxTimeout = pollerConfig.getMuxTimeout();
+            // 读缓冲区向上取整为内存页大小的整数倍
+            long pageSize = RpMalloc.pageSize();
+            int readBufferSize = (int) ((pollerConfig.getReadBufferSize() + pageSize - 1) & -pageSize);
+            IntMap<PollerNode> nodeMap = new IntMap<>(pollerConfig.getMapSize());
+            // 边缘触发模式下因为用完了读取额度而没有读完的节点，当前轮次与下一轮次交替使用
+            List<PollerNode> pendingNodes = new ArrayList<>();
+            List<PollerNode> retryNodes = new ArrayList<>();
+            // 事件数组与读缓冲区在线程启动时一次性分配并在整个生命周期内复用，事件循环中不会再产生任何内存申请
+            // 读缓冲区以及连接上暂存的读数据都通过当前线程的rpmalloc缓存申请，
+            // 读缓冲区由该Poller上的所有连接共用，起始地址按页对齐，使得内核拷贝数据时从页边界开始，连接只在出现半包时才持有自己的暂存区
+            RpMalloc.tInitialize();
+            MemorySegment reserved = RpMalloc.alignedMalloc(pageSize, readBufferSize);
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment events = arena.allocateArray(osNetworkLibrary.eventLayout(), maxEvents);
+                // 自旋轮询的截止时间，单位纳秒
+                long spinDeadline = 0L;
+                for (; ; ) {
+                    // 多路复用监听
+                    // 存在没有读完的连接时不能阻塞，边缘触发不会为这些已经就绪的数据再次通知，自旋期间同样不阻塞
+                    boolean spinning = spinNanos > 0 && System.nanoTime() - spinDeadline < 0;
+                    int count = osNetworkLibrary.muxWait(mux, events, maxEvents, pendingNodes.isEmpty() && !spinning ? waitTimeout(muxTimeout) : 0);
+                    now = System.currentTimeMillis();
+                    stats.onMuxWait();
+                    if (count < 0) {
+                        int errno = Math.abs(count);
+                        if (errno != osNetworkLibrary.interruptCode()) {
+                            throw new FrameworkException(ExceptionType.NETWORK, "Mux wait failed with errno : %d", errno);
+                        }
+                        count = 0;
+                    }
+                    for (int index = 0; index < count; index++) {
+                        accessEvent(nodeMap, events, index, reserved, readBufferSize, pendingNodes);
+                    }
+                    if (!pendingNodes.isEmpty()) {
+                        List<PollerNode> list = pendingNodes;
+                        pendingNodes = retryNodes;
+                        retryNodes = list;
+                        retryPending(retryNodes, pendingNodes, reserved, readBufferSize);
+                    }
+
+                    // 触发到期的超时任务
+                    timingWheel.advance(now);
 
-                // 队列事件处理
+                    // 队列事件处理
+                    if (processTasks(nodeMap)) {
+                        break;
+                    }
+
+                    // 每次收到事件都会顺延自旋的截止时间，一直没有事件时在截止之后退回到阻塞等待
+                    if (spinNanos > 0) {
+                        if (count > 0 || !pendingNodes.isEmpty()) {
+                            spinDeadline = System.nanoTime() + spinNanos;
+                        } else if (spinning) {
+                            stats.onSpin();
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+            } finally {
+                osNetworkLibrary.exitMux(mux);
+                RpMalloc.free(reserved);
+                RpMalloc.tFinalize();
             }
+            log.debug("Exiting poller-{}", sequence);
         });
     }
 
+    /**
+     * 时间轮中存在任务时，等待时间不超过距离下一个刻度的时间
+     */
+    private int waitTimeout(int muxTimeout) {
+        long delay = timingWheel.nextDelay(now);
+        return delay < 0 ? muxTimeout : (int) Math.min(delay, muxTimeout);
+    }
+
+    private void accessEvent(IntMap<PollerNode> nodeMap, MemorySegment events, int index, MemorySegment reserved, int len, List<PollerNode> pendingNodes) {
+        int socket = osNetworkLibrary.eventSocket(events, index);
+        PollerNode pollerNode = nodeMap.get(socket);
+        if (pollerNode == null) {
+            // 连接已经在本轮之前被移除
+            return;
+        }
+        int event = osNetworkLibrary.eventType(events, index);
+        if (event == Constants.NET_RECV) {
+            pollerNode.onReceivedEvent(osNetworkLibrary.eventBuffer(mux, events, index), osNetworkLibrary.eventReceived(events, index));
+            return;
+        }
+        boolean writable = (event & Constants.NET_W) == Constants.NET_W;
+        if (event == Constants.NET_OTHER || (event & Constants.NET_R) == Constants.NET_R) {
+            // 已经处于待读取列表中的节点不需要重复添加
+            boolean pending = pollerNode.readPending();
+            pollerNode.onReadableEvent(reserved, len);
+            if (mux.edgeTriggered() && !pending && pollerNode.readPending()) {
+                pendingNodes.add(pollerNode);
+            }
+            if (!writable) {
+                return;
+            }
+            // 读事件的处理过程中，连接可能已经被关闭或是由Sentry升级为了Protocol，因此需要重新获取
+            pollerNode = nodeMap.get(socket);
+            if (pollerNode == null) {
+                return;
+            }
+        }
+        if (writable) {
+            pollerNode.onWritableEvent();
+        }
+    }
+
+    /**
+     * 再次读取上一轮没有读完的节点，连接被关闭或是在本轮的可读事件中已经读完时，readPending()会返回false
+     */
+    private void retryPending(List<PollerNode> retryNodes, List<PollerNode> pendingNodes, MemorySegment reserved, int len) {
+        for (PollerNode pollerNode : retryNodes) {
+            if (pollerNode.readPending()) {
+                pollerNode.onReadableEvent(reserved, len);
+                if (pollerNode.readPending()) {
+                    pendingNodes.add(pollerNode);
+                }
+            }
+        }
+        retryNodes.clear();
+    }
+
+    /**
+     * 处理任务队列中积压的所有任务
+     * @return 是否需要退出当前Poller线程
+     */
+    private boolean processTasks(IntMap<PollerNode> nodeMap) {
+        for (; ; ) {
+            PollerTask pollerTask = readerTaskQueue.poll();
+            if (pollerTask == null) {
+                return false;
+            }
+            switch (pollerTask.type()) {
+                case REGISTER -> handleRegisterTask(nodeMap, pollerTask);
+                case BIND -> handleBindTask(nodeMap, pollerTask);
+                case CLOSE -> handleCloseTask(nodeMap, pollerTask);
+                case WRITE_BLOCKED -> handleWriteBlockedTask(nodeMap, pollerTask);
+                case EXIT -> {
+                    handleExitTask(nodeMap);
+                    return true;
+                }
+            }
+        }
+    }
+
+    private void handleRegisterTask(IntMap<PollerNode> nodeMap, PollerTask pollerTask) {
+        Channel channel = pollerTask.channel();
+        if (!(pollerTask.msg() instanceof SentryWithCallback(Sentry sentry, Runnable callback, Runnable connectedCallback, DispatchMode dispatchMode))) {
+            throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+        }
+        SentryPollerNode sentryPollerNode = new SentryPollerNode(nodeMap, channel, sentry, callback, connectedCallback, maxFrameSize, readBudget, dispatchMode);
+        nodeMap.put(channel.socket().intValue(), sentryPollerNode);
+        int r = ctl(channel.socket(), Constants.NET_NONE, Constants.NET_W);
+        if (r < 0) {
+            log.error("Failed to register socket {} to mux, errno : {}", channel.socket().intValue(), Math.abs(r));
+            sentryPollerNode.onCloseEvent();
+        }
+    }
+
+    private void handleBindTask(IntMap<PollerNode> nodeMap, PollerTask pollerTask) {
+        if (!(pollerTask.msg() instanceof Acceptor acceptor)) {
+            throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+        }
+        ListenerPollerNode listenerPollerNode = new ListenerPollerNode(this, nodeMap, acceptor);
+        nodeMap.put(acceptor.socket().intValue(), listenerPollerNode);
+        int r = ctl(acceptor.socket(), Constants.NET_NONE, Constants.NET_R);
+        if (r < 0) {
+            log.error("Failed to register listener {} to mux, errno : {}", acceptor.loc(), Math.abs(r));
+            listenerPollerNode.onCloseEvent();
+        }
+    }
+
+    private void handleCloseTask(IntMap<PollerNode> nodeMap, PollerTask pollerTask) {
+        PollerNode pollerNode = nodeMap.get(pollerTask.channel().socket().intValue());
+        if (pollerNode != null) {
+            pollerNode.onCloseEvent();
+        }
+    }
+
+    private void handleWriteBlockedTask(IntMap<PollerNode> nodeMap, PollerTask pollerTask) {
+        PollerNode pollerNode = nodeMap.get(pollerTask.channel().socket().intValue());
+        if (pollerNode != null) {
+            pollerNode.onWriteBlocked();
+        }
+    }
+
+    private void handleExitTask(IntMap<PollerNode> nodeMap) {
+        for (PollerNode pollerNode : nodeMap.asList()) {
+            pollerNode.onCloseEvent();
+        }
+    }
 
 }
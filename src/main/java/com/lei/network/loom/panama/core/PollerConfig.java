@@ -1,5 +1,6 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.util.NativeUtil;
 
 /**
@@ -13,6 +14,65 @@ public final class PollerConfig {
 
     private int pollerCount = Math.max(NativeUtil.getCpuCores() >> 1, 4);
 
+    // 每个Poller中IntMap的初始容量，必须为2的幂
+    private int mapSize = 16 * Constants.KB;
+
+    // 单次多路复用等待最多收割的事件个数，越大则高并发下的系统调用次数越少，但单轮事件处理的耗时也越长
+    private int maxEvents = Constants.KB;
+
+    // 多路复用等待的超时时间，单位毫秒，同时也决定了在没有任何IO事件时，任务队列的最大处理延迟
+    private int muxTimeout = 25;
+
+    // 每个Poller线程预留的读缓冲区大小，会向上取整为内存页大小的整数倍，由该Poller上的所有连接共用
+    private int readBufferSize = 64 * Constants.KB;
+
+    // 单个连接上允许积压的最大未解码字节数，即单帧数据的最大长度，超过后连接会被关闭，防止对端长时间占用大量的堆外内存
+    private int maxFrameSize = 4 * Constants.MB;
+
+    // 是否使用边缘触发，开启后连接升级为Protocol时一次性注册读写事件，之后不再修改，发送缓冲区满时也不需要额外调用epoll_ctl()
+    private boolean edgeTriggered = false;
+
+    // 边缘触发模式下单个连接每次可读时最多调用recv()的次数，用完后剩余的数据会在下一轮事件循环中继续读取，避免单个连接长时间占用Poller线程
+    private int readBudget = 16;
+
+    // 是否使用io_uring代替epoll，仅Linux支持且必须同时开启边缘触发，一轮事件循环中产生的所有注册修改会与等待合并为一次io_uring_enter()
+    private boolean ioUring = false;
+
+    // io_uring提交队列的长度，即单次系统调用最多可以提交的请求个数
+    private int uringEntries = 4 * Constants.KB;
+
+    // io_uring下是否使用缓冲区环接收数据，开启后连接的可读事件由multishot的recv请求代替，数据由内核直接接收至Poller共享的缓冲区中，省去了每次可读之后的recv()系统调用
+    private boolean uringRecv = false;
+
+    // 缓冲区环中缓冲区的个数，必须为2的幂且不超过32768，所有缓冲区都被占用时recv请求会暂停，直到缓冲区被归还
+    private int uringBufferCount = Constants.KB;
+
+    // 缓冲区环中单个缓冲区的大小，每个Poller的读内存固定为uringBufferCount * uringBufferSize，与连接个数无关
+    private int uringBufferSize = 16 * Constants.KB;
+
+    // 最近一次收到事件之后，Poller以不等待的方式持续轮询的时长，单位微秒，超过后才退回到阻塞等待，为0表示不自旋，
+    // 自旋期间Poller线程会占满一个CPU核心，换取更低的唤醒延迟，适用于延迟敏感并且独占核心的场景
+    private long spinTime = 0L;
+
+    // Poller线程绑定的CPU列表，格式为cpulist，例如"0-3,8"，第i个Poller绑定至列表中的第 i % n 个CPU，
+    // 为"auto"时按NUMA节点交错分布至不同的物理核心上，为null时不绑定，由操作系统自由调度
+    private String affinity = null;
+
+    // 每个Poller中时间轮的槽位个数，必须为2的幂
+    private int wheelSize = 512;
+
+    // 时间轮每个刻度的长度，单位毫秒，即各类超时的检查精度
+    private long tickMillis = 100L;
+
+    // 连接在该时间内没有接收到任何数据时会被关闭，单位毫秒，为0表示不检查，用于及时释放大量空闲连接占用的文件描述符与内存
+    private long idleTimeout = 0L;
+
+    // 连接建立后完成Sentry阶段的最长时间，单位毫秒，对于客户端连接即为连接超时，为0表示不检查
+    private long handshakeTimeout = 10 * 1000L;
+
+    // 发送缓冲区持续已满的最长时间，单位毫秒，超过后说明对端长时间没有读取数据，连接会被关闭，为0表示不检查
+    private long writeTimeout = 0L;
+
     public int getPollerCount() {
         return pollerCount;
     }
@@ -20,4 +80,156 @@ public final class PollerConfig {
     public void setPollerCount(int pollerCount) {
         this.pollerCount = pollerCount;
     }
+
+    public int getMapSize() {
+        return mapSize;
+    }
+
+    public void setMapSize(int mapSize) {
+        this.mapSize = mapSize;
+    }
+
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    public void setMaxEvents(int maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    public int getMuxTimeout() {
+        return muxTimeout;
+    }
+
+    public void setMuxTimeout(int muxTimeout) {
+        this.muxTimeout = muxTimeout;
+    }
+
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public void setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public boolean isEdgeTriggered() {
+        return edgeTriggered;
+    }
+
+    public void setEdgeTriggered(boolean edgeTriggered) {
+        this.edgeTriggered = edgeTriggered;
+    }
+
+    public int getReadBudget() {
+        return readBudget;
+    }
+
+    public void setReadBudget(int readBudget) {
+        this.readBudget = readBudget;
+    }
+
+    public boolean isIoUring() {
+        return ioUring;
+    }
+
+    public void setIoUring(boolean ioUring) {
+        this.ioUring = ioUring;
+    }
+
+    public int getUringEntries() {
+        return uringEntries;
+    }
+
+    public void setUringEntries(int uringEntries) {
+        this.uringEntries = uringEntries;
+    }
+
+    public boolean isUringRecv() {
+        return uringRecv;
+    }
+
+    public void setUringRecv(boolean uringRecv) {
+        this.uringRecv = uringRecv;
+    }
+
+    public int getUringBufferCount() {
+        return uringBufferCount;
+    }
+
+    public void setUringBufferCount(int uringBufferCount) {
+        this.uringBufferCount = uringBufferCount;
+    }
+
+    public int getUringBufferSize() {
+        return uringBufferSize;
+    }
+
+    public void setUringBufferSize(int uringBufferSize) {
+        this.uringBufferSize = uringBufferSize;
+    }
+
+    public long getSpinTime() {
+        return spinTime;
+    }
+
+    public void setSpinTime(long spinTime) {
+        this.spinTime = spinTime;
+    }
+
+    public String getAffinity() {
+        return affinity;
+    }
+
+    public void setAffinity(String affinity) {
+        this.affinity = affinity;
+    }
+
+    public int getWheelSize() {
+        return wheelSize;
+    }
+
+    public void setWheelSize(int wheelSize) {
+        this.wheelSize = wheelSize;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    public void setTickMillis(long tickMillis) {
+        this.tickMillis = tickMillis;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getHandshakeTimeout() {
+        return handshakeTimeout;
+    }
+
+    public void setHandshakeTimeout(long handshakeTimeout) {
+        this.handshakeTimeout = handshakeTimeout;
+    }
+
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(long writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
 }
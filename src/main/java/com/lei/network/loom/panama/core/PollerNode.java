@@ -9,18 +9,48 @@ import java.lang.foreign.MemorySegment;
  *
  * @author 伍磊
  */
-public sealed interface PollerNode permits SentryPollerNode, ProtocolPollerNode {
+public sealed interface PollerNode permits SentryPollerNode, ProtocolPollerNode, ListenerPollerNode {
 
     /**
      * 可读事件的处理回调
-     * @param reserved
-     * @param len
+     * @param reserved Poller线程独享的读缓冲区，起始地址按内存页对齐，该Poller上的所有连接都直接recv()至这同一块内存中，
+     *                 其中的数据只在本次回调中有效，回调返回之后就会被下一个连接覆盖，需要保留的数据必须拷贝至连接自身的暂存区
+     * @param len      reserved的可用长度，为内存页大小的整数倍
      */
     void onReadableEvent(MemorySegment reserved, int len);
 
+    /**
+     * io_uring接收模式下的可读事件处理回调，数据已经由内核接收至缓冲区环中，回调返回之后缓冲区仍然有效，直到下一次多路复用等待时被归还，
+     * 因此需要保留的数据必须在此之前拷贝，只有ProtocolPollerNode会开启接收模式
+     * @param data     接收到的数据
+     * @param received 接收到的字节数，为0时表示对端已经关闭了连接，失败时为负数形式的 errno
+     */
+    default void onReceivedEvent(MemorySegment data, int received) {
+
+    }
+
     /**
      * 可写事件的处理回调
      */
     void onWritableEvent();
 
+    /**
+     * 由Poller任务队列触发的关闭回调
+     */
+    void onCloseEvent();
+
+    /**
+     * 由Poller任务队列触发，Writer因发送缓冲区已满开始等待，只有ProtocolPollerNode需要处理
+     */
+    default void onWriteBlocked() {
+
+    }
+
+    /**
+     * 边缘触发模式下，上一次可读事件的处理是否因为用完了额度而没有把数据读完，为true时Poller会在下一轮事件循环中主动再次调用onReadableEvent()
+     */
+    default boolean readPending() {
+        return false;
+    }
+
 }
@@ -0,0 +1,83 @@
+package com.lei.network.loom.panama.core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * PollerStats
+ * 记录单个Poller相关的系统调用次数，只用于监控与压测，
+ * muxWait、spin、recv与timeout只会在Poller线程中累加，其他线程读取时可能不是最新的值，ctl在Poller与Writer线程中都会发生，因此使用LongAdder
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class PollerStats {
+
+    private long muxWait = 0L;
+
+    // 自旋期间没有获取到任何事件的轮询次数
+    private long spin = 0L;
+
+    private long recv = 0L;
+
+    // 因空闲、握手或写超时而被关闭的连接数
+    private long timeout = 0L;
+
+    private final LongAdder ctl = new LongAdder();
+
+    // 注册状态没有变化而被省略的epoll_ctl()调用
+    private final LongAdder ctlSkipped = new LongAdder();
+
+    void onMuxWait() {
+        muxWait++;
+    }
+
+    void onSpin() {
+        spin++;
+    }
+
+    void onRecv() {
+        recv++;
+    }
+
+    void onTimeout() {
+        timeout++;
+    }
+
+    void onCtl() {
+        ctl.increment();
+    }
+
+    void onCtlSkipped() {
+        ctlSkipped.increment();
+    }
+
+    public long muxWait() {
+        return muxWait;
+    }
+
+    public long spin() {
+        return spin;
+    }
+
+    public long recv() {
+        return recv;
+    }
+
+    public long timeout() {
+        return timeout;
+    }
+
+    public long ctl() {
+        return ctl.sum();
+    }
+
+    public long ctlSkipped() {
+        return ctlSkipped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return STR."muxWait=\{muxWait}, spin=\{spin}, recv=\{recv}, timeout=\{timeout}, ctl=\{ctl()}, ctlSkipped=\{ctlSkipped()}";
+    }
+}
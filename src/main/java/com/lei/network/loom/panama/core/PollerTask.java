@@ -1,4 +1,14 @@
 package com.lei.network.loom.panama.core;
 
-public record PollerTask(PollerTaskType type) {
+import com.lei.network.loom.panama.handler.Channel;
+
+/**
+ * <p>
+ * PollerTask
+ * 由其他线程提交给Poller线程执行的任务，channel和msg的具体含义由type决定
+ * </p>
+ *
+ * @author 伍磊
+ */
+public record PollerTask(PollerTaskType type, Channel channel, Object msg) {
 }
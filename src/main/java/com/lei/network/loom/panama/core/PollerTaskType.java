@@ -8,4 +8,14 @@ package com.lei.network.loom.panama.core;
  * @author 伍磊
  */
 public enum PollerTaskType {
+    // 注册一个新建立的连接，msg为SentryWithCallback
+    REGISTER,
+    // 注册一个开启了SO_REUSEPORT的监听socket，msg为Acceptor
+    BIND,
+    // 关闭指定的连接
+    CLOSE,
+    // Writer因发送缓冲区已满开始等待，Poller需要开始检查指定连接的写超时
+    WRITE_BLOCKED,
+    // 关闭所有连接并退出Poller线程
+    EXIT
 }
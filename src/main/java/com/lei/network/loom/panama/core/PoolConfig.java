@@ -0,0 +1,55 @@
+package com.lei.network.loom.panama.core;
+
+/**
+ * <p>
+ * PoolConfig
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class PoolConfig {
+
+    // 每个后端地址保持的连接个数
+    private int connectionsPerLoc = 4;
+
+    // 每个后端地址所有连接上积压的消息总数上限，超过时select()不再返回任何连接，避免慢节点积压无限的内存
+    private int maxPendingPerLoc = 4096;
+
+    // 连续建立连接失败的次数达到该值时，后端地址会被暂时剔除
+    private int maxFailures = 3;
+
+    // 后端地址被剔除的时长，单位毫秒，到期后的下一次select()会重新尝试建立连接
+    private long ejectTime = 5000L;
+
+    public int getConnectionsPerLoc() {
+        return connectionsPerLoc;
+    }
+
+    public void setConnectionsPerLoc(int connectionsPerLoc) {
+        this.connectionsPerLoc = connectionsPerLoc;
+    }
+
+    public int getMaxPendingPerLoc() {
+        return maxPendingPerLoc;
+    }
+
+    public void setMaxPendingPerLoc(int maxPendingPerLoc) {
+        this.maxPendingPerLoc = maxPendingPerLoc;
+    }
+
+    public int getMaxFailures() {
+        return maxFailures;
+    }
+
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    public long getEjectTime() {
+        return ejectTime;
+    }
+
+    public void setEjectTime(long ejectTime) {
+        this.ejectTime = ejectTime;
+    }
+}
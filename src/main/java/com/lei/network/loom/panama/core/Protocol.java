@@ -12,12 +12,29 @@ import java.lang.foreign.MemorySegment;
  */
 public interface Protocol {
 
+    /**
+     * 将数据接收至Poller共享的读缓冲区中，reserved的使用约定与{@link PollerNode#onReadableEvent(MemorySegment, int)}相同
+     * @return 接收到的字节数，为0时表示对端已经关闭了连接，没有数据可读时返回NET_IGNORED
+     */
     int onReadableEvent(MemorySegment reserved, int len);
 
     int onWritableEvent();
 
     int doWrite(MemorySegment data, int len);
 
+    /**
+     * 将iovec数组中的多个内存块一次性发送，返回值的含义与doWrite()相同
+     */
+    long doWritev(MemorySegment ioVecs, int count);
+
+    /**
+     * 由Poller线程在检查写超时时调用
+     * @return 发送缓冲区开始持续已满的时间，没有阻塞时返回-1，此时Poller停止检查，之后再次阻塞时会重新提交WRITE_BLOCKED任务
+     */
+    default long writeBlockedSince() {
+        return -1L;
+    }
+
     void doShutdown();
 
     void doClose();
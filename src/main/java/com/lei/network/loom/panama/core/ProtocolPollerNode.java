@@ -1,18 +1,31 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.buffer.ByteView;
+import com.lei.network.loom.panama.buffer.ReadBuffer;
 import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
 import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.library.Mux;
 import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.RpMalloc;
+import com.lei.network.loom.panama.util.TimingWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * <p>
  * ProtocolPollerNode
+ * 接收到的数据会直接在Poller的读缓冲区上解码，只有当一帧数据被拆分在多次读取中时，才会将未读完的尾部拷贝至当前连接独享的暂存区，
+ * 之后读取到的数据追加在暂存区的末尾一起解码，暂存区的数据被全部消费后立即释放，因此空闲连接不会占用任何读内存，
+ * 空闲超时与写超时都登记在Poller的时间轮中，读取数据时只更新lastRead，由超时任务在触发时判断是否需要顺延，因此读路径上没有任何时间轮操作，
+ * 写超时只在Writer提交WRITE_BLOCKED任务之后才开始检查，两种超时都复用各自的Timeout对象，
+ * io_uring接收模式下数据由内核直接接收至缓冲区环中，解码的过程与读缓冲区完全相同，只是不再需要调用recv()
  * </p>
  *
  * @author 伍磊
@@ -29,27 +42,101 @@ public final class ProtocolPollerNode implements PollerNode {
 
     private final State channelState;
 
-    public ProtocolPollerNode(IntMap<PollerNode> nodeMap, Channel channel, Protocol protocol, State channelState) {
+    // 暂存区中允许积压的最大未解码字节数，超过时说明对端发送的单帧数据过大，直接关闭连接
+    private final int maxFrameSize;
+
+    // 每次可读事件最多调用recv()的次数
+    private final int readBudget;
+
+    // DispatchMode.INLINE模式下为null
+    private final Mailbox mailbox;
+
+    // 暂存区，有效数据位于[tempStart, tempEnd)，为null表示没有积压的数据
+    private MemorySegment tempBuffer = null;
+    private long tempStart = 0L;
+    private long tempEnd = 0L;
+
+    // 上一次可读事件是否用完了读取额度
+    private boolean readPending = false;
+
+    // 是否开启了io_uring接收模式，开启后可读事件由onReceivedEvent()处理
+    private final boolean receiving;
+
+    private boolean closed = false;
+
+    // 空闲超时，未开启时为null
+    private final TimingWheel.Timeout idleTimeout;
+
+    // 最近一次接收到数据的时间
+    private long lastRead;
+
+    // 写超时，第一次阻塞时创建
+    private TimingWheel.Timeout writeTimeout = null;
+
+    public ProtocolPollerNode(IntMap<PollerNode> nodeMap, Channel channel, Protocol protocol, State channelState, int maxFrameSize, int readBudget, DispatchMode dispatchMode) {
         this.nodeMap = nodeMap;
         this.channel = channel;
         this.protocol = protocol;
         this.channelState = channelState;
+        this.maxFrameSize = maxFrameSize;
+        this.readBudget = readBudget;
+        this.mailbox = dispatchMode == DispatchMode.VIRTUAL_THREAD ? new Mailbox(channel) : null;
+        Poller poller = channel.poller();
+        this.receiving = poller.uringRecv();
+        this.lastRead = poller.now();
+        this.idleTimeout = poller.idleTimeout() > 0 ? poller.timingWheel().schedule(this::onIdleTimeout, lastRead + poller.idleTimeout()) : null;
     }
+
+    /**
+     * 连续读取直到返回EAGAIN、读取的数据未能填满读缓冲区或是用完了readBudget，
+     * 边缘触发模式下未填满读缓冲区即说明内核中的数据已经被读完，之后到达的数据会重新触发可读事件
+     */
     @Override
     public void onReadableEvent(MemorySegment reserved, int len) {
-        int r;
-        try{
-            r = protocol.onReadableEvent(reserved, len);
-        }catch (FrameworkException e) {
-            log.error("Exception thrown in protocolPollerNode when invoking onReadableEvent()", e);
-            close();
-            return ;
+        if (receiving) {
+            // 错误与挂断事件同样会以recv请求的完成事件投递，直接调用recv()可能打乱数据的顺序
+            return;
         }
-        if(r >= 0) {
+        readPending = false;
+        for (int i = 0; i < readBudget; i++) {
+            int r;
+            try{
+                r = protocol.onReadableEvent(reserved, len);
+            }catch (FrameworkException e) {
+                log.error("Exception thrown in protocolPollerNode when invoking onReadableEvent()", e);
+                close();
+                return ;
+            }
+            if(r < 0) {
+                handleEvent(r);
+                return;
+            }
+            lastRead = channel.poller().now();
             handleReceived(reserved, len, r);
-        }else {
-            handleEvent(r);
+            if (closed || r < len) {
+                return;
+            }
+        }
+        readPending = true;
+    }
+
+    /**
+     * 缓冲区在回调返回之后才会被归还，因此与读缓冲区一样只需要拷贝未解码的剩余部分
+     */
+    @Override
+    public void onReceivedEvent(MemorySegment data, int received) {
+        if (received < 0) {
+            log.error("Failed to receive from channel {}, errno : {}", channel.loc(), Math.abs(received));
+            close();
+            return;
         }
+        lastRead = channel.poller().now();
+        handleReceived(data, received, received);
+    }
+
+    @Override
+    public boolean readPending() {
+        return readPending;
     }
 
     @Override
@@ -67,33 +154,260 @@ public final class ProtocolPollerNode implements PollerNode {
         }
     }
 
+    @Override
+    public void onCloseEvent() {
+        close();
+    }
+
+    @Override
+    public void onWriteBlocked() {
+        if (!closed) {
+            checkWriteTimeout();
+        }
+    }
+
+    /**
+     * 期间接收过数据时顺延至lastRead之后的idleTimeout，否则关闭连接
+     */
+    private void onIdleTimeout() {
+        Poller poller = channel.poller();
+        long deadline = lastRead + poller.idleTimeout();
+        if (deadline > poller.now()) {
+            poller.timingWheel().reschedule(idleTimeout, deadline);
+            return;
+        }
+        log.debug("Closing idle channel {}", channel.loc());
+        poller.stats().onTimeout();
+        close();
+    }
+
+    /**
+     * Writer在阻塞期间重新发送成功后会清除阻塞时间，再次阻塞时从新的时间开始计算，因此只有持续阻塞超过writeTimeout才会关闭连接
+     */
+    private void checkWriteTimeout() {
+        long since = protocol.writeBlockedSince();
+        if (since < 0) {
+            return;
+        }
+        Poller poller = channel.poller();
+        long deadline = since + poller.writeTimeout();
+        if (deadline > poller.now()) {
+            if (writeTimeout == null) {
+                writeTimeout = poller.timingWheel().schedule(this::checkWriteTimeout, deadline);
+            } else {
+                poller.timingWheel().reschedule(writeTimeout, deadline);
+            }
+            return;
+        }
+        log.warn("Closing channel {} blocked on write for {} ms", channel.loc(), poller.now() - since);
+        poller.stats().onTimeout();
+        close();
+    }
+
+    /**
+     * 由SentryPollerNode在升级完成后调用，VIRTUAL_THREAD模式下通过信箱回调，保证onConnected()先于所有的onRecv()执行
+     */
+    void onConnected() {
+        if (mailbox != null) {
+            mailbox.connected();
+        } else {
+            try {
+                channel.handler().onConnected(channel);
+            } catch (RuntimeException e) {
+                log.error("Exception thrown in handler when invoking onConnected()", e);
+            }
+        }
+    }
+
     private void handleEvent(int r) {
-        if(r == Constants.NET_W || r == Constants.NET_R || r == Constants.NET_RW) {
+        if(r == Constants.NET_W || r == Constants.NET_R || r == Constants.NET_RW || r == Constants.NET_PR || r == Constants.NET_PW) {
             ctl(r);
         }else if(r != Constants.NET_IGNORED) {
             throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
         }
     }
 
+    /**
+     * 注册状态与expected一致时不会调用epoll_ctl()，失败时直接关闭连接
+     */
     private void ctl(int expected) {
-        // TODO 修改多路复用的状态
+        int r;
+        try (Mutex _ = channelState.withMutex()) {
+            r = channel.poller().ctl(channel.socket(), channelState, expected);
+        }
+        if (r < 0) {
+            log.error("Failed to perform ctl() for channel {}, errno : {}", channel.loc(), Math.abs(r));
+            close();
+        }
     }
 
     private void handleReceived(MemorySegment segment, int len, int received) {
-        // TODO 处理接收到的数据
+        if (received == 0) {
+            // 对端已经关闭了连接
+            close();
+            return;
+        }
+        MemorySegment data;
+        if (tempBuffer == null) {
+            data = segment.asSlice(0L, received);
+        } else {
+            appendTemp(segment, received);
+            data = tempBuffer.asSlice(tempStart, tempEnd - tempStart);
+        }
+        ReadBuffer readBuffer = new ReadBuffer(data);
+        List<Object> entityList = new ArrayList<>();
+        try {
+            decode(readBuffer, entityList);
+        } catch (RuntimeException e) {
+            log.error("Failed to decode data from channel {}", channel.loc(), e);
+            close();
+            return;
+        }
+        if (mailbox != null) {
+            if (!entityList.isEmpty()) {
+                // 信箱中的实体在handleReceived()返回之后才会被处理，此时data所在的内存可能已经被下一次读取覆盖
+                entityList.replaceAll(entity -> detach(entity, data));
+                mailbox.offer(entityList);
+            }
+        } else {
+            // 解码得到的实体可能引用了data中的内存，因此需要在调整暂存区之前完成分发
+            for (Object entity : entityList) {
+                try {
+                    channel.handler().onRecv(channel, entity);
+                } catch (RuntimeException e) {
+                    log.error("Exception thrown in handler when invoking onRecv()", e);
+                }
+            }
+        }
+        long remain = readBuffer.size() - readBuffer.readIndex();
+        if (remain > maxFrameSize) {
+            log.error("Frame size exceeds limit {} from channel {}", maxFrameSize, channel.loc());
+            close();
+            return;
+        }
+        if (tempBuffer == null) {
+            if (remain > 0) {
+                keepTemp(data, readBuffer.readIndex(), remain);
+            }
+        } else if (remain == 0) {
+            releaseTemp();
+        } else {
+            tempStart = tempEnd - remain;
+        }
+    }
+
+    /**
+     * 将引用了data中内存的MemorySegment与ByteView拷贝至堆内存，其余实体保持不变
+     */
+    private static Object detach(Object entity, MemorySegment data) {
+        if (entity instanceof MemorySegment segment && segment.isNative() && data.asOverlappingSlice(segment).isPresent()) {
+            return MemorySegment.ofArray(segment.toArray(ValueLayout.JAVA_BYTE));
+        } else if (entity instanceof ByteView view && view.segment().isNative() && data.asOverlappingSlice(view.segment()).isPresent()) {
+            return view.copy();
+        }
+        return entity;
+    }
+
+    /**
+     * 反复调用decoder，直到数据被全部读取，或者decoder没有再读取任何数据，
+     * decoder读取了数据但没有解析出实体时同样需要继续，例如帧体为空的心跳帧，否则其后已经完整的帧会一直滞留在暂存区中
+     */
+    private void decode(ReadBuffer readBuffer, List<Object> entityList) {
+        while (readBuffer.readIndex() < readBuffer.size()) {
+            long readIndex = readBuffer.readIndex();
+            channel.decoder().decode(readBuffer, entityList);
+            if (readBuffer.readIndex() == readIndex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 首次出现半包时，将未读完的部分拷贝至新申请的暂存区中
+     */
+    private void keepTemp(MemorySegment data, long offset, long remain) {
+        tempBuffer = RpMalloc.malloc(tempCapacity(remain));
+        MemorySegment.copy(data, offset, tempBuffer, 0L, remain);
+        tempStart = 0L;
+        tempEnd = remain;
+    }
+
+    /**
+     * 将新读取的数据追加至暂存区末尾，空间不足时优先将有效数据移动至头部，仍然不足时再扩容
+     */
+    private void appendTemp(MemorySegment segment, int received) {
+        long capacity = tempBuffer.byteSize();
+        if (tempEnd + received > capacity) {
+            long used = tempEnd - tempStart;
+            if (used + received <= capacity) {
+                MemorySegment.copy(tempBuffer, tempStart, tempBuffer, 0L, used);
+            } else {
+                MemorySegment newBuffer = RpMalloc.malloc(tempCapacity(used + received));
+                MemorySegment.copy(tempBuffer, tempStart, newBuffer, 0L, used);
+                RpMalloc.free(tempBuffer);
+                tempBuffer = newBuffer;
+            }
+            tempStart = 0L;
+            tempEnd = used;
+        }
+        MemorySegment.copy(segment, 0L, tempBuffer, tempEnd, received);
+        tempEnd += received;
+    }
+
+    /**
+     * 暂存区容量按2的幂增长，积压的数据不会超过maxFrameSize，单次读取的数据不会超过Poller的读缓冲区，因此暂存区的大小是有上限的
+     */
+    private static long tempCapacity(long required) {
+        long capacity = Long.highestOneBit(required);
+        return capacity == required ? capacity : capacity << 1;
+    }
+
+    private void releaseTemp() {
+        if (tempBuffer != null) {
+            RpMalloc.free(tempBuffer);
+            tempBuffer = null;
+            tempStart = 0L;
+            tempEnd = 0L;
+        }
     }
 
     private void close() {
         if(nodeMap.remove(channel.socket().intValue(), this)) {
-            // TODO 释放相关所有资源，关闭连接
+            closed = true;
+            readPending = false;
+            releaseTemp();
+            cancelTimeouts();
+            deregister();
+            // socket由Writer在处理完CLOSE任务后关闭，保证在Poller和Writer都不再使用该socket之前，其文件描述符不会被复用
+            channel.writer().submit(new WriterTask(WriterTaskType.CLOSE, channel, mailbox));
         }
     }
 
-    private void closeProtocol() {
-        try{
-            protocol.doClose();
-        }catch (RuntimeException e) {
-            log.error("Failed to close protocol from poller", e);
+    private void cancelTimeouts() {
+        TimingWheel timingWheel = channel.poller().timingWheel();
+        if (idleTimeout != null) {
+            timingWheel.cancel(idleTimeout);
+        }
+        if (writeTimeout != null) {
+            timingWheel.cancel(writeTimeout);
+        }
+    }
+
+    /**
+     * 水平触发模式下，对端关闭后socket会持续触发可读事件，在Writer关闭socket之前先将其从多路复用中移除，避免Poller空转，
+     * 边缘触发模式下状态不会再变化，无需额外的epoll_ctl()，但io_uring的请求会一直持有socket，无论哪种模式都需要先取消注册
+     */
+    private void deregister() {
+        Mux mux = channel.poller().mux();
+        if (mux.edgeTriggered() && mux.removedOnClose()) {
+            return;
+        }
+        int r;
+        try (Mutex _ = channelState.withMutex()) {
+            r = channel.poller().ctl(channel.socket(), channelState, Constants.NET_NONE);
+        }
+        if (r < 0) {
+            log.debug("Failed to deregister channel {}, errno : {}", channel.loc(), Math.abs(r));
         }
     }
 }
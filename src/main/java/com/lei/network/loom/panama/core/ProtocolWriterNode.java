@@ -1,11 +1,384 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.buffer.WriteBuffer;
+import com.lei.network.loom.panama.buffer.WriteBufferPool;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.RpMalloc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * <p>
  * ProtocolWriterNode
+ * 同一批次中发往当前Channel的所有消息会被编码至同一个WriteBuffer中，再通过尽可能少的send()调用发送出去，
+ * 当发送缓冲区已满时，未发送完的部分会被保留在pending中，等待Poller通知可写后再继续发送，期间新到达的消息会直接追加到pending的末尾，
+ * 批次中包含{@link SegmentMsg}时，payload不会被拷贝，而是通过writev()与其他数据一起发送，
+ * 所有的WriteBuffer都从Writer线程独享的{@link WriteBufferPool}中获取，关闭后会被放回池中供后续的消息复用，
+ * 消息在全部写入发送缓冲区或被丢弃之后才会从{@link Channel#pendingWrites()}中扣除，积压在pending中的消息会一直被计入，
+ * 提交消息时按估算的大小累加{@link Channel#pendingBytes()}，每次刷新后将其替换为pending中实际积压的字节数，
+ * 超过高水位时将连接标记为不可写，回落至低水位以下时恢复，所有的回调都在Writer线程中执行，并传入回调时刻的可写状态，
+ * 与上一次回调的状态相同时不再重复回调，因此每次回调的状态都与上一次相反，最后一次回调总是与最终的状态一致
  * </p>
  *
  * @author 伍磊
  */
 public final class ProtocolWriterNode implements WriterNode {
+
+    private static final Logger log = LoggerFactory.getLogger(ProtocolWriterNode.class);
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
+
+    private final IntMap<WriterNode> nodeMap;
+
+    private final ChannelImpl channel;
+
+    private final Protocol protocol;
+
+    private final WriteBufferPool writeBufferPool;
+
+    private final int writeBufferSize;
+
+    private final long highWatermark;
+
+    private final long lowWatermark;
+
+    // 当前批次中等待编码的消息
+    private final List<Object> msgList = new ArrayList<>();
+
+    // 上一次未发送完的数据，为null表示没有积压
+    private WriteBuffer pending = null;
+
+    // 位于msgList与pending中，尚未从channel.pendingWrites()中扣除的消息个数
+    private int unsent = 0;
+
+    // msgList中的消息在提交时累加的估算字节数
+    private long estimated = 0L;
+
+    // 上一次刷新后计入pendingBytes的pending字节数
+    private long buffered = 0L;
+
+    // 最后一次回调onWritabilityChanged()时传入的可写状态
+    private boolean notified = true;
+
+    // 是否在等待连接重新变为可写
+    private boolean blocked = false;
+
+    // 是否已经被添加至Writer的待刷新列表中
+    private boolean dirty = false;
+
+    private boolean shutdown = false;
+
+    private boolean closed = false;
+
+    public ProtocolWriterNode(IntMap<WriterNode> nodeMap, Channel channel, Protocol protocol, WriteBufferPool writeBufferPool, int writeBufferSize, long highWatermark, long lowWatermark) {
+        this.nodeMap = nodeMap;
+        // Channel只有ChannelImpl一种实现，积压计数的修改方法不属于Channel接口
+        this.channel = (ChannelImpl) channel;
+        this.protocol = protocol;
+        this.writeBufferPool = writeBufferPool;
+        this.writeBufferSize = writeBufferSize;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+    }
+
+    @Override
+    public boolean markDirty() {
+        if (dirty || closed) {
+            return false;
+        }
+        dirty = true;
+        return true;
+    }
+
+    @Override
+    public void onMsg(Object msg) {
+        if (!closed && !shutdown) {
+            msgList.add(msg);
+            unsent++;
+            estimated += Channel.estimateSize(msg);
+        } else {
+            channel.releaseWrites(1);
+            channel.adjustPendingBytes(-Channel.estimateSize(msg));
+        }
+    }
+
+    @Override
+    public void onWritable() {
+        blocked = false;
+    }
+
+    @Override
+    public void onWritabilityChanged() {
+        if (!closed) {
+            notifyWritability();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public void onClose(Mailbox mailbox) {
+        if (nodeMap.remove(channel.socket().intValue(), this)) {
+            closed = true;
+            msgList.clear();
+            releasePending();
+            releaseUnsent();
+            releaseBytes();
+            try {
+                protocol.doClose();
+            } catch (RuntimeException e) {
+                log.error("Failed to close protocol from writer", e);
+            }
+            if (mailbox != null) {
+                mailbox.removed();
+            } else {
+                Thread.ofVirtual().start(() -> channel.handler().onRemoved(channel));
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        dirty = false;
+        if (closed) {
+            return;
+        }
+        try {
+            if (pending == null && !msgList.isEmpty()) {
+                if (containsSegmentMsg()) {
+                    // 可能会因为未能一次发送完而产生新的pending
+                    gatherWrite();
+                } else {
+                    pending = writeBufferPool.acquire(writeBufferSize);
+                }
+            }
+            if (pending != null) {
+                // 已有积压的数据时，新消息只能追加在其后以保证顺序
+                encodeAll(pending);
+                if (!blocked) {
+                    pending = send(pending);
+                }
+            }
+            if (pending == null) {
+                releaseUnsent();
+            }
+            if (shutdown && pending == null) {
+                protocol.doShutdown();
+                closed = true;
+            }
+            updateWritability();
+        } catch (RuntimeException e) {
+            log.error("Failed to write to channel {}", channel.loc(), e);
+            closed = true;
+            msgList.clear();
+            releasePending();
+            releaseUnsent();
+            releaseBytes();
+            channel.poller().submit(new PollerTask(PollerTaskType.CLOSE, channel, null));
+        }
+    }
+
+    private void encodeAll(WriteBuffer writeBuffer) {
+        for (Object msg : msgList) {
+            encode(writeBuffer, msg);
+        }
+        msgList.clear();
+    }
+
+    private void encode(WriteBuffer writeBuffer, Object msg) {
+        if (msg instanceof SegmentMsg(Object header, MemorySegment payload, Runnable callback)) {
+            if (header != null) {
+                channel.encoder().encode(writeBuffer, header);
+            }
+            writeBuffer.writeSegment(payload);
+            if (callback != null) {
+                callback.run();
+            }
+        } else {
+            channel.encoder().encode(writeBuffer, msg);
+        }
+    }
+
+    private boolean containsSegmentMsg() {
+        for (Object msg : msgList) {
+            if (msg instanceof SegmentMsg segmentMsg && segmentMsg.payload().isNative()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 当前批次中存在SegmentMsg时，只将header编码至WriteBuffer中，payload作为独立的内存块与编码后的数据交替排列，通过writev()一起发送，
+     * 只有在发送缓冲区已满时，才会将剩余未发送的部分拷贝至pending中
+     */
+    private void gatherWrite() {
+        List<MemorySegment> payloads = new ArrayList<>();
+        List<Runnable> callbacks = new ArrayList<>();
+        long[] marks = new long[msgList.size()];
+        try (WriteBuffer writeBuffer = writeBufferPool.acquire(writeBufferSize)) {
+            for (Object msg : msgList) {
+                if (msg instanceof SegmentMsg(Object header, MemorySegment payload, Runnable callback) && payload.isNative()) {
+                    if (header != null) {
+                        channel.encoder().encode(writeBuffer, header);
+                    }
+                    // 记录payload在编码数据中的插入位置，WriteBuffer扩容后底层内存会发生变化，因此只能记录索引
+                    marks[payloads.size()] = writeBuffer.writeIndex();
+                    payloads.add(payload);
+                    if (callback != null) {
+                        callbacks.add(callback);
+                    }
+                } else {
+                    encode(writeBuffer, msg);
+                }
+            }
+            msgList.clear();
+            MemorySegment content = writeBuffer.content();
+            List<MemorySegment> parts = new ArrayList<>((payloads.size() << 1) + 1);
+            long start = 0L;
+            for (int i = 0; i < payloads.size(); i++) {
+                if (marks[i] > start) {
+                    parts.add(content.asSlice(start, marks[i] - start));
+                    start = marks[i];
+                }
+                if (payloads.get(i).byteSize() > 0) {
+                    parts.add(payloads.get(i));
+                }
+            }
+            if (content.byteSize() > start) {
+                parts.add(content.asSlice(start));
+            }
+            writeParts(parts);
+        } finally {
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    private void writeParts(List<MemorySegment> parts) {
+        int index = 0;
+        long offset = 0L;
+        int max = Math.min(parts.size(), osNetworkLibrary.ioVecMax());
+        MemorySegment ioVecs = RpMalloc.malloc(osNetworkLibrary.ioVecLayout().byteSize() * max);
+        try {
+            while (index < parts.size()) {
+                int count = 0;
+                for (int i = index; i < parts.size() && count < max; i++, count++) {
+                    MemorySegment part = i == index ? parts.get(i).asSlice(offset) : parts.get(i);
+                    osNetworkLibrary.setIoVec(ioVecs, count, part, part.byteSize());
+                }
+                long r = protocol.doWritev(ioVecs, count);
+                if (r == 0) {
+                    blocked = true;
+                    break;
+                }
+                while (r > 0) {
+                    long remain = parts.get(index).byteSize() - offset;
+                    if (r >= remain) {
+                        r -= remain;
+                        index++;
+                        offset = 0L;
+                    } else {
+                        offset += r;
+                        r = 0;
+                    }
+                }
+            }
+        } finally {
+            RpMalloc.free(ioVecs);
+        }
+        if (index < parts.size()) {
+            long remain = -offset;
+            for (int i = index; i < parts.size(); i++) {
+                remain += parts.get(i).byteSize();
+            }
+            // 直接从能够容纳全部剩余数据的等级中获取，避免拷贝过程中的多次扩容
+            pending = writeBufferPool.acquire(Math.max(remain, writeBufferSize));
+            for (int i = index; i < parts.size(); i++) {
+                pending.writeSegment(i == index ? parts.get(i).asSlice(offset) : parts.get(i));
+            }
+        }
+    }
+
+    /**
+     * 发送writeBuffer中的全部数据
+     * @return 未能发送完的部分，全部发送完成时返回null
+     */
+    private WriteBuffer send(WriteBuffer writeBuffer) {
+        MemorySegment content = writeBuffer.content();
+        long len = content.byteSize();
+        long offset = 0;
+        while (offset < len) {
+            int r = protocol.doWrite(offset == 0 ? content : content.asSlice(offset), (int) (len - offset));
+            if (r == 0) {
+                blocked = true;
+                return offset == 0 ? writeBuffer : writeBuffer.truncate(offset);
+            }
+            offset += r;
+        }
+        writeBuffer.close();
+        return null;
+    }
+
+    /**
+     * 刷新之后msgList已经为空，将其估算的字节数替换为pending中实际积压的字节数
+     */
+    private void updateWritability() {
+        long current = pending == null ? 0L : pending.writeIndex();
+        long delta = current - buffered - estimated;
+        buffered = current;
+        estimated = 0L;
+        long total = delta == 0L ? channel.pendingBytes() : channel.adjustPendingBytes(delta);
+        if (total > highWatermark) {
+            if (channel.casWritable(true, false)) {
+                notifyWritability();
+            }
+        } else if (total < lowWatermark && channel.casWritable(false, true)) {
+            notifyWritability();
+        }
+    }
+
+    private void notifyWritability() {
+        // 发送线程标记不可写之后，Writer线程可能在处理WRITABILITY_CHANGED任务之前就已经将其恢复
+        boolean writable = channel.isWritable();
+        if (writable == notified) {
+            return;
+        }
+        notified = writable;
+        try {
+            channel.handler().onWritabilityChanged(channel, writable);
+        } catch (RuntimeException e) {
+            log.error("Exception thrown in handler when invoking onWritabilityChanged()", e);
+        }
+    }
+
+    private void releaseBytes() {
+        channel.adjustPendingBytes(-(buffered + estimated));
+        buffered = 0L;
+        estimated = 0L;
+    }
+
+    private void releaseUnsent() {
+        if (unsent > 0) {
+            channel.releaseWrites(unsent);
+            unsent = 0;
+        }
+    }
+
+    private void releasePending() {
+        if (pending != null) {
+            pending.close();
+            pending = null;
+        }
+    }
 }
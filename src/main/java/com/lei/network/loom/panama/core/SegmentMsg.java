@@ -0,0 +1,20 @@
+package com.lei.network.loom.panama.core;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * <p>
+ * SegmentMsg
+ * 由header和payload两部分组成的消息，header会经过Encoder编码，payload则不经过任何拷贝，直接通过writev()与编码后的数据一起发送，
+ * 适用于大块的响应体，payload必须是堆外内存，且在callback被调用之前保持有效，
+ * 当payload已经被发送或是被拷贝至待发送的缓冲区后，callback会在Writer线程中被调用，可以在其中释放payload
+ * </p>
+ *
+ * @author 伍磊
+ */
+public record SegmentMsg(Object header, MemorySegment payload, Runnable callback) {
+
+    public SegmentMsg(Object header, MemorySegment payload) {
+        this(header, payload, null);
+    }
+}
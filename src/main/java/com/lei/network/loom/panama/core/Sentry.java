@@ -12,11 +12,17 @@ import java.lang.foreign.MemorySegment;
  */
 public interface Sentry {
 
+    /**
+     * reserved的使用约定与{@link PollerNode#onReadableEvent(MemorySegment, int)}相同，握手阶段读取的数据同样不能跨越本次调用保留
+     */
     int onReadableEvent(MemorySegment reserved, int len);
 
     int onWritableEvent();
 
-    Protocol toProtocol();
+    /**
+     * 升级为Protocol，channelState即连接当前在多路复用中注册的状态，升级后由Protocol继续维护
+     */
+    Protocol toProtocol(State channelState);
 
     void doClose();
 
@@ -1,9 +1,11 @@
 package com.lei.network.loom.panama.core;
 
 import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
 import com.lei.network.loom.panama.handler.Channel;
 import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.TimingWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,6 +14,7 @@ import java.lang.foreign.MemorySegment;
 /**
  * <p>
  * SentryPollerNode
+ * 创建时在Poller的时间轮中登记握手超时，超时之前未能升级为ProtocolPollerNode的连接会被直接关闭，对于客户端连接即为连接超时
  * </p>
  *
  * @author 伍磊
@@ -28,14 +31,35 @@ public final class SentryPollerNode implements PollerNode {
 
     private final State channelState = new State(Constants.NET_W);
 
+    // 连接在Sentry阶段被关闭时调用
     private final Runnable callback;
 
-    public SentryPollerNode(IntMap<PollerNode> nodeMap, Channel channel, Sentry sentry, Runnable callback) {
+    // 升级为ProtocolPollerNode之后调用
+    private final Runnable connectedCallback;
+
+    // 升级为ProtocolPollerNode时使用
+    private final int maxFrameSize;
+
+    private final int readBudget;
+
+    private final DispatchMode dispatchMode;
+
+    // 握手超时，未开启时为null
+    private final TimingWheel.Timeout handshakeTimeout;
+
+    public SentryPollerNode(IntMap<PollerNode> nodeMap, Channel channel, Sentry sentry, Runnable callback, Runnable connectedCallback, int maxFrameSize, int readBudget, DispatchMode dispatchMode) {
         this.nodeMap = nodeMap;
         this.channel = channel;
         this.sentry = sentry;
         this.callback = callback;
+        this.connectedCallback = connectedCallback;
+        this.maxFrameSize = maxFrameSize;
+        this.readBudget = readBudget;
+        this.dispatchMode = dispatchMode;
+        Poller poller = channel.poller();
+        this.handshakeTimeout = poller.handshakeTimeout() > 0 ? poller.timingWheel().schedule(this::onHandshakeTimeout, poller.now() + poller.handshakeTimeout()) : null;
     }
+
     @Override
     public void onReadableEvent(MemorySegment reserved, int len) {
         try{
@@ -56,30 +80,101 @@ public final class SentryPollerNode implements PollerNode {
         }
     }
 
+    @Override
+    public void onCloseEvent() {
+        close();
+    }
+
+    private void onHandshakeTimeout() {
+        log.warn("Channel {} failed to finish handshake in {} ms", channel.loc(), channel.poller().handshakeTimeout());
+        channel.poller().stats().onTimeout();
+        close();
+    }
+
     private void handleEvent(int r) {
         if(r == Constants.NET_UPDATE) {
             updateToProtocol();
-        }else if(r == Constants.NET_R || r == Constants.NET_W || r == Constants.NET_RW){
+        }else if(r == Constants.NET_R || r == Constants.NET_W || r == Constants.NET_RW || r == Constants.NET_PR || r == Constants.NET_PW){
             ctl(r);
         }else if(r != Constants.NET_IGNORED) {
             throw new RuntimeException(Constants.UNREACHED);
         }
     }
 
+    /**
+     * 注册状态与expected一致时不会调用epoll_ctl()，失败时抛出的异常由调用方关闭连接
+     */
     private void ctl(int expected) {
-        // TODO 修改多路复用的状态
+        int r;
+        try (Mutex _ = channelState.withMutex()) {
+            r = channel.poller().ctl(channel.socket(), channelState, expected);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to perform ctl(), errno : %d", Math.abs(r));
+        }
     }
 
+    /**
+     * 在nodeMap中替换为ProtocolPollerNode，并将关注的事件由可写切换为可读，边缘触发模式下则同时注册读写事件，之后不再修改，
+     * 开启了io_uring接收模式时，注册的可读事件会被替换为由内核直接接收数据的recv请求，
+     * INITIATE任务先于任何可能的CLOSE任务提交，保证Writer在关闭连接时能够找到对应的WriterNode
+     */
     private void updateToProtocol() {
-        // TODO 升级为Protocol
+        cancelTimeout();
+        Protocol protocol = sentry.toProtocol(channelState);
+        ProtocolPollerNode protocolPollerNode = new ProtocolPollerNode(nodeMap, channel, protocol, channelState, maxFrameSize, readBudget, dispatchMode);
+        nodeMap.replace(channel.socket().intValue(), this, protocolPollerNode);
+        channel.writer().submit(new WriterTask(WriterTaskType.INITIATE, channel, protocol));
+        int expected = channel.poller().mux().edgeTriggered() ? Constants.NET_RW : Constants.NET_R;
+        channel.poller().receive(channel.socket());
+        int r;
+        try (Mutex _ = channelState.withMutex()) {
+            r = channel.poller().ctl(channel.socket(), channelState, expected);
+        }
+        if (r < 0) {
+            log.error("Failed to register readable event for channel {}, errno : {}", channel.loc(), Math.abs(r));
+            protocolPollerNode.onCloseEvent();
+            if (callback != null) {
+                Thread.ofVirtual().start(callback);
+            }
+            return;
+        }
+        protocolPollerNode.onConnected();
+        if (connectedCallback != null) {
+            Thread.ofVirtual().start(connectedCallback);
+        }
     }
 
     private void close() {
         if(nodeMap.remove(channel.socket().intValue(), this)) {
+            cancelTimeout();
+            deregister();
             closeSentry();
         }
     }
 
+    private void cancelTimeout() {
+        if (handshakeTimeout != null) {
+            channel.poller().timingWheel().cancel(handshakeTimeout);
+        }
+    }
+
+    /**
+     * Sentry会在Poller线程中直接关闭socket，io_uring下需要先取消注册，epoll会在文件描述符关闭时自动移除
+     */
+    private void deregister() {
+        if (channel.poller().mux().removedOnClose()) {
+            return;
+        }
+        int r;
+        try (Mutex _ = channelState.withMutex()) {
+            r = channel.poller().ctl(channel.socket(), channelState, Constants.NET_NONE);
+        }
+        if (r < 0) {
+            log.debug("Failed to deregister channel {}, errno : {}", channel.loc(), Math.abs(r));
+        }
+    }
+
     private void closeSentry() {
         try{
             sentry.doClose();
@@ -0,0 +1,13 @@
+package com.lei.network.loom.panama.core;
+
+/**
+ * <p>
+ * SentryWithCallback
+ * 注册至Poller时携带的Sentry对象，callback会在Sentry阶段连接关闭时被调用，connectedCallback会在升级为Protocol之后被调用，
+ * 两者都在新的虚拟线程中执行，且最多只会有一个被调用，dispatchMode来自连接所属的ListenerConfig或ConnectorConfig
+ * </p>
+ *
+ * @author 伍磊
+ */
+public record SentryWithCallback(Sentry sentry, Runnable callback, Runnable connectedCallback, DispatchMode dispatchMode) {
+}
@@ -37,9 +37,14 @@ public final class State {
         this.state |= mask;
     }
 
+    /**
+     * 清除mask中的状态位，NET_*常量的符号位只用于与recv()、send()的返回值区分，不属于状态位，因此不会被清除
+     * @return 清除之前是否至少存在其中一个状态位
+     */
     public boolean unregister(int mask) {
-        boolean r = (state & mask) > 0;
-        state &= ~mask;
+        int bits = mask & Integer.MAX_VALUE;
+        boolean r = (state & bits) != 0;
+        state &= ~bits;
         return r;
     }
 
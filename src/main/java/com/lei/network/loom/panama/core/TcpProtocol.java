@@ -0,0 +1,202 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * <p>
+ * TcpProtocol
+ * 读事件由Poller线程调用，写操作由Writer线程调用，两者通过channelState的互斥锁来保证多路复用状态修改的一致性，
+ * 边缘触发模式下读写事件在升级时已经一次性注册，发送缓冲区满时只记录writeWaiting，等待下一次可写事件通知Writer，不会调用epoll_ctl()，
+ * 开启了写超时时，记录发送缓冲区开始持续已满的时间，并且只在Poller没有检查写超时的情况下提交WRITE_BLOCKED任务，因此每次阻塞最多产生一个任务
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class TcpProtocol implements Protocol {
+
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
+
+    private final Channel channel;
+
+    private final State channelState;
+
+    private final Poller poller;
+
+    private final boolean edgeTriggered;
+
+    // 以下两个字段只在边缘触发模式下使用，由channelState的互斥锁保护
+    // Writer因发送缓冲区已满而等待可写事件
+    private boolean writeWaiting = false;
+    // 收到了可写事件但当时Writer并没有在等待，Writer遇到EAGAIN时若该值为true，说明可写事件可能发生在send()与加锁之间，需要立即重试一次
+    private boolean writableSeen = false;
+
+    // 以下两个字段只在开启了写超时时使用，由channelState的互斥锁保护
+    // 发送缓冲区开始持续已满的时间，为0表示没有阻塞
+    private long blockedSince = 0L;
+    // Poller是否正在检查写超时
+    private boolean writeWatched = false;
+
+    public TcpProtocol(Channel channel, State channelState) {
+        this.channel = channel;
+        this.channelState = channelState;
+        this.poller = channel.poller();
+        this.edgeTriggered = poller.mux().edgeTriggered();
+    }
+
+    /**
+     * @return 接收到的字节数，为0时表示对端已经关闭了连接
+     */
+    @Override
+    public int onReadableEvent(MemorySegment reserved, int len) {
+        int r = osNetworkLibrary.recv(channel.socket(), reserved, len);
+        poller.stats().onRecv();
+        if (r < 0) {
+            int errno = Math.abs(r);
+            if (errno == osNetworkLibrary.sendBlockCode()) {
+                return Constants.NET_IGNORED;
+            }
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to perform recv(), errno : %d", errno);
+        }
+        return r;
+    }
+
+    /**
+     * 连接重新变为可写，取消可写事件的注册，并通知Writer继续发送
+     */
+    @Override
+    public int onWritableEvent() {
+        if (edgeTriggered) {
+            boolean waiting;
+            try (Mutex _ = channelState.withMutex()) {
+                waiting = writeWaiting;
+                writeWaiting = false;
+                writableSeen = !waiting;
+                blockedSince = 0L;
+            }
+            if (waiting) {
+                channel.writer().submit(new WriterTask(WriterTaskType.WRITABLE, channel, null));
+            }
+            return Constants.NET_IGNORED;
+        }
+        try (Mutex _ = channelState.withMutex()) {
+            blockedSince = 0L;
+            check(poller.unregister(channel.socket(), channelState, Constants.NET_W));
+        }
+        channel.writer().submit(new WriterTask(WriterTaskType.WRITABLE, channel, null));
+        return Constants.NET_IGNORED;
+    }
+
+    /**
+     * @return 实际发送的字节数，为0时表示发送缓冲区已满，此时已经注册了可写事件，调用方需要等待WRITABLE任务后再继续发送
+     */
+    @Override
+    public int doWrite(MemorySegment data, int len) {
+        for (; ; ) {
+            int r = osNetworkLibrary.send(channel.socket(), data, len);
+            if (r >= 0) {
+                return r;
+            }
+            if (!onWriteFailed(r)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public long doWritev(MemorySegment ioVecs, int count) {
+        for (; ; ) {
+            long r = osNetworkLibrary.writev(channel.socket(), ioVecs, count);
+            if (r >= 0) {
+                return r;
+            }
+            if (!onWriteFailed(r)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 发送缓冲区已满时注册可写事件，边缘触发模式下只记录writeWaiting，其他错误直接抛出异常
+     * @return 是否需要立即重新发送
+     */
+    private boolean onWriteFailed(long r) {
+        int errno = (int) Math.abs(r);
+        if (errno != osNetworkLibrary.sendBlockCode()) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to perform send(), errno : %d", errno);
+        }
+        boolean watch;
+        try (Mutex _ = channelState.withMutex()) {
+            if (edgeTriggered) {
+                if (writableSeen) {
+                    writableSeen = false;
+                    return true;
+                }
+                writeWaiting = true;
+            } else {
+                check(poller.ctl(channel.socket(), channelState, Constants.NET_PW));
+            }
+            watch = onBlocked();
+        }
+        if (watch) {
+            poller.submit(new PollerTask(PollerTaskType.WRITE_BLOCKED, channel, null));
+        }
+        return false;
+    }
+
+    /**
+     * 必须在持有channelState互斥锁的情况下调用
+     * @return 是否需要通知Poller开始检查写超时
+     */
+    private boolean onBlocked() {
+        if (poller.writeTimeout() == 0L) {
+            return false;
+        }
+        if (blockedSince == 0L) {
+            blockedSince = System.currentTimeMillis();
+        }
+        if (writeWatched) {
+            return false;
+        }
+        writeWatched = true;
+        return true;
+    }
+
+    @Override
+    public long writeBlockedSince() {
+        try (Mutex _ = channelState.withMutex()) {
+            if (blockedSince == 0L) {
+                writeWatched = false;
+                return -1L;
+            }
+            return blockedSince;
+        }
+    }
+
+    @Override
+    public void doShutdown() {
+        int r = osNetworkLibrary.shutdownWrite(channel.socket());
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to perform shutdown(), errno : %d", Math.abs(r));
+        }
+    }
+
+    @Override
+    public void doClose() {
+        int r = osNetworkLibrary.closeSocket(channel.socket());
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to close socket, errno : %d", Math.abs(r));
+        }
+    }
+
+    private static void check(int r) {
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to perform ctl(), errno : %d", Math.abs(r));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * <p>
+ * TcpSentry
+ * 不需要额外握手的TCP连接，注册可写事件后，socket首次变为可写即表示连接已经建立完成，检查SO_ERROR确认没有错误后直接升级为TcpProtocol
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class TcpSentry implements Sentry {
+
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
+
+    private final Channel channel;
+
+    public TcpSentry(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 连接建立之前只注册了可写事件，触发可读说明收到了EPOLLERR或EPOLLHUP
+     */
+    @Override
+    public int onReadableEvent(MemorySegment reserved, int len) {
+        checkErrOpt();
+        return Constants.NET_IGNORED;
+    }
+
+    @Override
+    public int onWritableEvent() {
+        checkErrOpt();
+        return Constants.NET_UPDATE;
+    }
+
+    private void checkErrOpt() {
+        int errOpt = osNetworkLibrary.getErrOpt(channel.socket());
+        if (errOpt < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to get SO_ERROR, errno : %d", Math.abs(errOpt));
+        } else if (errOpt > 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Connection failed with errno : %d", errOpt);
+        }
+    }
+
+    @Override
+    public Protocol toProtocol(State channelState) {
+        return new TcpProtocol(channel, channelState);
+    }
+
+    @Override
+    public void doClose() {
+        int r = osNetworkLibrary.closeSocket(channel.socket());
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to close socket, errno : %d", Math.abs(r));
+        }
+    }
+}
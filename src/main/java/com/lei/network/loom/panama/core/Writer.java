@@ -1,18 +1,30 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.buffer.WriteBufferPool;
 import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.library.OsNetworkLibrary;
+import com.lei.network.loom.panama.util.IntMap;
+import com.lei.network.loom.panama.util.RpMalloc;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <p>
  * Writer
+ * 每一轮最多从任务队列中取出batchSize个任务，先将消息按Channel归类，再对每个Channel统一编码并发送，
+ * 这样在大量小消息发往同一个连接的场景下，多条消息只需要一次send()调用
  * </p>
  *
  * @author 伍磊
@@ -21,10 +33,33 @@ public final class Writer {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Writer.class);
     private static final AtomicInteger counter = new AtomicInteger(0);
+    private static final OsNetworkLibrary osNetworkLibrary = OsNetworkLibrary.CURRENT;
     private final Thread writerThread;
+    private final WriteBufferPool writeBufferPool;
+    private final long highWatermark;
+    private final long lowWatermark;
+    // 绑定的CPU，为-1表示不绑定
+    private final int cpu;
     private final Queue<WriterTask> writerTaskQueue = new MpscUnboundedAtomicArrayQueue<>(1024);
 
+    // Writer线程在任务队列为空时会进入休眠，提交任务的线程据此判断是否需要唤醒它
+    private volatile boolean waiting = false;
+
     public Writer(WriterConfig writerConfig) {
+        this(writerConfig, -1);
+    }
+
+    /**
+     * @param cpu Writer线程启动时绑定的CPU，为-1表示不绑定
+     */
+    public Writer(WriterConfig writerConfig, int cpu) {
+        if (writerConfig.getBatchSize() <= 0 || writerConfig.getWriteBufferSize() <= 0 || writerConfig.getLowWatermark() < 0 || writerConfig.getHighWatermark() <= writerConfig.getLowWatermark()) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid writer config");
+        }
+        this.highWatermark = writerConfig.getHighWatermark();
+        this.lowWatermark = writerConfig.getLowWatermark();
+        this.cpu = cpu;
+        this.writeBufferPool = new WriteBufferPool(writerConfig.getWriteBufferSize(), writerConfig.getPoolMaxBufferSize(), writerConfig.getPoolRetainedSize());
         this.writerThread = createWriterThread(writerConfig);
     }
 
@@ -32,16 +67,162 @@ public final class Writer {
         return writerThread;
     }
 
+    public long highWatermark() {
+        return highWatermark;
+    }
+
+    /**
+     * 当前Writer独享的WriteBufferPool，只能在Writer线程中使用，其他线程只应读取其中的统计数据
+     */
+    public WriteBufferPool writeBufferPool() {
+        return writeBufferPool;
+    }
+
     public void submit(WriterTask writerTask) {
         if(writerTask == null || !writerTaskQueue.offer(writerTask)) {
             throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
         }
+        if (waiting) {
+            LockSupport.unpark(writerThread);
+        }
     }
 
     private Thread createWriterThread(WriterConfig writerConfig) {
         int sequence = counter.getAndIncrement();
         return Thread.ofPlatform().name(STR."writer-\{sequence}").unstarted(() -> {
-
+            if (cpu >= 0) {
+                int r = osNetworkLibrary.setAffinity(cpu);
+                if (r < 0) {
+                    LOGGER.warn("Failed to bind writer-{} to cpu {}, errno : {}", sequence, cpu, Math.abs(r));
+                }
+            }
+            int batchSize = writerConfig.getBatchSize();
+            int writeBufferSize = writerConfig.getWriteBufferSize();
+            IntMap<WriterNode> nodeMap = new IntMap<>(writerConfig.getMapSize());
+            List<WriterNode> dirtyNodes = new ArrayList<>();
+            RpMalloc.tInitialize();
+            try {
+                loop(nodeMap, dirtyNodes, batchSize, writeBufferSize);
+            } finally {
+                writeBufferPool.close();
+                RpMalloc.tFinalize();
+            }
+            LOGGER.debug("Exiting writer-{}", sequence);
         });
     }
+
+    private void loop(IntMap<WriterNode> nodeMap, List<WriterNode> dirtyNodes, int batchSize, int writeBufferSize) {
+        for (; ; ) {
+            int count = 0;
+            boolean exit = false;
+            while (count < batchSize) {
+                WriterTask writerTask = writerTaskQueue.poll();
+                if (writerTask == null) {
+                    break;
+                }
+                count++;
+                if (processTask(nodeMap, dirtyNodes, writerTask, writeBufferSize)) {
+                    exit = true;
+                    break;
+                }
+            }
+            for (WriterNode writerNode : dirtyNodes) {
+                writerNode.flush();
+            }
+            dirtyNodes.clear();
+            if (exit) {
+                break;
+            }
+            if (count == 0) {
+                waiting = true;
+                if (writerTaskQueue.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    /**
+     * @return 是否需要退出当前Writer线程
+     */
+    private boolean processTask(IntMap<WriterNode> nodeMap, List<WriterNode> dirtyNodes, WriterTask writerTask, int writeBufferSize) {
+        Channel channel = writerTask.channel();
+        switch (writerTask.type()) {
+            case INITIATE -> {
+                if (!(writerTask.msg() instanceof Protocol protocol)) {
+                    throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+                }
+                nodeMap.put(channel.socket().intValue(), new ProtocolWriterNode(nodeMap, channel, protocol, writeBufferPool, writeBufferSize, highWatermark, lowWatermark));
+            }
+            case SINGLE_MSG -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (writerNode != null) {
+                    writerNode.onMsg(writerTask.msg());
+                    markDirty(dirtyNodes, writerNode);
+                } else {
+                    ChannelImpl channelImpl = (ChannelImpl) channel;
+                    channelImpl.releaseWrites(1);
+                    channelImpl.adjustPendingBytes(-Channel.estimateSize(writerTask.msg()));
+                }
+            }
+            case MULTIPLE_MSG -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (!(writerTask.msg() instanceof Collection<?> msgs)) {
+                    throw new FrameworkException(ExceptionType.NETWORK, Constants.UNREACHED);
+                }
+                if (writerNode != null) {
+                    for (Object msg : msgs) {
+                        writerNode.onMsg(msg);
+                    }
+                    markDirty(dirtyNodes, writerNode);
+                } else {
+                    ChannelImpl channelImpl = (ChannelImpl) channel;
+                    channelImpl.releaseWrites(msgs.size());
+                    for (Object msg : msgs) {
+                        channelImpl.adjustPendingBytes(-Channel.estimateSize(msg));
+                    }
+                }
+            }
+            case WRITABLE -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (writerNode != null) {
+                    writerNode.onWritable();
+                    markDirty(dirtyNodes, writerNode);
+                }
+            }
+            case WRITABILITY_CHANGED -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (writerNode != null) {
+                    writerNode.onWritabilityChanged();
+                }
+            }
+            case SHUTDOWN -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (writerNode != null) {
+                    writerNode.onShutdown();
+                    markDirty(dirtyNodes, writerNode);
+                }
+            }
+            case CLOSE -> {
+                WriterNode writerNode = nodeMap.get(channel.socket().intValue());
+                if (writerNode != null) {
+                    writerNode.onClose(writerTask.msg() instanceof Mailbox mailbox ? mailbox : null);
+                }
+            }
+            case EXIT -> {
+                for (WriterNode writerNode : nodeMap.asList()) {
+                    writerNode.onClose(null);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void markDirty(List<WriterNode> dirtyNodes, WriterNode writerNode) {
+        if (writerNode.markDirty()) {
+            dirtyNodes.add(writerNode);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.lei.network.loom.panama.core;
 
+import com.lei.network.loom.panama.constant.Constants;
 import com.lei.network.loom.panama.util.NativeUtil;
 
 /**
@@ -13,6 +14,32 @@ public final class WriterConfig {
 
     private int writerCount = Math.max(NativeUtil.getCpuCores() >> 1, 4);
 
+    // 每个Writer中IntMap的初始容量，必须为2的幂
+    private int mapSize = 16 * Constants.KB;
+
+    // 单批次最多从任务队列中取出的任务数，同一批次内发往同一个Channel的消息会被合并为一次发送
+    private int batchSize = 256;
+
+    // 编码消息时WriteBuffer的初始大小
+    private int writeBufferSize = 4 * Constants.KB;
+
+    // WriteBufferPool中会被回收的最大WriteBuffer大小，超过该大小的WriteBuffer在关闭时会被直接释放
+    private int poolMaxBufferSize = Constants.MB;
+
+    // 每个Writer的WriteBufferPool中最多保留的空闲内存总量
+    private long poolRetainedSize = 4L * Constants.MB;
+
+    // 单个连接积压的字节数超过高水位时变为不可写
+    private long highWatermark = Constants.MB;
+
+    // 不可写的连接积压的字节数回落至低水位以下时恢复为可写
+    private long lowWatermark = 512L * Constants.KB;
+
+    // Writer线程绑定的CPU列表，格式与PollerConfig中的affinity相同，为null时不绑定，
+    // 为"paired"时writerCount必须与pollerCount相同并且Poller也开启了绑定，第i个Writer绑定至与第i个Poller共享L2或L3缓存的CPU，
+    // 同时每个Poller上的连接只会分配给与之配对的Writer，读写两侧访问的连接状态与编码数据都保留在同一块缓存中
+    private String affinity = null;
+
     public int getWriterCount() {
         return writerCount;
     }
@@ -20,4 +47,68 @@ public final class WriterConfig {
     public void setWriterCount(int writerCount) {
         this.writerCount = writerCount;
     }
+
+    public int getMapSize() {
+        return mapSize;
+    }
+
+    public void setMapSize(int mapSize) {
+        this.mapSize = mapSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public int getPoolMaxBufferSize() {
+        return poolMaxBufferSize;
+    }
+
+    public void setPoolMaxBufferSize(int poolMaxBufferSize) {
+        this.poolMaxBufferSize = poolMaxBufferSize;
+    }
+
+    public long getPoolRetainedSize() {
+        return poolRetainedSize;
+    }
+
+    public void setPoolRetainedSize(long poolRetainedSize) {
+        this.poolRetainedSize = poolRetainedSize;
+    }
+
+    public long getHighWatermark() {
+        return highWatermark;
+    }
+
+    public void setHighWatermark(long highWatermark) {
+        this.highWatermark = highWatermark;
+    }
+
+    public long getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public void setLowWatermark(long lowWatermark) {
+        this.lowWatermark = lowWatermark;
+    }
+
+    public String getAffinity() {
+        return affinity;
+    }
+
+    public void setAffinity(String affinity) {
+        this.affinity = affinity;
+    }
 }
@@ -8,4 +8,39 @@ package com.lei.network.loom.panama.core;
  * @author 伍磊
  */
 public sealed interface WriterNode permits ProtocolWriterNode {
+
+    /**
+     * 将节点标记为待刷新
+     * @return 节点此前是否未被标记，调用方据此决定是否需要将其加入待刷新列表
+     */
+    boolean markDirty();
+
+    /**
+     * 添加一条待发送的消息，消息会在当前批次的任务处理完成后，通过flush()统一编码和发送
+     */
+    void onMsg(Object msg);
+
+    /**
+     * 连接重新变为可写
+     */
+    void onWritable();
+
+    /**
+     * 将当前的可写状态回调给Handler
+     */
+    void onWritabilityChanged();
+
+    void onShutdown();
+
+    /**
+     * 关闭连接并回调onRemoved()
+     * @param mailbox 不为null时通过信箱回调，保证onRemoved()在信箱中已有的所有回调之后执行
+     */
+    void onClose(Mailbox mailbox);
+
+    /**
+     * 将积压的消息编码并发送
+     */
+    void flush();
+
 }
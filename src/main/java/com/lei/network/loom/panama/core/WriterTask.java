@@ -1,4 +1,14 @@
 package com.lei.network.loom.panama.core;
 
-public record WriterTask(WriterTaskType type) {
+import com.lei.network.loom.panama.handler.Channel;
+
+/**
+ * <p>
+ * WriterTask
+ * 由其他线程提交给Writer线程执行的任务，channel和msg的具体含义由type决定
+ * </p>
+ *
+ * @author 伍磊
+ */
+public record WriterTask(WriterTaskType type, Channel channel, Object msg) {
 }
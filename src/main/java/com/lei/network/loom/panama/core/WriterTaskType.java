@@ -8,4 +8,20 @@ package com.lei.network.loom.panama.core;
  * @author 伍磊
  */
 public enum WriterTaskType {
+    // 连接升级为Protocol后，在Writer中创建对应的WriterNode，msg为Protocol
+    INITIATE,
+    // 发送单条消息，msg为待编码的对象
+    SINGLE_MSG,
+    // 批量发送消息，msg为Collection
+    MULTIPLE_MSG,
+    // 连接重新变为可写，继续发送之前未发送完的数据
+    WRITABLE,
+    // 连接因积压的字节数超过高水位而变为不可写，由提交消息的线程发起，在Writer线程中回调Handler
+    WRITABILITY_CHANGED,
+    // 发送完所有数据后关闭写端
+    SHUTDOWN,
+    // 关闭连接，由Poller在移除连接后提交，msg为连接的Mailbox，DispatchMode.INLINE模式下为null
+    CLOSE,
+    // 关闭所有连接并退出Writer线程
+    EXIT
 }
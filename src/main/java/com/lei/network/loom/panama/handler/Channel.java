@@ -4,9 +4,13 @@ import com.lei.network.loom.panama.coder.Decoder;
 import com.lei.network.loom.panama.coder.Encoder;
 import com.lei.network.loom.panama.core.Loc;
 import com.lei.network.loom.panama.core.Poller;
+import com.lei.network.loom.panama.core.SegmentMsg;
 import com.lei.network.loom.panama.core.Writer;
 import com.lei.network.loom.panama.library.Socket;
 
+import java.lang.foreign.MemorySegment;
+import java.util.Collection;
+
 /**
  * <p>
  * Channel  <br/>
@@ -35,4 +39,54 @@ public sealed interface Channel permits ChannelImpl {
 
     Loc loc();
 
+    /**
+     * 已通过sendMsg()、sendMultipleMsg()提交但尚未写入socket发送缓冲区的消息个数，消息发送完成或被丢弃时由Writer线程减少，
+     * 发送缓冲区已满时积压在Writer中的消息同样会被计入，可以作为客户端负载均衡的依据，返回值只是调用时刻的快照
+     */
+    int pendingWrites();
+
+    /**
+     * 已提交但尚未写入socket发送缓冲区的字节数，提交时按{@link #estimateSize(Object)}累加，
+     * Writer编码后替换为实际编码的字节数，发送成功或被丢弃时扣除，返回值只是调用时刻的快照
+     */
+    long pendingBytes();
+
+    /**
+     * pendingBytes超过高水位时变为false，回落至低水位以下时恢复为true，每次状态变化都会回调{@link Handler#onWritabilityChanged(Channel, boolean)}，
+     * 生产者应当在返回false时暂停发送，否则积压的数据会持续占用堆外内存
+     */
+    boolean isWritable();
+
+    /**
+     * 估算消息编码后的字节数，无法估算的消息返回0，其实际大小在Writer编码之后才会被计入pendingBytes
+     */
+    static long estimateSize(Object msg) {
+        return switch (msg) {
+            case MemorySegment segment -> segment.byteSize();
+            case SegmentMsg segmentMsg -> segmentMsg.payload().byteSize();
+            case byte[] bytes -> bytes.length;
+            case null, default -> 0L;
+        };
+    }
+
+    /**
+     * 发送一条消息，消息会在Writer线程中被编码，并与同一批次中发往当前Channel的其他消息合并发送
+     */
+    void sendMsg(Object msg);
+
+    /**
+     * 批量发送消息
+     */
+    void sendMultipleMsg(Collection<?> msgs);
+
+    /**
+     * 在所有已提交的消息发送完成后关闭写端
+     */
+    void shutdown();
+
+    /**
+     * 立即关闭连接，未发送的消息会被丢弃
+     */
+    void close();
+
 }
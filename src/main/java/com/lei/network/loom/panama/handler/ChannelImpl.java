@@ -4,23 +4,171 @@ import com.lei.network.loom.panama.coder.Decoder;
 import com.lei.network.loom.panama.coder.Encoder;
 import com.lei.network.loom.panama.core.Loc;
 import com.lei.network.loom.panama.core.Poller;
+import com.lei.network.loom.panama.core.PollerTask;
+import com.lei.network.loom.panama.core.PollerTaskType;
 import com.lei.network.loom.panama.core.Writer;
+import com.lei.network.loom.panama.core.WriterTask;
+import com.lei.network.loom.panama.core.WriterTaskType;
 import com.lei.network.loom.panama.library.Socket;
 
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * <p>
  * ChannelImpl
+ * 积压的消息个数、字节数与可写状态只通过{@link Channel}暴露只读的值，修改它们的方法只供Writer线程调用，不属于Channel接口
  * </p>
  *
  * @author 伍磊
  */
-public record ChannelImpl(
-        Socket socket,
-        Encoder encoder,
-        Decoder decoder,
-        Handler handler,
-        Poller poller,
-        Writer writer,
-        Loc loc
-) implements Channel {
+public final class ChannelImpl implements Channel {
+
+    private final Socket socket;
+
+    private final Encoder encoder;
+
+    private final Decoder decoder;
+
+    private final Handler handler;
+
+    private final Poller poller;
+
+    private final Writer writer;
+
+    private final Loc loc;
+
+    private final AtomicInteger pendingWrites = new AtomicInteger(0);
+
+    private final AtomicLong pendingBytes = new AtomicLong(0L);
+
+    private final AtomicBoolean writable = new AtomicBoolean(true);
+
+    public ChannelImpl(Socket socket, Encoder encoder, Decoder decoder, Handler handler, Poller poller, Writer writer, Loc loc) {
+        this.socket = socket;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.handler = handler;
+        this.poller = poller;
+        this.writer = writer;
+        this.loc = loc;
+    }
+
+    @Override
+    public Socket socket() {
+        return socket;
+    }
+
+    @Override
+    public Encoder encoder() {
+        return encoder;
+    }
+
+    @Override
+    public Decoder decoder() {
+        return decoder;
+    }
+
+    @Override
+    public Handler handler() {
+        return handler;
+    }
+
+    @Override
+    public Poller poller() {
+        return poller;
+    }
+
+    @Override
+    public Writer writer() {
+        return writer;
+    }
+
+    @Override
+    public Loc loc() {
+        return loc;
+    }
+
+    @Override
+    public int pendingWrites() {
+        return pendingWrites.get();
+    }
+
+    /**
+     * 由Writer线程在count条消息发送完成或被丢弃之后调用
+     */
+    public void releaseWrites(int count) {
+        pendingWrites.addAndGet(-count);
+    }
+
+    @Override
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * 由Writer线程在编码、发送或丢弃消息之后调用，delta为负数时表示扣除
+     * @return 调整之后的pendingBytes
+     */
+    public long adjustPendingBytes(long delta) {
+        return pendingBytes.addAndGet(delta);
+    }
+
+    @Override
+    public boolean isWritable() {
+        return writable.get();
+    }
+
+    /**
+     * 由Writer线程在跨越高低水位时调用，返回true表示由当前线程完成了状态变化，需要负责回调{@link Handler#onWritabilityChanged(Channel, boolean)}
+     */
+    public boolean casWritable(boolean expect, boolean update) {
+        return writable.compareAndSet(expect, update);
+    }
+
+    @Override
+    public void sendMsg(Object msg) {
+        pendingWrites.incrementAndGet();
+        acquireBytes(Channel.estimateSize(msg));
+        writer.submit(new WriterTask(WriterTaskType.SINGLE_MSG, this, msg));
+    }
+
+    @Override
+    public void sendMultipleMsg(Collection<?> msgs) {
+        pendingWrites.addAndGet(msgs.size());
+        long size = 0L;
+        for (Object msg : msgs) {
+            size += Channel.estimateSize(msg);
+        }
+        acquireBytes(size);
+        writer.submit(new WriterTask(WriterTaskType.MULTIPLE_MSG, this, msgs));
+    }
+
+    /**
+     * 在提交之前累加，超过高水位时由当前线程将连接标记为不可写，回调则交给Writer线程执行，与Writer线程中发生的状态变化保持顺序
+     */
+    private void acquireBytes(long size) {
+        if (size > 0 && pendingBytes.addAndGet(size) > writer.highWatermark() && writable.compareAndSet(true, false)) {
+            writer.submit(new WriterTask(WriterTaskType.WRITABILITY_CHANGED, this, null));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // 先回调onShutdown()，使其中发送的消息排在SHUTDOWN任务之前
+        handler.onShutdown(this);
+        writer.submit(new WriterTask(WriterTaskType.SHUTDOWN, this, null));
+    }
+
+    @Override
+    public void close() {
+        poller.submit(new PollerTask(PollerTaskType.CLOSE, this, null));
+    }
+
+    @Override
+    public String toString() {
+        return STR."ChannelImpl[socket=\{socket}, loc=\{loc}]";
+    }
 }
@@ -29,6 +29,16 @@ public interface Handler {
      */
     void onShutdown(Channel channel);
 
+    /**
+     * 连接的可写状态发生变化，writable为false时应当暂停向该连接发送数据，直到再次回调为true
+     * 在Writer线程中回调，不能执行任何阻塞操作，writable为回调时刻的状态，每次回调的值都与上一次相反，第一次回调总是false，最后一次回调总是与当前状态一致
+     * @param channel
+     * @param writable  当前是否可写
+     */
+    default void onWritabilityChanged(Channel channel, boolean writable) {
+
+    }
+
     /**
      * onRemoved()方法会在TCP连接已经彻底关闭后触发
      * 若业务方认为连接不应该在此刻断开，可以在这个方法体中发起重连
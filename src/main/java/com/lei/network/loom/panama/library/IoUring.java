@@ -0,0 +1,714 @@
+package com.lei.network.loom.panama.library;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.util.NativeUtil;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * IoUring   <br/>
+ * <ol>
+ *     <li>直接通过io_uring_setup()与io_uring_enter()系统调用创建与驱动，不依赖liburing，提交队列、完成队列与SQE数组都通过mmap()映射为MemorySegment，在Java中直接读写</li>
+ *     <li>不考虑线程安全，只能在持有它的Poller线程中使用，填充SQE时只推进本地的尾指针，直到下一次enter()才一次性发布并提交，因此一轮事件循环中产生的所有请求只需要一次系统调用</li>
+ *     <li>作为多路复用使用时，每个socket对应一个multishot的POLL_ADD请求，语义与边缘触发相同，user_data的低32位为socket，32至39位为关注的事件，高24位为注册序号，
+ *     修改或取消注册之后，旧请求残留的完成事件会因为与当前的注册不一致而被丢弃，不会投递给复用了同一文件描述符的新连接</li>
+ *     <li>io_uring的请求持有文件的引用，socket在关闭之前必须先取消注册，否则对应的连接不会被真正释放</li>
+ *     <li>注册了缓冲区环之后，通过receive()开启接收模式的socket，其可读事件由一个multishot的recv请求代替，内核在数据到达时从缓冲区环中选择一块缓冲区直接完成接收，
+ *     不再需要可读通知之后的recv()系统调用，连接本身也不持有任何读缓冲区，交给调用方的缓冲区在下一次enter()时统一归还给内核</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class IoUring {
+
+    private static final byte IORING_OP_POLL_ADD = 6;
+    private static final byte IORING_OP_POLL_REMOVE = 7;
+    private static final byte IORING_OP_ASYNC_CANCEL = 14;
+    private static final byte IORING_OP_RECV = 27;
+
+    private static final int IORING_POLL_ADD_MULTI = 1;
+    private static final short IORING_RECV_MULTISHOT = 1 << 1;
+    private static final byte IOSQE_BUFFER_SELECT = 1 << 5;
+
+    private static final int IORING_REGISTER_PBUF_RING = 22;
+
+    private static final int IORING_ENTER_GETEVENTS = 1;
+    private static final int IORING_ENTER_EXT_ARG = 1 << 3;
+
+    private static final int IORING_FEAT_SINGLE_MMAP = 1;
+    private static final int IORING_FEAT_NODROP = 1 << 1;
+    private static final int IORING_FEAT_EXT_ARG = 1 << 8;
+
+    /**
+     * 完成事件的flags中带有该标志时，表示对应的multishot请求仍然有效，之后还会继续产生完成事件
+     */
+    public static final int IORING_CQE_F_MORE = 1 << 1;
+
+    /**
+     * 完成事件的flags中带有该标志时，高16位为内核从缓冲区环中选择的缓冲区编号
+     */
+    public static final int IORING_CQE_F_BUFFER = 1;
+    public static final int IORING_CQE_BUFFER_SHIFT = 16;
+
+    // 与epoll中的EPOLLIN取值相同
+    private static final int POLL_IN = 1;
+    // user_data中事件位为该值时表示recv请求，poll请求只会使用EPOLLIN与EPOLLOUT
+    private static final int RECV_MARK = 0x80;
+    // 缓冲区环使用的组编号，每个io_uring实例只注册一个缓冲区环
+    private static final short BUFFER_GROUP = 0;
+    // 缓冲区环的长度上限
+    private static final int MAX_BUFFER_COUNT = 1 << 15;
+
+    private static final long IORING_OFF_SQ_RING = 0L;
+    private static final long IORING_OFF_CQ_RING = 0x8000000L;
+    private static final long IORING_OFF_SQES = 0x10000000L;
+
+    // struct io_uring_sqe 与 struct io_uring_cqe 的大小，以及用到的字段偏移
+    private static final long SQE_SIZE = 64L;
+    private static final long SQE_OPCODE = 0L;
+    private static final long SQE_FLAGS = 1L;
+    private static final long SQE_IOPRIO = 2L;
+    private static final long SQE_FD = 4L;
+    private static final long SQE_ADDR = 16L;
+    private static final long SQE_LEN = 24L;
+    private static final long SQE_OP_FLAGS = 28L;
+    private static final long SQE_USER_DATA = 32L;
+    private static final long SQE_BUF_GROUP = 40L;
+    private static final long CQE_SIZE = 16L;
+    private static final long CQE_USER_DATA = 0L;
+    private static final long CQE_RES = 8L;
+    private static final long CQE_FLAGS = 12L;
+    // struct io_uring_buf 的大小与字段偏移，缓冲区环的尾指针复用第一个元素的resv字段
+    private static final long BUF_SIZE = 16L;
+    private static final long BUF_ADDR = 0L;
+    private static final long BUF_LEN = 8L;
+    private static final long BUF_BID = 12L;
+    private static final long BUF_RING_TAIL = 14L;
+
+    private static final MemoryLayout sqOffsetsLayout = MemoryLayout.structLayout(
+            ValueLayout.JAVA_INT.withName("head"), ValueLayout.JAVA_INT.withName("tail"), ValueLayout.JAVA_INT.withName("ring_mask"),
+            ValueLayout.JAVA_INT.withName("ring_entries"), ValueLayout.JAVA_INT.withName("flags"), ValueLayout.JAVA_INT.withName("dropped"),
+            ValueLayout.JAVA_INT.withName("array"), ValueLayout.JAVA_INT.withName("resv1"), ValueLayout.JAVA_LONG.withName("user_addr"));
+    private static final MemoryLayout cqOffsetsLayout = MemoryLayout.structLayout(
+            ValueLayout.JAVA_INT.withName("head"), ValueLayout.JAVA_INT.withName("tail"), ValueLayout.JAVA_INT.withName("ring_mask"),
+            ValueLayout.JAVA_INT.withName("ring_entries"), ValueLayout.JAVA_INT.withName("overflow"), ValueLayout.JAVA_INT.withName("cqes"),
+            ValueLayout.JAVA_INT.withName("flags"), ValueLayout.JAVA_INT.withName("resv1"), ValueLayout.JAVA_LONG.withName("user_addr"));
+    private static final MemoryLayout paramsLayout = MemoryLayout.structLayout(
+            ValueLayout.JAVA_INT.withName("sq_entries"), ValueLayout.JAVA_INT.withName("cq_entries"), ValueLayout.JAVA_INT.withName("flags"),
+            ValueLayout.JAVA_INT.withName("sq_thread_cpu"), ValueLayout.JAVA_INT.withName("sq_thread_idle"), ValueLayout.JAVA_INT.withName("features"),
+            ValueLayout.JAVA_INT.withName("wq_fd"), MemoryLayout.sequenceLayout(3, ValueLayout.JAVA_INT).withName("resv"),
+            sqOffsetsLayout.withName("sq_off"), cqOffsetsLayout.withName("cq_off"));
+
+    /**
+     * struct io_uring_getevents_arg，通过IORING_ENTER_EXT_ARG在等待时携带超时时间
+     */
+    private static final MemoryLayout getEventsArgLayout = MemoryLayout.structLayout(
+            ValueLayout.JAVA_LONG.withName("sigmask"), ValueLayout.JAVA_INT.withName("sigmask_sz"), ValueLayout.JAVA_INT.withName("pad"), ValueLayout.JAVA_LONG.withName("ts"));
+    /**
+     * struct io_uring_buf_reg，注册缓冲区环时使用
+     */
+    private static final MemoryLayout bufRegLayout = MemoryLayout.structLayout(
+            ValueLayout.JAVA_LONG.withName("ring_addr"), ValueLayout.JAVA_INT.withName("ring_entries"), ValueLayout.JAVA_SHORT.withName("bgid"),
+            ValueLayout.JAVA_SHORT.withName("flags"), MemoryLayout.sequenceLayout(3, ValueLayout.JAVA_LONG).withName("resv"));
+    private static final MemoryLayout timespecLayout = MemoryLayout.structLayout(ValueLayout.JAVA_LONG.withName("tv_sec"), ValueLayout.JAVA_LONG.withName("tv_nsec"));
+
+    /**
+     * 队列的头尾指针由内核与用户态共同读写，需要使用对齐的访问模式以获得acquire与release语义
+     */
+    private static final VarHandle intHandle = MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_INT);
+    private static final VarHandle shortHandle = MethodHandles.memorySegmentViewVarHandle(ValueLayout.JAVA_SHORT);
+
+    private static final MethodHandle setupMethod;
+    private static final MethodHandle enterMethod;
+    private static final MethodHandle registerMethod;
+    private static final MethodHandle mmapMethod;
+    private static final MethodHandle mmapAnonymousMethod;
+    private static final MethodHandle munmapMethod;
+    private static final MethodHandle closeMethod;
+    private static final int timeoutCode;
+    private static final int noBufferCode;
+
+    static {
+        SymbolLookup symbolLookup = NativeUtil.loadLibrary(Constants.TENET);
+        setupMethod = NativeUtil.methodHandle(symbolLookup, "l_io_uring_setup", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        enterMethod = NativeUtil.methodHandle(symbolLookup, "l_io_uring_enter", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        registerMethod = NativeUtil.methodHandle(symbolLookup, "l_io_uring_register", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        mmapMethod = NativeUtil.methodHandle(symbolLookup, "l_mmap", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        mmapAnonymousMethod = NativeUtil.methodHandle(symbolLookup, "l_mmap_anonymous", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        munmapMethod = NativeUtil.methodHandle(symbolLookup, "l_munmap", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        closeMethod = NativeUtil.methodHandle(symbolLookup, "l_close", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        MethodHandle timeoutCodeMethod = NativeUtil.methodHandle(symbolLookup, "l_timeout_code", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle noBufferCodeMethod = NativeUtil.methodHandle(symbolLookup, "l_no_buffer_code", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        try {
+            timeoutCode = (int) timeoutCodeMethod.invokeExact();
+            noBufferCode = (int) noBufferCodeMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    private final int fd;
+    private final Arena arena;
+    private final MemorySegment sqRing;
+    private final MemorySegment cqRing;
+    private final MemorySegment sqes;
+    private final long sqHeadOffset;
+    private final long sqTailOffset;
+    private final long cqHeadOffset;
+    private final long cqTailOffset;
+    private final long cqesOffset;
+    private final int sqEntries;
+    private final int sqMask;
+    private final int cqMask;
+    private final MemorySegment getEventsArg;
+    private final MemorySegment timespec;
+
+    // 本地维护的提交队列尾指针，enter()时才会发布给内核
+    private int sqTail;
+    // 本地维护的完成队列头指针，consume()时发布给内核
+    private int cqHead;
+
+    // 以socket为下标，记录当前生效的POLL_ADD请求的user_data，为0表示没有注册
+    private long[] registrations = new long[Constants.KB];
+    // 以socket为下标，记录当前生效的recv请求的user_data，为0表示没有提交
+    private long[] receives = new long[Constants.KB];
+    // 以socket为下标，记录是否开启了接收模式
+    private boolean[] receiveMode = new boolean[Constants.KB];
+    private int sequence = 0;
+
+    // 以下字段只在注册了缓冲区环之后使用，bufferRing为null表示没有注册
+    private MemorySegment bufferRing = null;
+    private MemorySegment buffers = null;
+    private int bufferSize;
+    private int bufferMask;
+    // 本地维护的缓冲区环尾指针，enter()时才会发布给内核
+    private int bufferTail;
+    // 上一次enter()之后交给调用方使用的缓冲区编号，在下一次enter()时归还
+    private int[] lent;
+    private int lentCount = 0;
+
+    // 以下统计只在Poller线程中累加
+    private long enterCount = 0L;
+    private long submitCount = 0L;
+    private long completeCount = 0L;
+
+    private IoUring(int fd, MemorySegment params) {
+        int features = paramInt(params, "features");
+        if ((features & IORING_FEAT_EXT_ARG) == 0 || (features & IORING_FEAT_NODROP) == 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Current kernel doesn't support io_uring features : 0x%x", features);
+        }
+        this.fd = fd;
+        this.sqEntries = paramInt(params, "sq_entries");
+        this.sqHeadOffset = paramInt(params, "sq_off", "head");
+        this.sqTailOffset = paramInt(params, "sq_off", "tail");
+        long sqArrayOffset = paramInt(params, "sq_off", "array");
+        int cqEntries = paramInt(params, "cq_entries");
+        this.cqHeadOffset = paramInt(params, "cq_off", "head");
+        this.cqTailOffset = paramInt(params, "cq_off", "tail");
+        this.cqesOffset = paramInt(params, "cq_off", "cqes");
+        long sqRingSize = sqArrayOffset + sqEntries * Constants.INT_SIZE;
+        long cqRingSize = cqesOffset + cqEntries * CQE_SIZE;
+        // 5.4之后的内核中提交队列与完成队列共用同一块映射
+        if ((features & IORING_FEAT_SINGLE_MMAP) != 0) {
+            this.sqRing = mmap(Math.max(sqRingSize, cqRingSize), IORING_OFF_SQ_RING);
+            this.cqRing = sqRing;
+        } else {
+            this.sqRing = mmap(sqRingSize, IORING_OFF_SQ_RING);
+            this.cqRing = mmap(cqRingSize, IORING_OFF_CQ_RING);
+        }
+        this.sqes = mmap(sqEntries * SQE_SIZE, IORING_OFF_SQES);
+        // 参数中返回的是各个字段在队列映射中的偏移，掩码的值需要从映射后的内存中读取
+        this.sqMask = NativeUtil.getInt(sqRing, paramInt(params, "sq_off", "ring_mask"));
+        this.cqMask = NativeUtil.getInt(cqRing, paramInt(params, "cq_off", "ring_mask"));
+        // SQE数组的下标与提交队列中的位置一一对应，之后不再修改
+        for (int i = 0; i < sqEntries; i++) {
+            NativeUtil.setInt(sqRing, sqArrayOffset + i * Constants.INT_SIZE, i);
+        }
+        this.sqTail = (int) intHandle.getAcquire(sqRing, sqTailOffset);
+        this.cqHead = (int) intHandle.getAcquire(cqRing, cqHeadOffset);
+        this.arena = Arena.ofShared();
+        this.getEventsArg = arena.allocate(getEventsArgLayout);
+        this.timespec = arena.allocate(timespecLayout);
+        // 内核要求sigmask_sz为_NSIG / 8，sigmask为空时该字段同样需要正确填写
+        NativeUtil.setInt(getEventsArg, getEventsArgLayout.byteOffset(MemoryLayout.PathElement.groupElement("sigmask_sz")), 8);
+        getEventsArg.set(ValueLayout.ADDRESS, getEventsArgLayout.byteOffset(MemoryLayout.PathElement.groupElement("ts")), timespec);
+    }
+
+    /**
+     * 创建io_uring实例，entries为提交队列的长度，内核会向上取整为2的幂，完成队列的长度为其两倍
+     */
+    public static IoUring create(int entries) {
+        int fd;
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment params = arena.allocate(paramsLayout);
+            try {
+                fd = (int) setupMethod.invokeExact(entries, params);
+            } catch (Throwable throwable) {
+                throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+            }
+            if (fd < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Failed to create io_uring instance, errno : %d", Math.abs(fd));
+            }
+            try {
+                return new IoUring(fd, params);
+            } catch (RuntimeException e) {
+                closeFd(fd);
+                throw e;
+            }
+        }
+    }
+
+    private static int paramInt(MemorySegment params, String... names) {
+        MemoryLayout.PathElement[] path = Arrays.stream(names).map(MemoryLayout.PathElement::groupElement).toArray(MemoryLayout.PathElement[]::new);
+        return NativeUtil.getInt(params, paramsLayout.byteOffset(path));
+    }
+
+    private MemorySegment mmap(long len, long offset) {
+        try (Arena temp = Arena.ofConfined()) {
+            MemorySegment ptr = temp.allocate(ValueLayout.ADDRESS);
+            int r;
+            try {
+                r = (int) mmapMethod.invokeExact(fd, len, offset, ptr);
+            } catch (Throwable throwable) {
+                throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+            }
+            if (r < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Failed to map io_uring, errno : %d", Math.abs(r));
+            }
+            return ptr.get(ValueLayout.ADDRESS, 0L).reinterpret(len);
+        }
+    }
+
+    /**
+     * 申请一段匿名映射的内存，物理页只会在第一次写入时才被真正分配
+     */
+    private static MemorySegment mmapAnonymous(long len) {
+        try (Arena temp = Arena.ofConfined()) {
+            MemorySegment ptr = temp.allocate(ValueLayout.ADDRESS);
+            int r;
+            try {
+                r = (int) mmapAnonymousMethod.invokeExact(len, ptr);
+            } catch (Throwable throwable) {
+                throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+            }
+            if (r < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Failed to map buffer ring, errno : %d", Math.abs(r));
+            }
+            return ptr.get(ValueLayout.ADDRESS, 0L).reinterpret(len);
+        }
+    }
+
+    /**
+     * 注册缓冲区环，之后开启了接收模式的socket会由内核从中选择缓冲区完成接收，只能注册一次
+     * <p>
+     * 缓冲区与环本身都通过匿名映射申请，空闲的io_uring实例不会占用物理内存，总的读内存只与count * size有关，而与连接个数无关，
+     * 所有缓冲区都被占用时，内核会以ENOBUFS终止recv请求，未读取的数据保留在socket中，请求在缓冲区归还后重新提交
+     * </p>
+     * @param count 缓冲区的个数，必须为2的幂且不超过32768
+     * @param size  单个缓冲区的大小，即单个完成事件最多携带的字节数
+     */
+    public void registerBufferRing(int count, int size) {
+        if (bufferRing != null || Integer.bitCount(count) != 1 || count > MAX_BUFFER_COUNT || size <= 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Invalid io_uring buffer ring config");
+        }
+        MemorySegment ring = mmapAnonymous(count * BUF_SIZE);
+        MemorySegment data = mmapAnonymous((long) count * size);
+        int r;
+        try (Arena temp = Arena.ofConfined()) {
+            MemorySegment reg = temp.allocate(bufRegLayout);
+            NativeUtil.setLong(reg, bufRegLayout.byteOffset(MemoryLayout.PathElement.groupElement("ring_addr")), ring.address());
+            NativeUtil.setInt(reg, bufRegLayout.byteOffset(MemoryLayout.PathElement.groupElement("ring_entries")), count);
+            NativeUtil.setShort(reg, bufRegLayout.byteOffset(MemoryLayout.PathElement.groupElement("bgid")), BUFFER_GROUP);
+            r = (int) registerMethod.invokeExact(fd, IORING_REGISTER_PBUF_RING, reg, 1);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            munmap(data);
+            munmap(ring);
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to register io_uring buffer ring, errno : %d", Math.abs(r));
+        }
+        this.bufferRing = ring;
+        this.buffers = data;
+        this.bufferSize = size;
+        this.bufferMask = count - 1;
+        this.bufferTail = 0;
+        this.lent = new int[count];
+        for (int bid = 0; bid < count; bid++) {
+            recycle(bid);
+        }
+        shortHandle.setRelease(bufferRing, BUF_RING_TAIL, (short) bufferTail);
+    }
+
+    public boolean hasBufferRing() {
+        return bufferRing != null;
+    }
+
+    /**
+     * 将缓冲区放回环的尾部，尾指针在下一次enter()时发布
+     */
+    public void recycle(int bid) {
+        long offset = (bufferTail & bufferMask) * BUF_SIZE;
+        NativeUtil.setLong(bufferRing, offset + BUF_ADDR, buffers.address() + (long) bid * bufferSize);
+        NativeUtil.setInt(bufferRing, offset + BUF_LEN, bufferSize);
+        NativeUtil.setShort(bufferRing, offset + BUF_BID, (short) bid);
+        bufferTail++;
+    }
+
+    /**
+     * 将内核选择的缓冲区交给调用方使用，返回的数据在下一次enter()之前有效，之后缓冲区会被自动归还
+     */
+    public MemorySegment lend(int bid, int len) {
+        lent[lentCount++] = bid;
+        return buffers.asSlice((long) bid * bufferSize, len);
+    }
+
+    public int fd() {
+        return fd;
+    }
+
+    /**
+     * 获取下一个空闲的SQE并清零，提交队列已满时先将已有的请求提交给内核
+     * @return SQE在sqes中的偏移
+     */
+    private long nextSqe() {
+        if (sqTail - (int) intHandle.getAcquire(sqRing, sqHeadOffset) == sqEntries) {
+            int r = submit(0, 0);
+            if (r < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Failed to submit io_uring requests, errno : %d", Math.abs(r));
+            }
+        }
+        long offset = (sqTail & sqMask) * SQE_SIZE;
+        for (long i = 0L; i < SQE_SIZE; i += Constants.LONG_SIZE) {
+            NativeUtil.setLong(sqes, offset + i, 0L);
+        }
+        sqTail++;
+        return offset;
+    }
+
+    /**
+     * 修改socket关注的poll事件，事件与当前的注册一致时直接返回，events为0时表示取消注册，
+     * 请求只会被放入提交队列，由下一次enter()统一提交，因此不会返回错误，注册失败时会产生一个res为负数的完成事件
+     * @param events poll事件的掩码，与epoll中的EPOLLIN、EPOLLOUT取值相同
+     */
+    public void poll(int socket, int events) {
+        ensureCapacity(socket);
+        if (receiveMode[socket]) {
+            // 可读事件由recv请求代替，poll请求只负责剩余的事件
+            updateReceive(socket, (events & POLL_IN) != 0);
+            if (events == 0) {
+                receiveMode[socket] = false;
+            }
+            events &= ~POLL_IN;
+        }
+        updatePoll(socket, events);
+    }
+
+    /**
+     * 开启socket的接收模式，之后注册的可读事件会被替换为multishot的recv请求，接收完成的数据通过recv请求的完成事件直接携带，
+     * 必须在注册可读事件之前调用，并且已经注册了缓冲区环，取消全部注册之后接收模式随之关闭
+     */
+    public void receive(int socket) {
+        if (bufferRing == null) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED);
+        }
+        ensureCapacity(socket);
+        receiveMode[socket] = true;
+    }
+
+    private void ensureCapacity(int socket) {
+        if (socket >= registrations.length) {
+            int length = Integer.highestOneBit(socket) << 1;
+            registrations = Arrays.copyOf(registrations, length);
+            receives = Arrays.copyOf(receives, length);
+            receiveMode = Arrays.copyOf(receiveMode, length);
+        }
+    }
+
+    private void updatePoll(int socket, int events) {
+        long current = registrations[socket];
+        if (current == 0L ? events == 0 : pollEvents(current) == events) {
+            return;
+        }
+        if (current != 0L) {
+            long offset = nextSqe();
+            NativeUtil.setByte(sqes, offset + SQE_OPCODE, IORING_OP_POLL_REMOVE);
+            NativeUtil.setInt(sqes, offset + SQE_FD, -1);
+            NativeUtil.setLong(sqes, offset + SQE_ADDR, current);
+        }
+        if (events == 0) {
+            registrations[socket] = 0L;
+            return;
+        }
+        long userData = nextUserData(socket, events);
+        registrations[socket] = userData;
+        pollAdd(userData);
+    }
+
+    /**
+     * 提交或取消socket上的recv请求，取消之后残留的完成事件同样会因为与当前的请求不一致而被丢弃
+     */
+    private void updateReceive(int socket, boolean enabled) {
+        long current = receives[socket];
+        if ((current != 0L) == enabled) {
+            return;
+        }
+        if (current != 0L) {
+            long offset = nextSqe();
+            NativeUtil.setByte(sqes, offset + SQE_OPCODE, IORING_OP_ASYNC_CANCEL);
+            NativeUtil.setInt(sqes, offset + SQE_FD, -1);
+            NativeUtil.setLong(sqes, offset + SQE_ADDR, current);
+            receives[socket] = 0L;
+            return;
+        }
+        long userData = nextUserData(socket, RECV_MARK);
+        receives[socket] = userData;
+        recvAdd(userData);
+    }
+
+    private long nextUserData(int socket, int events) {
+        sequence = (sequence + 1) & 0xFFFFFF;
+        if (sequence == 0) {
+            sequence = 1;
+        }
+        return ((long) sequence << 40) | ((long) (events & 0xFF) << 32) | Integer.toUnsignedLong(socket);
+    }
+
+    private void pollAdd(long userData) {
+        long offset = nextSqe();
+        NativeUtil.setByte(sqes, offset + SQE_OPCODE, IORING_OP_POLL_ADD);
+        NativeUtil.setInt(sqes, offset + SQE_FD, pollSocket(userData));
+        NativeUtil.setInt(sqes, offset + SQE_LEN, IORING_POLL_ADD_MULTI);
+        NativeUtil.setInt(sqes, offset + SQE_OP_FLAGS, pollEvents(userData));
+        NativeUtil.setLong(sqes, offset + SQE_USER_DATA, userData);
+    }
+
+    /**
+     * 提交multishot的recv请求，由内核从缓冲区环中选择缓冲区
+     */
+    private void recvAdd(long userData) {
+        long offset = nextSqe();
+        NativeUtil.setByte(sqes, offset + SQE_OPCODE, IORING_OP_RECV);
+        NativeUtil.setByte(sqes, offset + SQE_FLAGS, IOSQE_BUFFER_SELECT);
+        NativeUtil.setShort(sqes, offset + SQE_IOPRIO, IORING_RECV_MULTISHOT);
+        NativeUtil.setInt(sqes, offset + SQE_FD, pollSocket(userData));
+        NativeUtil.setShort(sqes, offset + SQE_BUF_GROUP, BUFFER_GROUP);
+        NativeUtil.setLong(sqes, offset + SQE_USER_DATA, userData);
+    }
+
+    /**
+     * 完成事件是否属于socket当前生效的注册，不属于时说明是已经被修改或取消的旧请求产生的，应当直接丢弃，
+     * recv请求的完成事件若携带了缓冲区，丢弃时需要将缓冲区归还
+     */
+    public boolean isCurrentPoll(long userData) {
+        int socket = pollSocket(userData);
+        if (userData == 0L || socket < 0 || socket >= registrations.length) {
+            return false;
+        }
+        return isRecv(userData) ? receives[socket] == userData : registrations[socket] == userData;
+    }
+
+    /**
+     * 完成事件是否由recv请求产生
+     */
+    public static boolean isRecv(long userData) {
+        return pollEvents(userData) == RECV_MARK;
+    }
+
+    /**
+     * multishot请求在内核无法继续保持时会终止，此时完成事件不带有IORING_CQE_F_MORE标志，需要以相同的注册重新提交
+     */
+    public void rearmPoll(long userData) {
+        if (isRecv(userData)) {
+            recvAdd(userData);
+        } else {
+            pollAdd(userData);
+        }
+    }
+
+    public static int pollSocket(long userData) {
+        return (int) userData;
+    }
+
+    private static int pollEvents(long userData) {
+        return (int) (userData >>> 32) & 0xFF;
+    }
+
+    /**
+     * 归还上一轮交给调用方的缓冲区，提交所有积压的请求，并在timeout毫秒内等待至少一个完成事件，timeout为0时不等待，为负数时一直等待，
+     * 完成队列中已经存在未处理的事件时同样不会等待，timeout为0且没有需要提交的请求时不会产生任何系统调用
+     * @return 提交的请求个数，超时返回0，失败返回负数形式的 errno
+     */
+    public int enter(int timeout) {
+        if (bufferRing != null) {
+            for (int i = 0; i < lentCount; i++) {
+                recycle(lent[i]);
+            }
+            lentCount = 0;
+            shortHandle.setRelease(bufferRing, BUF_RING_TAIL, (short) bufferTail);
+        }
+        int pending = publish();
+        if (timeout == 0 || ready() > 0) {
+            return pending == 0 ? 0 : submit(pending, 0);
+        }
+        int flags = IORING_ENTER_GETEVENTS;
+        MemorySegment arg = NativeUtil.NULL_POINTER;
+        long argSize = 0L;
+        if (timeout > 0) {
+            NativeUtil.setLong(timespec, 0L, timeout / 1000);
+            NativeUtil.setLong(timespec, Constants.LONG_SIZE, (timeout % 1000) * 1000_000L);
+            flags |= IORING_ENTER_EXT_ARG;
+            arg = getEventsArg;
+            argSize = getEventsArg.byteSize();
+        }
+        int r = doEnter(pending, 1, flags, arg, argSize);
+        return r == -timeoutCode ? 0 : r;
+    }
+
+    private int submit(int minComplete, int flags) {
+        return doEnter(publish(), minComplete, flags, NativeUtil.NULL_POINTER, 0L);
+    }
+
+    /**
+     * 发布本地的尾指针
+     * @return 尚未被内核消费的请求个数
+     */
+    private int publish() {
+        intHandle.setRelease(sqRing, sqTailOffset, sqTail);
+        return sqTail - (int) intHandle.getAcquire(sqRing, sqHeadOffset);
+    }
+
+    private int doEnter(int toSubmit, int minComplete, int flags, MemorySegment arg, long argSize) {
+        int r;
+        try {
+            r = (int) enterMethod.invokeExact(fd, toSubmit, minComplete, flags, arg, argSize);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        enterCount++;
+        if (r > 0) {
+            submitCount += r;
+        }
+        return r;
+    }
+
+    /**
+     * 完成队列中尚未处理的事件个数
+     */
+    public int ready() {
+        return (int) intHandle.getAcquire(cqRing, cqTailOffset) - cqHead;
+    }
+
+    /**
+     * 以下三个方法读取完成队列中从头部开始的第index个事件，index必须小于ready()
+     */
+    public long cqeUserData(int index) {
+        return NativeUtil.getLong(cqRing, cqeOffset(index) + CQE_USER_DATA);
+    }
+
+    public int cqeRes(int index) {
+        return NativeUtil.getInt(cqRing, cqeOffset(index) + CQE_RES);
+    }
+
+    public int cqeFlags(int index) {
+        return NativeUtil.getInt(cqRing, cqeOffset(index) + CQE_FLAGS);
+    }
+
+    private long cqeOffset(int index) {
+        return cqesOffset + ((cqHead + index) & cqMask) * CQE_SIZE;
+    }
+
+    /**
+     * 将前count个完成事件归还给内核
+     */
+    public void consume(int count) {
+        cqHead += count;
+        completeCount += count;
+        intHandle.setRelease(cqRing, cqHeadOffset, cqHead);
+    }
+
+    /**
+     * recv请求因为缓冲区环中没有空闲的缓冲区而失败时返回的 errno
+     */
+    public static int noBufferCode() {
+        return noBufferCode;
+    }
+
+    /**
+     * io_uring_enter()的调用次数
+     */
+    public long enterCount() {
+        return enterCount;
+    }
+
+    /**
+     * 通过io_uring_enter()提交的请求总数，与enterCount()的比值即为平均每次系统调用提交的请求个数
+     */
+    public long submitCount() {
+        return submitCount;
+    }
+
+    /**
+     * 已经处理的完成事件总数
+     */
+    public long completeCount() {
+        return completeCount;
+    }
+
+    /**
+     * 关闭io_uring实例，所有未完成的请求都会被内核取消，其持有的文件引用也随之释放，缓冲区环在实例关闭之后才会被释放
+     */
+    public void close() {
+        try {
+            munmap(sqes);
+            if (cqRing != sqRing) {
+                munmap(cqRing);
+            }
+            munmap(sqRing);
+        } finally {
+            arena.close();
+            closeFd(fd);
+        }
+        if (bufferRing != null) {
+            munmap(buffers);
+            munmap(bufferRing);
+        }
+    }
+
+    private static void munmap(MemorySegment segment) {
+        int r;
+        try {
+            r = (int) munmapMethod.invokeExact(segment, segment.byteSize());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to unmap io_uring, errno : %d", Math.abs(r));
+        }
+    }
+
+    private static void closeFd(int fd) {
+        int r;
+        try {
+            r = (int) closeMethod.invokeExact(fd);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to close io_uring instance, errno : %d", Math.abs(r));
+        }
+    }
+}
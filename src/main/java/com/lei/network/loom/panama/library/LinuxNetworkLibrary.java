@@ -1,5 +1,20 @@
 package com.lei.network.loom.panama.library;
 
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.core.IpType;
+import com.lei.network.loom.panama.core.Loc;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.util.NativeUtil;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
 /**
  * <p>
  * LinuxNetworkLibrary
@@ -8,4 +23,657 @@ package com.lei.network.loom.panama.library;
  * @author 伍磊
  */
 public final class LinuxNetworkLibrary implements OsNetworkLibrary {
+
+    private static final int EPOLL_CTL_ADD = 1;
+    private static final int EPOLL_CTL_DEL = 2;
+    private static final int EPOLL_CTL_MOD = 3;
+
+    private static final int EPOLL_IN = 0x001;
+    private static final int EPOLL_OUT = 0x004;
+    private static final int EPOLL_ERR = 0x008;
+    private static final int EPOLL_HUP = 0x010;
+    private static final int EPOLL_ET = 1 << 31;
+    // epoll_wait()不会返回EPOLLONESHOT，借用该位标记io_uring的接收完成事件，此时低16位为缓冲区编号
+    private static final int URING_RECV = 1 << 30;
+    private static final int NO_BUFFER = 0xFFFF;
+    // glibc中cpu_set_t能够表示的CPU个数，即CPU_SETSIZE
+    private static final int CPU_SET_SIZE = 1024;
+
+    /**
+     * x86_64 下 struct epoll_event 被声明为 __attribute__((packed))，大小为12字节，data 紧跟在 events 之后，
+     * 其他架构下 data 按照8字节对齐，整个结构体为16字节，我们只使用 data 中的 fd 字段，因此只需要读写其中的4个字节，
+     * io_uring的接收完成事件借用 data 剩余的4个字节存放recv的结果
+     */
+    private static final boolean packedEvent = "amd64".equals(System.getProperty("os.arch")) || "x86_64".equals(System.getProperty("os.arch"));
+    private static final MemoryLayout epollEventLayout = packedEvent ?
+            MemoryLayout.structLayout(ValueLayout.JAVA_INT.withName("events"), ValueLayout.JAVA_INT.withName("fd"), ValueLayout.JAVA_INT.withName("res")) :
+            MemoryLayout.structLayout(ValueLayout.JAVA_INT.withName("events"), MemoryLayout.paddingLayout(4), ValueLayout.JAVA_INT.withName("fd"), ValueLayout.JAVA_INT.withName("res"));
+    private static final long eventSize = epollEventLayout.byteSize();
+    private static final long eventsOffset = epollEventLayout.byteOffset(MemoryLayout.PathElement.groupElement("events"));
+    private static final long fdOffset = epollEventLayout.byteOffset(MemoryLayout.PathElement.groupElement("fd"));
+    private static final long resOffset = epollEventLayout.byteOffset(MemoryLayout.PathElement.groupElement("res"));
+
+    private static final MemoryLayout ioVecLayout = MemoryLayout.structLayout(ValueLayout.ADDRESS.withName("iov_base"), ValueLayout.JAVA_LONG.withName("iov_len"));
+    private static final long ioVecSize = ioVecLayout.byteSize();
+    private static final long ioVecBaseOffset = ioVecLayout.byteOffset(MemoryLayout.PathElement.groupElement("iov_base"));
+    private static final long ioVecLenOffset = ioVecLayout.byteOffset(MemoryLayout.PathElement.groupElement("iov_len"));
+
+    /**
+     * epoll_ctl() 需要传入一个 epoll_event 结构体，ctl 可能在 Poller 或 Writer 等不同的线程中被调用，
+     * 因此为每个线程准备一块可复用的内存，避免每次调用都重新申请堆外内存
+     */
+    private static final ThreadLocal<MemorySegment> ctlEvent = ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(epollEventLayout));
+
+    /**
+     * 解析对端地址时用于存放 inet_ntop() 结果的字符串缓冲区，同样按线程复用
+     */
+    private static final ThreadLocal<MemorySegment> addressStr = ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(LinuxNetworkLibrary.ipv6AddressLen));
+
+    /**
+     * getsockopt(SO_ERROR) 的输出参数
+     */
+    private static final ThreadLocal<MemorySegment> errOpt = ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(ValueLayout.JAVA_INT));
+
+    // sockaddr_in、sockaddr_in6 的大小与对齐，以及地址字符串的最大长度
+    private static final int ipv4AddressLen;
+    private static final int ipv6AddressLen;
+    private static final int ipv4AddressSize;
+    private static final int ipv6AddressSize;
+    private static final int ipv4AddressAlign;
+    private static final int ipv6AddressAlign;
+
+    private static final MethodHandle sendBlockCodeMethod;
+    private static final MethodHandle connectBlockCodeMethod;
+    private static final MethodHandle interruptCodeMethod;
+    private static final MethodHandle epollCreateMethod;
+    private static final MethodHandle epollCtlMethod;
+    private static final MethodHandle epollWaitMethod;
+    private static final MethodHandle recvMethod;
+    private static final MethodHandle sendMethod;
+    private static final MethodHandle iovMaxMethod;
+    private static final MethodHandle writevMethod;
+    private static final MethodHandle readvMethod;
+    private static final MethodHandle sendmsgMethod;
+    private static final MethodHandle ipv4SocketCreateMethod;
+    private static final MethodHandle ipv6SocketCreateMethod;
+    private static final MethodHandle setIpv4SockAddrMethod;
+    private static final MethodHandle setIpv6SockAddrMethod;
+    private static final MethodHandle setReuseAddrMethod;
+    private static final MethodHandle setReusePortMethod;
+    private static final MethodHandle setKeepAliveMethod;
+    private static final MethodHandle setTcpNoDelayMethod;
+    private static final MethodHandle setBusyPollMethod;
+    private static final MethodHandle setAffinityMethod;
+    private static final MethodHandle getAffinityMethod;
+    private static final MethodHandle setIpv6OnlyMethod;
+    private static final MethodHandle setNonBlockingMethod;
+    private static final MethodHandle getErrOptMethod;
+    private static final MethodHandle bindMethod;
+    private static final MethodHandle listenMethod;
+    private static final MethodHandle connectMethod;
+    private static final MethodHandle acceptMethod;
+    private static final MethodHandle getIpv4AddressMethod;
+    private static final MethodHandle getIpv6AddressMethod;
+    private static final MethodHandle ipv4PortMethod;
+    private static final MethodHandle ipv6PortMethod;
+    private static final MethodHandle shutdownWriteMethod;
+    private static final MethodHandle closeMethod;
+
+    static {
+        SymbolLookup symbolLookup = NativeUtil.loadLibrary(Constants.TENET);
+        sendBlockCodeMethod = NativeUtil.methodHandle(symbolLookup, "l_send_block_code", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        connectBlockCodeMethod = NativeUtil.methodHandle(symbolLookup, "l_connect_block_code", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        interruptCodeMethod = NativeUtil.methodHandle(symbolLookup, "l_interrupt_code", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        epollCreateMethod = NativeUtil.methodHandle(symbolLookup, "l_epoll_create", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        epollCtlMethod = NativeUtil.methodHandle(symbolLookup, "l_epoll_ctl", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        epollWaitMethod = NativeUtil.methodHandle(symbolLookup, "l_epoll_wait", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        recvMethod = NativeUtil.methodHandle(symbolLookup, "l_recv", FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        sendMethod = NativeUtil.methodHandle(symbolLookup, "l_send", FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        iovMaxMethod = NativeUtil.methodHandle(symbolLookup, "l_iov_max", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        writevMethod = NativeUtil.methodHandle(symbolLookup, "l_writev", FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        readvMethod = NativeUtil.methodHandle(symbolLookup, "l_readv", FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        sendmsgMethod = NativeUtil.methodHandle(symbolLookup, "l_sendmsg", FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        ipv4SocketCreateMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv4_socket_create", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        ipv6SocketCreateMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv6_socket_create", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        setIpv4SockAddrMethod = NativeUtil.methodHandle(symbolLookup, "l_set_ipv4_sock_addr", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_SHORT));
+        setIpv6SockAddrMethod = NativeUtil.methodHandle(symbolLookup, "l_set_ipv6_sock_addr", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_SHORT));
+        setReuseAddrMethod = NativeUtil.methodHandle(symbolLookup, "l_set_reuse_addr", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setReusePortMethod = NativeUtil.methodHandle(symbolLookup, "l_set_reuse_port", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setKeepAliveMethod = NativeUtil.methodHandle(symbolLookup, "l_set_keep_alive", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setTcpNoDelayMethod = NativeUtil.methodHandle(symbolLookup, "l_set_tcp_no_delay", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setBusyPollMethod = NativeUtil.methodHandle(symbolLookup, "l_set_busy_poll", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setAffinityMethod = NativeUtil.methodHandle(symbolLookup, "l_set_affinity", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        getAffinityMethod = NativeUtil.methodHandle(symbolLookup, "l_get_affinity", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        setIpv6OnlyMethod = NativeUtil.methodHandle(symbolLookup, "l_set_ipv6_only", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        setNonBlockingMethod = NativeUtil.methodHandle(symbolLookup, "l_set_nonblocking", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        getErrOptMethod = NativeUtil.methodHandle(symbolLookup, "l_get_err_opt", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        bindMethod = NativeUtil.methodHandle(symbolLookup, "l_bind", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        listenMethod = NativeUtil.methodHandle(symbolLookup, "l_listen", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        connectMethod = NativeUtil.methodHandle(symbolLookup, "l_connect", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        acceptMethod = NativeUtil.methodHandle(symbolLookup, "l_accept4", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        getIpv4AddressMethod = NativeUtil.methodHandle(symbolLookup, "l_get_ipv4_address", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        getIpv6AddressMethod = NativeUtil.methodHandle(symbolLookup, "l_get_ipv6_address", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        ipv4PortMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv4_port", FunctionDescriptor.of(ValueLayout.JAVA_SHORT, ValueLayout.ADDRESS));
+        ipv6PortMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv6_port", FunctionDescriptor.of(ValueLayout.JAVA_SHORT, ValueLayout.ADDRESS));
+        shutdownWriteMethod = NativeUtil.methodHandle(symbolLookup, "l_shutdown_write", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        closeMethod = NativeUtil.methodHandle(symbolLookup, "l_close", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+        MethodHandle ipv4AddressLenMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv4_address_len", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle ipv6AddressLenMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv6_address_len", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle ipv4AddressSizeMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv4_address_size", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle ipv6AddressSizeMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv6_address_size", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle ipv4AddressAlignMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv4_address_align", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        MethodHandle ipv6AddressAlignMethod = NativeUtil.methodHandle(symbolLookup, "l_ipv6_address_align", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        try {
+            ipv4AddressLen = (int) ipv4AddressLenMethod.invokeExact();
+            ipv6AddressLen = (int) ipv6AddressLenMethod.invokeExact();
+            ipv4AddressSize = (int) ipv4AddressSizeMethod.invokeExact();
+            ipv6AddressSize = (int) ipv6AddressSizeMethod.invokeExact();
+            ipv4AddressAlign = (int) ipv4AddressAlignMethod.invokeExact();
+            ipv6AddressAlign = (int) ipv6AddressAlignMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    private final int sendBlockCode;
+    private final int connectBlockCode;
+    private final int interruptCode;
+    private final int ioVecMax;
+
+    public LinuxNetworkLibrary() {
+        try {
+            this.sendBlockCode = (int) sendBlockCodeMethod.invokeExact();
+            this.connectBlockCode = (int) connectBlockCodeMethod.invokeExact();
+            this.interruptCode = (int) interruptCodeMethod.invokeExact();
+            this.ioVecMax = (int) iovMaxMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int sendBlockCode() {
+        return sendBlockCode;
+    }
+
+    @Override
+    public int connectBlockCode() {
+        return connectBlockCode;
+    }
+
+    @Override
+    public int interruptCode() {
+        return interruptCode;
+    }
+
+    @Override
+    public Mux createMux(boolean edgeTriggered) {
+        int epfd;
+        try {
+            epfd = (int) epollCreateMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (epfd < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to create epoll instance, errno : %d", Math.abs(epfd));
+        }
+        return Mux.linux(epfd, edgeTriggered);
+    }
+
+    @Override
+    public Mux createUringMux(int entries, int bufferCount, int bufferSize) {
+        IoUring uring = IoUring.create(entries);
+        if (bufferCount > 0) {
+            try {
+                uring.registerBufferRing(bufferCount, bufferSize);
+            } catch (RuntimeException e) {
+                uring.close();
+                throw e;
+            }
+        }
+        return Mux.uring(uring);
+    }
+
+    @Override
+    public MemoryLayout eventLayout() {
+        return epollEventLayout;
+    }
+
+    @Override
+    public int ctl(Mux mux, Socket socket, int from, int to) {
+        if (from == to) {
+            return 0;
+        }
+        int fd = socket.intValue();
+        if (mux.uring() != null) {
+            // poll事件的取值与epoll相同，请求在下一次muxWait()时统一提交
+            mux.uring().poll(fd, epollEvents(to));
+            return 0;
+        }
+        int op = from == Constants.NET_NONE ? EPOLL_CTL_ADD : to == Constants.NET_NONE ? EPOLL_CTL_DEL : EPOLL_CTL_MOD;
+        MemorySegment ev = ctlEvent.get();
+        NativeUtil.setInt(ev, eventsOffset, mux.edgeTriggered() ? epollEvents(to) | EPOLL_ET : epollEvents(to));
+        NativeUtil.setInt(ev, fdOffset, fd);
+        try {
+            return (int) epollCtlMethod.invokeExact(mux.epfd(), op, fd, ev);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    private static int epollEvents(int state) {
+        int events = 0;
+        if ((state & Constants.NET_R) == Constants.NET_R) {
+            events |= EPOLL_IN;
+        }
+        if ((state & Constants.NET_W) == Constants.NET_W) {
+            events |= EPOLL_OUT;
+        }
+        return events;
+    }
+
+    @Override
+    public int muxWait(Mux mux, MemorySegment events, int maxEvents, int timeout) {
+        if (mux.uring() != null) {
+            return uringWait(mux.uring(), events, maxEvents, timeout);
+        }
+        try {
+            return (int) epollWaitMethod.invokeExact(mux.epfd(), events, maxEvents, timeout);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    /**
+     * 提交积压的请求并等待完成事件，之后将poll请求的完成事件转换为epoll_event的格式写入events，
+     * 旧注册残留的完成事件会被直接丢弃，超过maxEvents的完成事件留在完成队列中，由下一次调用继续处理，
+     * recv请求的完成事件被标记为URING_RECV，缓冲区编号与接收结果一起写入events，因为缓冲区不足而失败的完成事件不会投递，只重新提交请求
+     */
+    private static int uringWait(IoUring uring, MemorySegment events, int maxEvents, int timeout) {
+        int r = uring.enter(timeout);
+        if (r < 0) {
+            return r;
+        }
+        int ready = uring.ready();
+        int count = 0;
+        int index = 0;
+        for (; index < ready && count < maxEvents; index++) {
+            long userData = uring.cqeUserData(index);
+            if (IoUring.isRecv(userData)) {
+                if (uringRecv(uring, userData, index, events, count * eventSize)) {
+                    count++;
+                }
+                continue;
+            }
+            if (!uring.isCurrentPoll(userData)) {
+                continue;
+            }
+            int res = uring.cqeRes(index);
+            if (res >= 0 && (uring.cqeFlags(index) & IoUring.IORING_CQE_F_MORE) == 0) {
+                uring.rearmPoll(userData);
+            }
+            long offset = count * eventSize;
+            // 注册失败时同样作为错误事件投递，由对应的节点关闭连接
+            NativeUtil.setInt(events, offset + eventsOffset, res < 0 ? EPOLL_ERR : res);
+            NativeUtil.setInt(events, offset + fdOffset, IoUring.pollSocket(userData));
+            count++;
+        }
+        uring.consume(index);
+        return count;
+    }
+
+    /**
+     * 转换recv请求的完成事件，请求终止时只有接收到数据或缓冲区不足的情况下才重新提交，EOF与错误由对应的节点关闭连接
+     * @return 是否写入了events
+     */
+    private static boolean uringRecv(IoUring uring, long userData, int index, MemorySegment events, long offset) {
+        int res = uring.cqeRes(index);
+        int flags = uring.cqeFlags(index);
+        int bid = (flags & IoUring.IORING_CQE_F_BUFFER) != 0 ? flags >>> IoUring.IORING_CQE_BUFFER_SHIFT : NO_BUFFER;
+        if (!uring.isCurrentPoll(userData)) {
+            if (bid != NO_BUFFER) {
+                uring.recycle(bid);
+            }
+            return false;
+        }
+        boolean noBuffer = res == -IoUring.noBufferCode();
+        if ((flags & IoUring.IORING_CQE_F_MORE) == 0 && (res > 0 || noBuffer)) {
+            uring.rearmPoll(userData);
+        }
+        if (noBuffer) {
+            return false;
+        }
+        NativeUtil.setInt(events, offset + eventsOffset, URING_RECV | bid);
+        NativeUtil.setInt(events, offset + fdOffset, IoUring.pollSocket(userData));
+        NativeUtil.setInt(events, offset + resOffset, res);
+        return true;
+    }
+
+    @Override
+    public int eventSocket(MemorySegment events, int index) {
+        return NativeUtil.getInt(events, index * eventSize + fdOffset);
+    }
+
+    @Override
+    public int eventType(MemorySegment events, int index) {
+        int e = NativeUtil.getInt(events, index * eventSize + eventsOffset);
+        if ((e & URING_RECV) != 0) {
+            return Constants.NET_RECV;
+        }
+        if ((e & (EPOLL_ERR | EPOLL_HUP)) != 0) {
+            return Constants.NET_OTHER;
+        }
+        boolean readable = (e & EPOLL_IN) != 0;
+        boolean writable = (e & EPOLL_OUT) != 0;
+        if (readable && writable) {
+            return Constants.NET_RW;
+        } else if (readable) {
+            return Constants.NET_R;
+        } else if (writable) {
+            return Constants.NET_W;
+        } else {
+            return Constants.NET_OTHER;
+        }
+    }
+
+    @Override
+    public int eventReceived(MemorySegment events, int index) {
+        return NativeUtil.getInt(events, index * eventSize + resOffset);
+    }
+
+    @Override
+    public MemorySegment eventBuffer(Mux mux, MemorySegment events, int index) {
+        int bid = NativeUtil.getInt(events, index * eventSize + eventsOffset) & NO_BUFFER;
+        int res = eventReceived(events, index);
+        return bid == NO_BUFFER ? NativeUtil.NULL_POINTER : mux.uring().lend(bid, Math.max(res, 0));
+    }
+
+    @Override
+    public void exitMux(Mux mux) {
+        if (mux.uring() != null) {
+            mux.uring().close();
+            return;
+        }
+        int r;
+        try {
+            r = (int) closeMethod.invokeExact(mux.epfd());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to close epoll instance, errno : %d", Math.abs(r));
+        }
+    }
+
+    @Override
+    public int recv(Socket socket, MemorySegment data, int len) {
+        try {
+            return (int) (long) recvMethod.invokeExact(socket.intValue(), data, (long) len);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int send(Socket socket, MemorySegment data, int len) {
+        try {
+            return (int) (long) sendMethod.invokeExact(socket.intValue(), data, (long) len);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int ioVecMax() {
+        return ioVecMax;
+    }
+
+    @Override
+    public MemoryLayout ioVecLayout() {
+        return ioVecLayout;
+    }
+
+    @Override
+    public void setIoVec(MemorySegment ioVecs, int index, MemorySegment data, long len) {
+        long offset = index * ioVecSize;
+        ioVecs.set(ValueLayout.ADDRESS, offset + ioVecBaseOffset, data);
+        NativeUtil.setLong(ioVecs, offset + ioVecLenOffset, len);
+    }
+
+    @Override
+    public long writev(Socket socket, MemorySegment ioVecs, int count) {
+        try {
+            return (long) writevMethod.invokeExact(socket.intValue(), ioVecs, count);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public long readv(Socket socket, MemorySegment ioVecs, int count) {
+        try {
+            return (long) readvMethod.invokeExact(socket.intValue(), ioVecs, count);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public long sendmsg(Socket socket, MemorySegment ioVecs, int count, int flags) {
+        try {
+            return (long) sendmsgMethod.invokeExact(socket.intValue(), ioVecs, count, flags);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public Socket createSocket(IpType ipType) {
+        int r;
+        try {
+            r = ipType == IpType.IPV4 ? (int) ipv4SocketCreateMethod.invokeExact() : (int) ipv6SocketCreateMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to create socket, errno : %d", Math.abs(r));
+        }
+        return new Socket(r);
+    }
+
+    @Override
+    public MemorySegment allocateSockAddr(IpType ipType, Arena arena) {
+        return ipType == IpType.IPV4 ? arena.allocate(ipv4AddressSize, ipv4AddressAlign) : arena.allocate(ipv6AddressSize, ipv6AddressAlign);
+    }
+
+    @Override
+    public MemorySegment createSockAddr(Loc loc, Arena arena) {
+        MemorySegment sockAddr = allocateSockAddr(loc.ipType(), arena);
+        MemorySegment ip = loc.ip() == null || loc.ip().isBlank() ? NativeUtil.NULL_POINTER : NativeUtil.allocateStr(arena, loc.ip());
+        int r;
+        try {
+            r = loc.ipType() == IpType.IPV4 ?
+                    (int) setIpv4SockAddrMethod.invokeExact(sockAddr, ip, loc.shorPort()) :
+                    (int) setIpv6SockAddrMethod.invokeExact(sockAddr, ip, loc.shorPort());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        // inet_pton() 在地址格式不正确时返回0
+        if (r == 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Invalid address : %s", loc.toString());
+        } else if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to set sockaddr, errno : %d", Math.abs(r));
+        }
+        return sockAddr;
+    }
+
+    @Override
+    public void configureServerSocket(Socket socket, Loc loc, SocketConfig socketConfig) {
+        int fd = socket.intValue();
+        try {
+            check((int) setReuseAddrMethod.invokeExact(fd, socketConfig.isReuseAddr() ? 1 : 0), "SO_REUSEADDR");
+            if (loc.ipType() == IpType.IPV6) {
+                check((int) setIpv6OnlyMethod.invokeExact(fd, socketConfig.isIpv6Only() ? 1 : 0), "IPV6_V6ONLY");
+            }
+            check((int) setNonBlockingMethod.invokeExact(fd), "O_NONBLOCK");
+        } catch (FrameworkException e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int setReusePort(Socket socket, boolean value) {
+        try {
+            return (int) setReusePortMethod.invokeExact(socket.intValue(), value ? 1 : 0);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int setAffinity(int cpu) {
+        try {
+            return (int) setAffinityMethod.invokeExact(cpu);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int[] getAffinity() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment cpus = arena.allocateArray(ValueLayout.JAVA_INT, CPU_SET_SIZE);
+            int r;
+            try {
+                r = (int) getAffinityMethod.invokeExact(cpus, CPU_SET_SIZE);
+            } catch (Throwable throwable) {
+                throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+            }
+            if (r < 0) {
+                throw new FrameworkException(ExceptionType.NATIVE, "Failed to get cpu affinity, errno : %d", Math.abs(r));
+            }
+            return cpus.asSlice(0, r * ValueLayout.JAVA_INT.byteSize()).toArray(ValueLayout.JAVA_INT);
+        }
+    }
+
+    @Override
+    public void configureClientSocket(Socket socket, SocketConfig socketConfig) {
+        int fd = socket.intValue();
+        try {
+            check((int) setKeepAliveMethod.invokeExact(fd, socketConfig.isKeepAlive() ? 1 : 0), "SO_KEEPALIVE");
+            check((int) setTcpNoDelayMethod.invokeExact(fd, socketConfig.isTcpNoDelay() ? 1 : 0), "TCP_NODELAY");
+            if (socketConfig.getBusyPoll() > 0) {
+                check((int) setBusyPollMethod.invokeExact(fd, socketConfig.getBusyPoll()), "SO_BUSY_POLL");
+            }
+        } catch (FrameworkException e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    private static void check(int r, String option) {
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to set %s, errno : %d", option, Math.abs(r));
+        }
+    }
+
+    @Override
+    public int bind(Socket socket, MemorySegment sockAddr) {
+        try {
+            return (int) bindMethod.invokeExact(socket.intValue(), sockAddr, (int) sockAddr.byteSize());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int listen(Socket socket, int backlog) {
+        try {
+            return (int) listenMethod.invokeExact(socket.intValue(), backlog);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int setNonBlocking(Socket socket) {
+        try {
+            return (int) setNonBlockingMethod.invokeExact(socket.intValue());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int connect(Socket socket, MemorySegment sockAddr) {
+        try {
+            return (int) connectMethod.invokeExact(socket.intValue(), sockAddr, (int) sockAddr.byteSize());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int accept(Socket socket, MemorySegment clientAddr) {
+        try {
+            return (int) acceptMethod.invokeExact(socket.intValue(), clientAddr, (int) clientAddr.byteSize());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public Loc getLoc(IpType ipType, MemorySegment sockAddr) {
+        MemorySegment str = addressStr.get();
+        int r;
+        short port;
+        try {
+            if (ipType == IpType.IPV4) {
+                r = (int) getIpv4AddressMethod.invokeExact(sockAddr, str, ipv4AddressLen);
+                port = (short) ipv4PortMethod.invokeExact(sockAddr);
+            } else {
+                r = (int) getIpv6AddressMethod.invokeExact(sockAddr, str, ipv6AddressLen);
+                port = (short) ipv6PortMethod.invokeExact(sockAddr);
+            }
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to get address, errno : %d", Math.abs(r));
+        }
+        return new Loc(ipType, NativeUtil.getStr(str, ipv6AddressLen), Short.toUnsignedInt(port));
+    }
+
+    @Override
+    public int getErrOpt(Socket socket) {
+        MemorySegment ptr = errOpt.get();
+        int r;
+        try {
+            r = (int) getErrOptMethod.invokeExact(socket.intValue(), ptr);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        return r < 0 ? r : NativeUtil.getInt(ptr, 0L);
+    }
+
+    @Override
+    public int shutdownWrite(Socket socket) {
+        try {
+            return (int) shutdownWriteMethod.invokeExact(socket.intValue());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    @Override
+    public int closeSocket(Socket socket) {
+        try {
+            return (int) closeMethod.invokeExact(socket.intValue());
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
 }
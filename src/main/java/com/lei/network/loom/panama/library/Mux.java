@@ -19,24 +19,45 @@ public record Mux(
         // linux下是int类型的普通文件描述符
         int epfd,
         // macos下是int类型的普通文件描述符
-        int kqfd
+        int kqfd,
+        // 注册至该实例的socket是否使用边缘触发，目前只有linux下的epoll与io_uring支持
+        boolean edgeTriggered,
+        // linux下使用io_uring代替epoll时不为null，只能在创建它的Poller线程中使用
+        IoUring uring
 ) {
 
     public static Mux win(MemorySegment winHandle) {
-        return new Mux(winHandle, Integer.MIN_VALUE, Integer.MIN_VALUE);
+        return new Mux(winHandle, Integer.MIN_VALUE, Integer.MIN_VALUE, false, null);
     }
 
-    public static Mux linux(int epfd) {
-        return new Mux(NativeUtil.NULL_POINTER, epfd, Integer.MIN_VALUE);
+    public static Mux linux(int epfd, boolean edgeTriggered) {
+        return new Mux(NativeUtil.NULL_POINTER, epfd, Integer.MIN_VALUE, edgeTriggered, null);
+    }
+
+    /**
+     * multishot的poll请求只在socket状态变化时产生完成事件，因此io_uring总是以边缘触发的方式工作
+     */
+    public static Mux uring(IoUring uring) {
+        return new Mux(NativeUtil.NULL_POINTER, Integer.MIN_VALUE, Integer.MIN_VALUE, true, uring);
     }
 
     public static Mux mac(int epfd) {
-        return new Mux(NativeUtil.NULL_POINTER, Integer.MIN_VALUE, epfd);
+        return new Mux(NativeUtil.NULL_POINTER, Integer.MIN_VALUE, epfd, false, null);
+    }
+
+    /**
+     * socket关闭时是否会自动从多路复用中移除，epoll与kqueue在文件描述符关闭后会自动移除，
+     * io_uring的请求持有文件的引用，必须先取消注册，否则连接不会被真正关闭
+     */
+    public boolean removedOnClose() {
+        return uring == null;
     }
 
     @Override
     public String toString() {
-        if(winHandle != NativeUtil.NULL_POINTER) {
+        if(uring != null) {
+            return STR."io_uring-\{uring.fd()}";
+        }else if(winHandle != NativeUtil.NULL_POINTER) {
             return String.valueOf(winHandle.address());
         }else if(epfd != Integer.MIN_VALUE) {
             return String.valueOf(epfd);
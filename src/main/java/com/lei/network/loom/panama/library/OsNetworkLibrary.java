@@ -1,9 +1,15 @@
 package com.lei.network.loom.panama.library;
 
+import com.lei.network.loom.panama.core.IpType;
+import com.lei.network.loom.panama.core.Loc;
 import com.lei.network.loom.panama.exception.ExceptionType;
 import com.lei.network.loom.panama.exception.FrameworkException;
 import com.lei.network.loom.panama.util.NativeUtil;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+
 /**
  * <p>
  * OsNetworkLibrary <br/>
@@ -24,5 +30,191 @@ public sealed interface OsNetworkLibrary permits WindowsNetworkLibrary, LinuxNet
         default -> throw new FrameworkException(ExceptionType.NETWORK, "Unsupported operating system");
     };
 
+    /**
+     * 非阻塞 send() 在发送缓冲区已满时返回的 errno
+     */
+    int sendBlockCode();
+
+    /**
+     * 非阻塞 connect() 无法立即完成时返回的 errno
+     */
+    int connectBlockCode();
+
+    /**
+     * 系统调用被信号中断时返回的 errno
+     */
+    int interruptCode();
+
+    /**
+     * 创建多路复用实例
+     * @param edgeTriggered 之后注册至该实例的socket是否使用边缘触发，当前系统不支持时会抛出异常
+     */
+    Mux createMux(boolean edgeTriggered);
+
+    /**
+     * 创建基于io_uring的多路复用实例，目前只有Linux支持，之后的ctl()只会将请求放入提交队列，在下一次muxWait()时统一提交
+     * @param entries     提交队列的长度，即单次系统调用最多可以提交的请求个数
+     * @param bufferCount 缓冲区环中缓冲区的个数，为0时不注册缓冲区环，socket也无法开启接收模式
+     * @param bufferSize  缓冲区环中单个缓冲区的大小
+     */
+    Mux createUringMux(int entries, int bufferCount, int bufferSize);
+
+    /**
+     * 多路复用事件数组中单个事件的内存布局，Poller 会据此一次性分配可复用的事件数组
+     */
+    MemoryLayout eventLayout();
+
+    /**
+     * 修改 socket 在多路复用中注册的事件，mux 为边缘触发时会同时带上对应的标志
+     * @param from  当前已注册的事件，取值为 NET_NONE、NET_R、NET_W、NET_RW
+     * @param to    期望注册的事件，取值同上，为 NET_NONE 时表示从多路复用中移除
+     * @return 成功返回0，失败返回负数形式的 errno
+     */
+    int ctl(Mux mux, Socket socket, int from, int to);
+
+    /**
+     * 等待多路复用事件
+     * @return 就绪的事件个数，失败返回负数形式的 errno
+     */
+    int muxWait(Mux mux, MemorySegment events, int maxEvents, int timeout);
+
+    /**
+     * 读取事件数组中第 index 个事件对应的 socket
+     */
+    int eventSocket(MemorySegment events, int index);
+
+    /**
+     * 读取事件数组中第 index 个事件的类型，返回值为 NET_R、NET_W、NET_RW、NET_OTHER，或是io_uring接收模式下的 NET_RECV
+     */
+    int eventType(MemorySegment events, int index);
+
+    /**
+     * 读取 NET_RECV 事件的接收结果
+     * @return 接收到的字节数，为0时表示对端已经关闭了连接，失败返回负数形式的 errno
+     */
+    int eventReceived(MemorySegment events, int index);
+
+    /**
+     * 读取 NET_RECV 事件中内核选择的缓冲区，其中只包含接收到的数据，在下一次muxWait()之前有效，之后会被归还给内核
+     */
+    MemorySegment eventBuffer(Mux mux, MemorySegment events, int index);
+
+    void exitMux(Mux mux);
+
+    int recv(Socket socket, MemorySegment data, int len);
+
+    int send(Socket socket, MemorySegment data, int len);
+
+    /**
+     * 单次 writev()/readv() 调用最多可传入的 iovec 个数
+     */
+    int ioVecMax();
+
+    /**
+     * struct iovec 的内存布局
+     */
+    MemoryLayout ioVecLayout();
+
+    /**
+     * 将 iovec 数组中第 index 个元素指向 data 的前 len 个字节
+     */
+    void setIoVec(MemorySegment ioVecs, int index, MemorySegment data, long len);
+
+    /**
+     * 将多个不连续的内存块通过一次系统调用发送出去，省去了先将其拷贝至同一块连续内存的开销
+     * @return 实际发送的字节数，失败返回负数形式的 errno
+     */
+    long writev(Socket socket, MemorySegment ioVecs, int count);
+
+    /**
+     * 将接收到的数据依次填充至多个不连续的内存块中
+     * @return 实际接收的字节数，失败返回负数形式的 errno
+     */
+    long readv(Socket socket, MemorySegment ioVecs, int count);
+
+    /**
+     * 与 writev() 相同，但允许额外指定 send flags，例如 MSG_NOSIGNAL、MSG_MORE
+     */
+    long sendmsg(Socket socket, MemorySegment ioVecs, int count, int flags);
+
+    /**
+     * 创建一个 TCP socket
+     */
+    Socket createSocket(IpType ipType);
+
+    /**
+     * 分配一块能够容纳对应协议族地址的 sockaddr 结构体，用于 accept() 时接收对端地址
+     */
+    MemorySegment allocateSockAddr(IpType ipType, Arena arena);
+
+    /**
+     * 分配并填充 loc 对应的 sockaddr 结构体，ip 为空时表示绑定所有地址
+     */
+    MemorySegment createSockAddr(Loc loc, Arena arena);
+
+    /**
+     * 设置服务端 socket 的选项并将其切换为非阻塞模式，SO_REUSEPORT 需要通过 setReusePort() 单独设置
+     */
+    void configureServerSocket(Socket socket, Loc loc, SocketConfig socketConfig);
+
+    /**
+     * 设置 SO_REUSEPORT，开启后多个 socket 可以同时监听同一个端口，由内核在它们之间分配新建立的连接
+     * @return 成功返回0，失败返回负数形式的 errno，当前系统不支持该选项时同样返回负数
+     */
+    int setReusePort(Socket socket, boolean value);
+
+    /**
+     * 将调用该方法的线程绑定至指定的 CPU，之后该线程只会在这个 CPU 上被调度
+     * @return 成功返回0，失败返回负数形式的 errno，cpu 不存在或不在当前进程允许的范围内时同样返回负数
+     */
+    int setAffinity(int cpu);
+
+    /**
+     * 调用该方法的线程允许运行的全部 CPU，受 taskset、cgroup cpuset 以及容器的 CPU 限制影响，只有其中的 CPU 才能通过 setAffinity() 绑定
+     */
+    int[] getAffinity();
+
+    /**
+     * 设置已建立连接的 socket 的选项，accept() 返回的 socket 已经是非阻塞模式，这里不会再额外调用 fcntl()
+     */
+    void configureClientSocket(Socket socket, SocketConfig socketConfig);
+
+    int bind(Socket socket, MemorySegment sockAddr);
+
+    int listen(Socket socket, int backlog);
+
+    /**
+     * 将 socket 切换为非阻塞模式，用于 createSocket() 创建的客户端 socket
+     * @return 成功返回0，失败返回负数形式的 errno
+     */
+    int setNonBlocking(Socket socket);
+
+    /**
+     * 发起连接，socket 处于非阻塞模式时通常返回 connectBlockCode()，连接的结果需要在 socket 可写后通过 getErrOpt() 获取
+     * @return 成功返回0，失败返回负数形式的 errno
+     */
+    int connect(Socket socket, MemorySegment sockAddr);
+
+    /**
+     * 接收一个新连接，Linux 下通过 accept4() 在同一次系统调用中将新的 socket 设置为 SOCK_NONBLOCK 与 SOCK_CLOEXEC
+     * @param clientAddr 由 allocateSockAddr() 分配，用于接收对端地址
+     * @return 新连接的 socket，已经处于非阻塞模式，失败返回负数形式的 errno
+     */
+    int accept(Socket socket, MemorySegment clientAddr);
+
+    /**
+     * 从 sockaddr 结构体中解析出对端的地址与端口
+     */
+    Loc getLoc(IpType ipType, MemorySegment sockAddr);
+
+    /**
+     * 读取 SO_ERROR，用于判断非阻塞 connect() 的结果
+     * @return socket 上挂起的错误码，0表示没有错误，读取失败返回负数形式的 errno
+     */
+    int getErrOpt(Socket socket);
+
+    int shutdownWrite(Socket socket);
+
+    int closeSocket(Socket socket);
 
 }
@@ -11,10 +11,16 @@ public final class SocketConfig {
 
     private boolean reuseAddr = true;
 
+    // 开启后每个Poller各自创建一个监听同一端口的socket，由内核在它们之间分配新建立的连接，当前系统不支持时退化为单个socket监听
+    private boolean reusePort = true;
+
     private boolean keepAlive = false;
 
     private boolean tcpNoDelay = true;
 
+    // SO_BUSY_POLL，单位微秒，为0表示不设置，仅Linux支持，接收数据时在该时间内直接轮询网卡的接收队列而不是等待中断，对本地回环无效，超过net.core.busy_read的取值需要CAP_NET_ADMIN权限
+    private int busyPoll = 0;
+
     // 针对于IPV4协议栈和IPV6协议栈的一个设定，我们在设置一个服务端socket时，是可以选择将其绑定在一个IPV4地址上还是IPV6地址上
     // PV6地址是提供了对IPV4地址的兼容的，我们选取的Windows，Linux，macOS这三个操作系统都支持在开启IPV6服务端socket监听连接时，同时支持IPV4连接和IPV6连接，这种兼容性机制使得在过渡期间可以逐步采用IPv6，而不会完全割裂与仍然使用IPv4的网络的连接
     // 如果我们强制设定了一个IPV6_V6ONLY的选项，那么在IPV6地址监听的服务端socket将不允许建立IPV4协议发起的连接，我们在配置类中默认将其设定为false，也就是默认在使用IPV6的情况下，开启IPV6与IPV4兼容的协议栈
@@ -28,6 +34,14 @@ public final class SocketConfig {
         this.reuseAddr = reuseAddr;
     }
 
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
     public boolean isKeepAlive() {
         return keepAlive;
     }
@@ -44,6 +58,14 @@ public final class SocketConfig {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    public int getBusyPoll() {
+        return busyPoll;
+    }
+
+    public void setBusyPoll(int busyPoll) {
+        this.busyPoll = busyPoll;
+    }
+
     public boolean isIpv6Only() {
         return ipv6Only;
     }
@@ -1,11 +1,215 @@
 package com.lei.network.loom.panama.library;
 
+import com.lei.network.loom.panama.core.IpType;
+import com.lei.network.loom.panama.core.Loc;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+
 /**
  * <p>
- * WindowsNetworkLibrary
+ * WindowsNetworkLibrary <br/>
+ * 目前只实现了 Linux 平台，Windows 下的调用会直接抛出异常
  * </p>
  *
  * @author 伍磊
  */
 public final class WindowsNetworkLibrary implements OsNetworkLibrary {
+
+    private static FrameworkException unsupported() {
+        return new FrameworkException(ExceptionType.NATIVE, "Operation not supported on Windows yet");
+    }
+
+    @Override
+    public int sendBlockCode() {
+        throw unsupported();
+    }
+
+    @Override
+    public int connectBlockCode() {
+        throw unsupported();
+    }
+
+    @Override
+    public int interruptCode() {
+        throw unsupported();
+    }
+
+    @Override
+    public Mux createMux(boolean edgeTriggered) {
+        throw unsupported();
+    }
+
+    @Override
+    public Mux createUringMux(int entries, int bufferCount, int bufferSize) {
+        throw unsupported();
+    }
+
+    @Override
+    public MemoryLayout eventLayout() {
+        throw unsupported();
+    }
+
+    @Override
+    public int ctl(Mux mux, Socket socket, int from, int to) {
+        throw unsupported();
+    }
+
+    @Override
+    public int muxWait(Mux mux, MemorySegment events, int maxEvents, int timeout) {
+        throw unsupported();
+    }
+
+    @Override
+    public int eventSocket(MemorySegment events, int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public int eventType(MemorySegment events, int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public int eventReceived(MemorySegment events, int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public MemorySegment eventBuffer(Mux mux, MemorySegment events, int index) {
+        throw unsupported();
+    }
+
+    @Override
+    public void exitMux(Mux mux) {
+        throw unsupported();
+    }
+
+    @Override
+    public int recv(Socket socket, MemorySegment data, int len) {
+        throw unsupported();
+    }
+
+    @Override
+    public int send(Socket socket, MemorySegment data, int len) {
+        throw unsupported();
+    }
+
+    @Override
+    public int ioVecMax() {
+        throw unsupported();
+    }
+
+    @Override
+    public MemoryLayout ioVecLayout() {
+        throw unsupported();
+    }
+
+    @Override
+    public void setIoVec(MemorySegment ioVecs, int index, MemorySegment data, long len) {
+        throw unsupported();
+    }
+
+    @Override
+    public long writev(Socket socket, MemorySegment ioVecs, int count) {
+        throw unsupported();
+    }
+
+    @Override
+    public long readv(Socket socket, MemorySegment ioVecs, int count) {
+        throw unsupported();
+    }
+
+    @Override
+    public long sendmsg(Socket socket, MemorySegment ioVecs, int count, int flags) {
+        throw unsupported();
+    }
+
+    @Override
+    public Socket createSocket(IpType ipType) {
+        throw unsupported();
+    }
+
+    @Override
+    public MemorySegment allocateSockAddr(IpType ipType, Arena arena) {
+        throw unsupported();
+    }
+
+    @Override
+    public MemorySegment createSockAddr(Loc loc, Arena arena) {
+        throw unsupported();
+    }
+
+    @Override
+    public void configureServerSocket(Socket socket, Loc loc, SocketConfig socketConfig) {
+        throw unsupported();
+    }
+
+    @Override
+    public int setReusePort(Socket socket, boolean value) {
+        throw unsupported();
+    }
+
+    @Override
+    public int setAffinity(int cpu) {
+        throw unsupported();
+    }
+
+    @Override
+    public int[] getAffinity() {
+        throw unsupported();
+    }
+
+    @Override
+    public void configureClientSocket(Socket socket, SocketConfig socketConfig) {
+        throw unsupported();
+    }
+
+    @Override
+    public int bind(Socket socket, MemorySegment sockAddr) {
+        throw unsupported();
+    }
+
+    @Override
+    public int listen(Socket socket, int backlog) {
+        throw unsupported();
+    }
+
+    @Override
+    public int setNonBlocking(Socket socket) {
+        throw unsupported();
+    }
+
+    @Override
+    public int connect(Socket socket, MemorySegment sockAddr) {
+        throw unsupported();
+    }
+
+    @Override
+    public int accept(Socket socket, MemorySegment clientAddr) {
+        throw unsupported();
+    }
+
+    @Override
+    public Loc getLoc(IpType ipType, MemorySegment sockAddr) {
+        throw unsupported();
+    }
+
+    @Override
+    public int getErrOpt(Socket socket) {
+        throw unsupported();
+    }
+
+    @Override
+    public int shutdownWrite(Socket socket) {
+        throw unsupported();
+    }
+
+    @Override
+    public int closeSocket(Socket socket) {
+        throw unsupported();
+    }
 }
@@ -0,0 +1,66 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.handler.Channel;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ * RpcCall
+ * 由RpcHandler.call()创建并通过Channel发送的请求，请求id直到在Writer线程中被RpcEncoder编码时才会分配，
+ * 编码之前已经超时的请求仍然会被完整地发送，只是不再登记，其响应会被当作没有匹配的消息交给被包装的Handler
+ * </p>
+ *
+ * @author 伍磊
+ */
+final class RpcCall {
+
+    private final RpcHandler rpcHandler;
+
+    private final Channel channel;
+
+    private final Object body;
+
+    private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+    // 超时时间，单位毫秒
+    private final long deadline;
+
+    // 编码时分配的请求id，由RpcHandler的互斥锁保护，为-1表示尚未分配
+    private long id = -1L;
+
+    RpcCall(RpcHandler rpcHandler, Channel channel, Object body, long deadline) {
+        this.rpcHandler = rpcHandler;
+        this.channel = channel;
+        this.body = body;
+        this.deadline = deadline;
+    }
+
+    RpcHandler rpcHandler() {
+        return rpcHandler;
+    }
+
+    Channel channel() {
+        return channel;
+    }
+
+    Object body() {
+        return body;
+    }
+
+    CompletableFuture<Object> future() {
+        return future;
+    }
+
+    long deadline() {
+        return deadline;
+    }
+
+    long id() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,53 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.buffer.ReadBuffer;
+import com.lei.network.loom.panama.coder.Decoder;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * RpcDecoder
+ * 与{@link RpcEncoder}对应，读取8字节大端序的请求id后将剩余的数据交给bodyDecoder，解码得到的每个实体都会被包装为{@link RpcFrame}，
+ * 只能处理完整的帧，通常作为{@link com.lei.network.loom.panama.coder.LengthFieldDecoder}的frameDecoder使用
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class RpcDecoder implements Decoder {
+
+    private static final boolean SWAP = ByteOrder.nativeOrder() != ByteOrder.BIG_ENDIAN;
+
+    private final Decoder bodyDecoder;
+
+    // 重复使用，只会在所属连接的Poller线程中调用
+    private final List<Object> bodyList = new ArrayList<>();
+
+    public RpcDecoder(Decoder bodyDecoder) {
+        if (bodyDecoder == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid rpc decoder config");
+        }
+        this.bodyDecoder = bodyDecoder;
+    }
+
+    @Override
+    public void decode(ReadBuffer readBuffer, List<Object> entityList) {
+        long id = readBuffer.readLong();
+        id = SWAP ? Long.reverseBytes(id) : id;
+        try {
+            // 与LengthFieldDecoder相同，将剩余的数据作为一个新的ReadBuffer交给bodyDecoder
+            MemorySegment remaining = readBuffer.readSegment(readBuffer.size() - readBuffer.readIndex());
+            bodyDecoder.decode(new ReadBuffer(remaining), bodyList);
+            for (Object body : bodyList) {
+                entityList.add(new RpcFrame(id, body));
+            }
+        } finally {
+            bodyList.clear();
+        }
+    }
+}
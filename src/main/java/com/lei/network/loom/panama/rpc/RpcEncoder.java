@@ -0,0 +1,51 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.buffer.WriteBuffer;
+import com.lei.network.loom.panama.coder.Encoder;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * RpcEncoder
+ * 在消息体之前写入8字节大端序的请求id，通常作为{@link com.lei.network.loom.panama.coder.LengthFieldPrepender}的bodyEncoder使用，
+ * 编码{@link RpcCall}时在Writer线程中从RpcHandler分配请求id并完成登记，之后才写入数据，保证响应不会先于登记到达，
+ * 编码{@link RpcFrame}时直接使用其携带的id，用于服务端回写响应
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class RpcEncoder implements Encoder {
+
+    private static final boolean SWAP = ByteOrder.nativeOrder() != ByteOrder.BIG_ENDIAN;
+
+    private final Encoder bodyEncoder;
+
+    public RpcEncoder(Encoder bodyEncoder) {
+        if (bodyEncoder == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid rpc encoder config");
+        }
+        this.bodyEncoder = bodyEncoder;
+    }
+
+    @Override
+    public void encode(WriteBuffer writeBuffer, Object o) {
+        if (o instanceof RpcCall call) {
+            // 编码之前已经超时的请求同样需要写入完整的帧，外层的LengthFieldPrepender已经写入了长度字段，跳过会使对端无法解码
+            long id = call.rpcHandler().register(call);
+            writeId(writeBuffer, id);
+            bodyEncoder.encode(writeBuffer, call.body());
+        } else if (o instanceof RpcFrame(long id, Object body)) {
+            writeId(writeBuffer, id);
+            bodyEncoder.encode(writeBuffer, body);
+        } else {
+            throw new FrameworkException(ExceptionType.NETWORK, "Unsupported rpc msg : %s", o.getClass().getName());
+        }
+    }
+
+    private static void writeId(WriteBuffer writeBuffer, long id) {
+        writeBuffer.writeLong(SWAP ? Long.reverseBytes(id) : id);
+    }
+}
@@ -0,0 +1,12 @@
+package com.lei.network.loom.panama.rpc;
+
+/**
+ * <p>
+ * RpcFrame
+ * 携带请求id的消息，RpcDecoder解码得到的实体均为RpcFrame，服务端处理完请求后将响应包装为相同id的RpcFrame发送即可完成关联
+ * </p>
+ *
+ * @author 伍磊
+ */
+public record RpcFrame(long id, Object body) {
+}
@@ -0,0 +1,158 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.core.Mutex;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import com.lei.network.loom.panama.util.LongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ * RpcHandler   <br/>
+ * <ol>
+ *     <li>客户端的请求响应关联层，包装业务Handler，多个请求可以同时在同一个连接上等待响应，无需为每个请求单独建立连接</li>
+ *     <li>同一个RpcHandler可以被多个连接共享，例如作为{@link com.lei.network.loom.panama.core.ConnectionPool}中所有连接的Handler，请求id在所有连接之间唯一</li>
+ *     <li>call()发送的请求在RpcEncoder中分配id并登记至pendingCalls，收到相同id的RpcFrame时完成对应的future，没有匹配的消息交给被包装的Handler处理</li>
+ *     <li>pendingCalls会被Writer线程、Poller线程与定时线程同时访问，因此由互斥锁保护</li>
+ *     <li>future在接收响应的线程中完成，DispatchMode.INLINE模式下即为Poller线程，此时不应在future的同步回调中执行耗时的操作</li>
+ *     <li>连接关闭后该连接上所有等待中的请求都会以异常完成</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class RpcHandler implements Handler {
+
+    private final Handler delegate;
+
+    private final RpcTimer rpcTimer;
+
+    // 默认的超时时间，单位毫秒
+    private final long timeout;
+
+    private final Mutex mutex = new Mutex();
+
+    // 以下两个字段由mutex保护
+    private final LongMap<RpcCall> pendingCalls = new LongMap<>(64);
+
+    private long nextId = 0L;
+
+    public RpcHandler(Handler delegate, RpcTimer rpcTimer, long timeout) {
+        if (delegate == null || rpcTimer == null) {
+            throw new NullPointerException();
+        }
+        if (timeout <= 0) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid rpc timeout");
+        }
+        this.delegate = delegate;
+        this.rpcTimer = rpcTimer;
+        this.timeout = timeout;
+    }
+
+    public CompletableFuture<Object> call(Channel channel, Object body) {
+        return call(channel, body, timeout);
+    }
+
+    /**
+     * 发送请求，channel需要使用RpcEncoder与RpcDecoder，并将接收到的消息交给当前RpcHandler处理
+     * @param timeout 超时时间，单位毫秒，超时后future以FrameworkException异常完成
+     */
+    public CompletableFuture<Object> call(Channel channel, Object body, long timeout) {
+        RpcCall call = new RpcCall(this, channel, body, System.currentTimeMillis() + timeout);
+        rpcTimer.schedule(call);
+        channel.sendMsg(call);
+        return call.future();
+    }
+
+    /**
+     * 在Writer线程中编码时调用，连接关闭之后Writer不会再编码任何消息，因此登记总是先于onRemoved()发生
+     * 请求已经完成时仍然分配id，但不再登记至pendingCalls，之后到达的响应会交给被包装的Handler
+     * @return 分配的请求id
+     */
+    long register(RpcCall call) {
+        try (Mutex _ = mutex.acquire()) {
+            long id = nextId++;
+            call.setId(id);
+            if (!call.future().isDone()) {
+                pendingCalls.put(id, call);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * 在定时线程中调用，future必须在互斥锁内完成，否则register()可能在移除之后、完成之前登记该请求，使其永远残留在pendingCalls中
+     */
+    void timeout(RpcCall call) {
+        if (call.future().isDone()) {
+            return;
+        }
+        try (Mutex _ = mutex.acquire()) {
+            if (call.id() >= 0) {
+                pendingCalls.remove(call.id(), call);
+            }
+            call.future().completeExceptionally(new FrameworkException(ExceptionType.NETWORK, "Rpc call timeout"));
+        }
+    }
+
+    /**
+     * @return 当前等待响应的请求个数
+     */
+    public int pendingCount() {
+        try (Mutex _ = mutex.acquire()) {
+            return pendingCalls.count();
+        }
+    }
+
+    @Override
+    public void onConnected(Channel channel) {
+        delegate.onConnected(channel);
+    }
+
+    @Override
+    public void onRecv(Channel channel, Object data) {
+        if (data instanceof RpcFrame(long id, Object body)) {
+            RpcCall call;
+            try (Mutex _ = mutex.acquire()) {
+                call = pendingCalls.remove(id);
+            }
+            if (call != null) {
+                call.future().complete(body);
+                return;
+            }
+        }
+        delegate.onRecv(channel, data);
+    }
+
+    @Override
+    public void onShutdown(Channel channel) {
+        delegate.onShutdown(channel);
+    }
+
+    @Override
+    public void onWritabilityChanged(Channel channel, boolean writable) {
+        delegate.onWritabilityChanged(channel, writable);
+    }
+
+    @Override
+    public void onRemoved(Channel channel) {
+        List<RpcCall> calls = new ArrayList<>();
+        try (Mutex _ = mutex.acquire()) {
+            for (RpcCall call : pendingCalls.asList()) {
+                if (call.channel() == channel) {
+                    pendingCalls.remove(call.id(), call);
+                    calls.add(call);
+                }
+            }
+        }
+        for (RpcCall call : calls) {
+            call.future().completeExceptionally(new FrameworkException(ExceptionType.NETWORK, "Channel closed before response"));
+        }
+        delegate.onRemoved(channel);
+    }
+}
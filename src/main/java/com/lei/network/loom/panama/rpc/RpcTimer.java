@@ -0,0 +1,80 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.core.AbstractLifeCycle;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.util.TimingWheel;
+import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * RpcTimer
+ * 由独立的平台线程驱动{@link TimingWheel}，负责所有RpcCall的超时，新的请求先进入无锁队列，再由定时线程统一加入时间轮，
+ * 请求正常完成时不会从时间轮中移除，到期后检查future的状态即可，因此时间轮中最多保留超时时间内发出的所有请求，
+ * 多个RpcHandler可以共享同一个RpcTimer
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class RpcTimer extends AbstractLifeCycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RpcTimer.class);
+
+    private final Queue<RpcCall> callQueue = new MpscUnboundedAtomicArrayQueue<>(1024);
+
+    private final Thread timerThread;
+
+    private volatile boolean exiting = false;
+
+    /**
+     * @param wheelSize  时间轮的槽位个数，必须为2的幂
+     * @param tickMillis 时间轮的精度，单位毫秒
+     */
+    public RpcTimer(int wheelSize, long tickMillis) {
+        if (Integer.bitCount(wheelSize) != 1 || tickMillis <= 0) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid rpc timer config");
+        }
+        this.timerThread = Thread.ofPlatform().name("rpc-timer").unstarted(() -> {
+            TimingWheel timingWheel = new TimingWheel(wheelSize, tickMillis, System.currentTimeMillis());
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+            while (!exiting) {
+                RpcCall call;
+                while ((call = callQueue.poll()) != null) {
+                    RpcCall c = call;
+                    timingWheel.schedule(() -> c.rpcHandler().timeout(c), c.deadline());
+                }
+                timingWheel.advance(System.currentTimeMillis());
+                LockSupport.parkNanos(this, tickNanos);
+            }
+            log.debug("Exiting rpc timer");
+        });
+    }
+
+    public RpcTimer() {
+        this(512, 10L);
+    }
+
+    void schedule(RpcCall call) {
+        if (!callQueue.offer(call)) {
+            throw new FrameworkException(ExceptionType.NETWORK, "Failed to schedule rpc call");
+        }
+    }
+
+    @Override
+    protected void doInit() {
+        timerThread.start();
+    }
+
+    @Override
+    protected void doExit() throws InterruptedException {
+        exiting = true;
+        LockSupport.unpark(timerThread);
+        timerThread.join();
+    }
+}
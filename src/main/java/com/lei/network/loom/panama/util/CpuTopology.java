@@ -0,0 +1,173 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * CpuTopology   <br/>
+ * <ol>
+ *     <li>从/sys/devices/system中读取CPU、NUMA节点与缓存的拓扑，用于决定Poller与Writer线程绑定的CPU</li>
+ *     <li>CPU列表统一使用内核的cpulist格式，例如"0-3,8,10-11"</li>
+ *     <li>sysfs中的拓扑是整台主机的，结果需要再与当前进程允许运行的CPU取交集，否则在受cpuset或容器限制时会选中无法绑定的CPU</li>
+ *     <li>拓扑信息无法读取时，例如非Linux系统或容器中没有挂载sysfs，退化为只有一个NUMA节点、CPU之间不共享缓存的情况</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class CpuTopology {
+
+    private static final Path CPU_PATH = Path.of("/sys/devices/system/cpu");
+    private static final Path NODE_PATH = Path.of("/sys/devices/system/node");
+
+    private CpuTopology() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 解析cpulist格式的CPU列表，结果保持书写的顺序并去除重复的CPU
+     */
+    public static int[] parse(String cpuList) {
+        if (cpuList == null || cpuList.isBlank()) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Empty cpu list");
+        }
+        Set<Integer> cpus = new LinkedHashSet<>();
+        try {
+            for (String part : cpuList.trim().split(",")) {
+                String range = part.trim();
+                int index = range.indexOf('-');
+                int from = Integer.parseInt(index < 0 ? range : range.substring(0, index).trim());
+                int to = index < 0 ? from : Integer.parseInt(range.substring(index + 1).trim());
+                if (from < 0 || to < from) {
+                    throw new FrameworkException(ExceptionType.CONTEXT, "Invalid cpu list : %s", cpuList);
+                }
+                for (int cpu = from; cpu <= to; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid cpu list : %s", cpuList);
+        }
+        return cpus.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 保留cpus中在allowed内的CPU，顺序不变
+     */
+    public static int[] filter(int[] cpus, Set<Integer> allowed) {
+        return Arrays.stream(cpus).filter(allowed::contains).toArray();
+    }
+
+    /**
+     * 将allowed中所有在线的CPU按NUMA节点交错排列，依次为第一个节点的第一个CPU、第二个节点的第一个CPU、第一个节点的第二个CPU，以此类推，
+     * 同一节点中优先排列每个物理核心的第一个超线程，其余的超线程排在该节点的最后，
+     * 因此按顺序取前n个CPU时，线程会先均匀地分布到各个节点的不同物理核心上
+     * @param allowed 当前进程允许运行的CPU
+     * @return 与allowed没有交集时返回空数组
+     */
+    public static int[] spread(Set<Integer> allowed) {
+        List<int[]> nodes = new ArrayList<>();
+        for (int node = 0; ; node++) {
+            String cpuList = read(NODE_PATH.resolve(STR."node\{node}").resolve("cpulist"));
+            if (cpuList == null) {
+                break;
+            }
+            // 没有CPU的节点，例如只有内存的节点，cpulist为空
+            if (!cpuList.isEmpty()) {
+                nodes.add(coresFirst(filter(parse(cpuList), allowed)));
+            }
+        }
+        if (nodes.isEmpty()) {
+            nodes.add(coresFirst(filter(online(), allowed)));
+        }
+        int total = nodes.stream().mapToInt(cpus -> cpus.length).sum();
+        int[] result = new int[total];
+        int index = 0;
+        for (int i = 0; index < total; i++) {
+            for (int[] cpus : nodes) {
+                if (i < cpus.length) {
+                    result[index++] = cpus[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 选择与cpu共享缓存、在allowed中并且不在excluded中的CPU，优先选择共享L2缓存的CPU，通常即为同一物理核心上的另一个超线程，其次选择共享L3缓存的CPU
+     * @return 不存在满足条件的CPU时返回cpu本身
+     */
+    public static int sibling(int cpu, Set<Integer> allowed, Set<Integer> excluded) {
+        for (int level = 2; level <= 3; level++) {
+            String cpuList = sharedCpuList(cpu, level);
+            if (cpuList != null) {
+                for (int candidate : parse(cpuList)) {
+                    if (candidate != cpu && allowed.contains(candidate) && !excluded.contains(candidate)) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return cpu;
+    }
+
+    private static int[] online() {
+        String cpuList = read(CPU_PATH.resolve("online"));
+        if (cpuList == null || cpuList.isEmpty()) {
+            return IntStream.range(0, NativeUtil.getCpuCores()).toArray();
+        }
+        return parse(cpuList);
+    }
+
+    private static int[] coresFirst(int[] cpus) {
+        List<Integer> primary = new ArrayList<>();
+        List<Integer> secondary = new ArrayList<>();
+        for (int cpu : cpus) {
+            String siblings = read(CPU_PATH.resolve(STR."cpu\{cpu}").resolve("topology").resolve("thread_siblings_list"));
+            if (siblings == null || siblings.isEmpty() || parse(siblings)[0] == cpu) {
+                primary.add(cpu);
+            } else {
+                secondary.add(cpu);
+            }
+        }
+        primary.addAll(secondary);
+        return primary.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 查找cpu的各级缓存中等级为level的统一缓存或数据缓存
+     * @return 对应缓存的shared_cpu_list，不存在时返回null
+     */
+    private static String sharedCpuList(int cpu, int level) {
+        Path cachePath = CPU_PATH.resolve(STR."cpu\{cpu}").resolve("cache");
+        for (int index = 0; ; index++) {
+            Path indexPath = cachePath.resolve(STR."index\{index}");
+            String cacheLevel = read(indexPath.resolve("level"));
+            if (cacheLevel == null) {
+                return null;
+            }
+            if (cacheLevel.equals(String.valueOf(level)) && !"Instruction".equals(read(indexPath.resolve("type")))) {
+                return read(indexPath.resolve("shared_cpu_list"));
+            }
+        }
+    }
+
+    private static String read(Path path) {
+        try {
+            return Files.readString(path).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
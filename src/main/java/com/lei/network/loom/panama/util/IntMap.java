@@ -12,8 +12,11 @@ import java.util.List;
  * 使用 int 作为 key 的map   <br/>
  * <ol>
  *     <li>不考虑线程安全</li>
- *     <li>不考虑扩容</li>
- *     <li>put时不考虑key已存在，因为此map的key用来存放socket，底层的socket不会重复</li>
+ *     <li>采用开放寻址法（线性探测），key和value分别存放在两个平行的数组中，put时不会创建任何节点对象</li>
+ *     <li>socket的值是由操作系统分配的连续的小整数，若直接使用 key & mask 作为槽位，连续的key会在数组中形成一整段没有空位的探测链，
+ *     删除元素时需要扫描整段链表，因此使用斐波那契散列将连续的key均匀打散，使每条探测链都保持在很短的长度</li>
+ *     <li>元素个数超过容量的3/4时扩容为原来的两倍，删除时通过向前移动后续元素来维持探测链，不会留下墓碑</li>
+ *     <li>put时若key已存在则直接覆盖，因为此map的key用来存放socket，底层的socket不会重复</li>
  * </ol>
  *
  * </p>
@@ -22,87 +25,139 @@ import java.util.List;
  */
 public final class IntMap<T> {
 
-    private final IntMapNode<T>[] nodes;
-    private final int mask;
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int threshold;
     private int count = 0;
 
-    @SuppressWarnings("unchecked")
     public IntMap(int size) {
         // 判断二进制中1的个数
         // 这里相当于写死了1的个数只能有1个，也就是 size = 2^n
         if (Integer.bitCount(size) != 1) {
             throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
         }
+        allocate(size);
+    }
+
+    private void allocate(int size) {
+        size = Math.max(size, 2);
+        this.keys = new int[size];
+        this.values = new Object[size];
         this.mask = size - 1;
-        this.nodes = (IntMapNode<T>[]) new IntMapNode[size];
+        this.shift = Integer.numberOfLeadingZeros(size) + 1;
+        // 至少保留一个空槽位，保证探测总能在遇到空槽位时终止
+        this.threshold = size - Math.max(size >>> 2, 1);
     }
 
-    public T get(int val) {
-        int slot = val & mask;
-        IntMapNode<T> current = nodes[slot];
-        while (current != null) {
-            if (current.val == val) {
-                return current.value;
+    /**
+     * 乘以2^32除以黄金分割比后取高位，作为key的理想槽位
+     */
+    private int slot(int val) {
+        return (val * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * 返回key所在的槽位，不存在时返回-1
+     */
+    private int indexOf(int val) {
+        int slot = slot(val);
+        for (; ; ) {
+            Object v = values[slot];
+            if (v == null) {
+                return -1;
+            }
+            if (keys[slot] == val) {
+                return slot;
             }
-            current = current.next;
+            slot = (slot + 1) & mask;
         }
-        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int val) {
+        int slot = indexOf(val);
+        return slot < 0 ? null : (T) values[slot];
     }
 
     public void put(int val, T value) {
-        IntMapNode<T> n = new IntMapNode<>();
-        n.val = val;
-        n.value = value;
-        int slot = val & mask;
-        IntMapNode<T> current = nodes[slot];
-        if (current != null) {
-            n.next = current;
-            current.prev = n;
+        if (value == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
+        }
+        if (count >= threshold) {
+            resize();
+        }
+        int slot = slot(val);
+        for (; ; ) {
+            if (values[slot] == null) {
+                keys[slot] = val;
+                values[slot] = value;
+                count++;
+                return;
+            }
+            if (keys[slot] == val) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
         }
-        nodes[slot] = n;
-        count++;
     }
 
     public void replace(int val, T oldValue, T newValue) {
-        int slot = val & mask;
-        IntMapNode<T> current = nodes[slot];
-        while (current != null) {
-            if (current.val == val && current.value == oldValue) {
-                current.value = newValue;
-                return;
-            } else {
-                current = current.next;
-            }
+        int slot = indexOf(val);
+        if (slot < 0 || values[slot] != oldValue || newValue == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
         }
-        throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
+        values[slot] = newValue;
     }
 
     public boolean remove(int val, T value) {
-        int slot = val & mask;
-        IntMapNode<T> current = nodes[slot];
-        while (current != null) {
-            if (current.val != val) {
-                current = current.next;
-            } else if (current.value != value) {
-                return false;
-            } else {
-                IntMapNode<T> prev = current.prev;
-                IntMapNode<T> next = current.next;
-                if (prev != null) {
-                    prev.next = next;
-                } else {
-                    nodes[slot] = next;
-                }
-                if (next != null) {
-                    next.prev = prev;
+        int slot = indexOf(val);
+        if (slot < 0 || values[slot] != value) {
+            return false;
+        }
+        // 将后续探测链上的元素向前移动，填补被删除的槽位
+        int i = slot;
+        int j = slot;
+        for (; ; ) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int k = slot(keys[j]);
+            // 只有当j的理想槽位k不在(i, j]这一循环区间内时，才可以将其移动到i
+            boolean movable = i <= j ? (k <= i || k > j) : (k <= i && k > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+        count--;
+        return true;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int newSize = oldKeys.length << 1;
+        if (newSize <= 0) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "IntMap size overflow");
+        }
+        allocate(newSize);
+        for (int i = 0; i < oldValues.length; i++) {
+            Object v = oldValues[i];
+            if (v != null) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
                 }
-                current.prev = null;
-                current.next = null;
-                count--;
-                return true;
+                keys[slot] = oldKeys[i];
+                values[slot] = v;
             }
         }
-        return false;
     }
 
     public int count() {
@@ -113,23 +168,14 @@ public final class IntMap<T> {
         return count == 0;
     }
 
+    @SuppressWarnings("unchecked")
     public List<T> asList() {
-        List<T> result = new ArrayList<>();
-        for (IntMapNode<T> n : nodes) {
-            IntMapNode<T> t = n;
-            while (t != null) {
-                result.add(t.value);
-                t = t.next;
+        List<T> result = new ArrayList<>(count);
+        for (Object v : values) {
+            if (v != null) {
+                result.add((T) v);
             }
         }
         return result;
     }
-
-
-    private static class IntMapNode<T> {
-        private int val;
-        private T value;
-        private IntMapNode<T> prev;
-        private IntMapNode<T> next;
-    }
 }
@@ -0,0 +1,191 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * 使用 long 作为 key 的map   <br/>
+ * <ol>
+ *     <li>不考虑线程安全</li>
+ *     <li>与{@link IntMap}的实现方式相同，采用开放寻址法（线性探测），key和value分别存放在两个平行的数组中，put时不会创建任何节点对象，也不会对key装箱</li>
+ *     <li>主要用于存放单调递增的请求id，同样使用斐波那契散列将连续的key均匀打散</li>
+ *     <li>元素个数超过容量的3/4时扩容为原来的两倍，删除时通过向前移动后续元素来维持探测链，不会留下墓碑</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class LongMap<T> {
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int threshold;
+    private int count = 0;
+
+    public LongMap(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
+        }
+        allocate(size);
+    }
+
+    private void allocate(int size) {
+        size = Math.max(size, 2);
+        this.keys = new long[size];
+        this.values = new Object[size];
+        this.mask = size - 1;
+        this.shift = Long.numberOfLeadingZeros(size) + 1;
+        // 至少保留一个空槽位，保证探测总能在遇到空槽位时终止
+        this.threshold = size - Math.max(size >>> 2, 1);
+    }
+
+    /**
+     * 乘以2^64除以黄金分割比后取高位，作为key的理想槽位
+     */
+    private int slot(long val) {
+        return (int) ((val * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * 返回key所在的槽位，不存在时返回-1
+     */
+    private int indexOf(long val) {
+        int slot = slot(val);
+        for (; ; ) {
+            Object v = values[slot];
+            if (v == null) {
+                return -1;
+            }
+            if (keys[slot] == val) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long val) {
+        int slot = indexOf(val);
+        return slot < 0 ? null : (T) values[slot];
+    }
+
+    /**
+     * key已存在时直接覆盖
+     */
+    public void put(long val, T value) {
+        if (value == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
+        }
+        if (count >= threshold) {
+            resize();
+        }
+        int slot = slot(val);
+        for (; ; ) {
+            if (values[slot] == null) {
+                keys[slot] = val;
+                values[slot] = value;
+                count++;
+                return;
+            }
+            if (keys[slot] == val) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return 被移除的value，key不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long val) {
+        int slot = indexOf(val);
+        if (slot < 0) {
+            return null;
+        }
+        T value = (T) values[slot];
+        removeAt(slot);
+        return value;
+    }
+
+    public boolean remove(long val, T value) {
+        int slot = indexOf(val);
+        if (slot < 0 || values[slot] != value) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * 将后续探测链上的元素向前移动，填补被删除的槽位
+     */
+    private void removeAt(int slot) {
+        int i = slot;
+        int j = slot;
+        for (; ; ) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int k = slot(keys[j]);
+            // 只有当j的理想槽位k不在(i, j]这一循环区间内时，才可以将其移动到i
+            boolean movable = i <= j ? (k <= i || k > j) : (k <= i && k > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+        count--;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int newSize = oldKeys.length << 1;
+        if (newSize <= 0) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "LongMap size overflow");
+        }
+        allocate(newSize);
+        for (int i = 0; i < oldValues.length; i++) {
+            Object v = oldValues[i];
+            if (v != null) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = v;
+            }
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<T> asList() {
+        List<T> result = new ArrayList<>(count);
+        for (Object v : values) {
+            if (v != null) {
+                result.add((T) v);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * <p>
+ * RpMalloc   <br/>
+ * <ol>
+ *     <li>对动态库中内置的rpmalloc进行封装，用于申请生命周期较短的堆外内存，申请与释放都不需要经过Arena，释放后内存会立即回到线程缓存中被复用</li>
+ *     <li>rpmalloc为每个线程维护独立的缓存，任何线程在调用{@link #malloc(long)}之前都必须先调用{@link #tInitialize()}，退出前调用{@link #tFinalize()}</li>
+ *     <li>线程缓存绑定在操作系统线程上，因此只适合在Poller、Writer这类平台线程中使用，虚拟线程可能会在不同的载体线程之间迁移</li>
+ *     <li>返回的MemorySegment没有绑定任何Arena，使用者需要自行保证在调用{@link #free(MemorySegment)}之后不再访问</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class RpMalloc {
+
+    private RpMalloc() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final MethodHandle tInitializeMethod;
+    private static final MethodHandle tFinalizeMethod;
+    private static final MethodHandle tInitializedMethod;
+    private static final MethodHandle mallocMethod;
+    private static final MethodHandle freeMethod;
+    private static final MethodHandle reallocMethod;
+    private static final MethodHandle alignedAllocMethod;
+    private static final long pageSize;
+
+    static {
+        SymbolLookup symbolLookup = NativeUtil.loadLibrary(Constants.TENET);
+        MethodHandle initializeMethod = NativeUtil.methodHandle(symbolLookup, "rp_initialize", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        tInitializeMethod = NativeUtil.methodHandle(symbolLookup, "rp_tinitialize", FunctionDescriptor.ofVoid());
+        tFinalizeMethod = NativeUtil.methodHandle(symbolLookup, "rp_tfinalize", FunctionDescriptor.ofVoid());
+        tInitializedMethod = NativeUtil.methodHandle(symbolLookup, "rp_tinitialized", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+        mallocMethod = NativeUtil.methodHandle(symbolLookup, "rp_malloc", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        freeMethod = NativeUtil.methodHandle(symbolLookup, "rp_free", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        reallocMethod = NativeUtil.methodHandle(symbolLookup, "rp_realloc", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        alignedAllocMethod = NativeUtil.methodHandle(symbolLookup, "rp_aligned_alloc", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        MethodHandle pageSizeMethod = NativeUtil.methodHandle(symbolLookup, "rp_page_size", FunctionDescriptor.of(ValueLayout.JAVA_LONG));
+        int r;
+        try {
+            // rpmalloc_initialize() 会同时初始化当前线程，重复调用时直接返回0
+            r = (int) initializeMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (r < 0) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to initialize rpmalloc, r : %d", r);
+        }
+        try {
+            // 页大小在初始化之后才会被确定
+            pageSize = (long) pageSizeMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    /**
+     * 初始化当前线程的缓存
+     */
+    public static void tInitialize() {
+        try {
+            tInitializeMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    /**
+     * 释放当前线程的缓存，在此之后当前线程不能再申请内存
+     */
+    public static void tFinalize() {
+        try {
+            tFinalizeMethod.invokeExact();
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    /**
+     * 当前线程是否已经完成了初始化
+     */
+    public static boolean tInitialized() {
+        try {
+            return (int) tInitializedMethod.invokeExact() != 0;
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+
+    public static MemorySegment malloc(long size) {
+        MemorySegment ptr;
+        try {
+            ptr = (MemorySegment) mallocMethod.invokeExact(size);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (NativeUtil.checkNullPointer(ptr)) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to allocate memory, size : %d", size);
+        }
+        return ptr.reinterpret(size);
+    }
+
+    /**
+     * 申请起始地址按alignment对齐的内存块，alignment必须为2的幂且不超过{@link #pageSize()}，释放时同样调用{@link #free(MemorySegment)}
+     */
+    public static MemorySegment alignedMalloc(long alignment, long size) {
+        if (Long.bitCount(alignment) != 1 || alignment > pageSize) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Invalid alignment : %d", alignment);
+        }
+        MemorySegment ptr;
+        try {
+            ptr = (MemorySegment) alignedAllocMethod.invokeExact(alignment, size);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (NativeUtil.checkNullPointer(ptr)) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to allocate memory, size : %d", size);
+        }
+        return ptr.reinterpret(size);
+    }
+
+    /**
+     * 操作系统的内存页大小
+     */
+    public static long pageSize() {
+        return pageSize;
+    }
+
+    /**
+     * 调整内存块的大小，原有的数据会被保留，调用成功后旧的MemorySegment不能再被访问
+     */
+    public static MemorySegment realloc(MemorySegment segment, long size) {
+        MemorySegment ptr;
+        try {
+            ptr = (MemorySegment) reallocMethod.invokeExact(segment, size);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+        if (NativeUtil.checkNullPointer(ptr)) {
+            throw new FrameworkException(ExceptionType.NATIVE, "Failed to reallocate memory, size : %d", size);
+        }
+        return ptr.reinterpret(size);
+    }
+
+    public static void free(MemorySegment segment) {
+        try {
+            freeMethod.invokeExact(segment);
+        } catch (Throwable throwable) {
+            throw new FrameworkException(ExceptionType.NATIVE, Constants.UNREACHED, throwable);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.exception.ExceptionType;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * TimingWheel   <br/>
+ * <ol>
+ *     <li>哈希时间轮，不考虑线程安全，只能在驱动它的线程中使用</li>
+ *     <li>时间被划分为长度为tickMillis的刻度，到期刻度为tick的任务存放在下标为 tick & mask 的槽位中，每个槽位是一条由{@link Timeout}自身构成的双向链表，
+ *     超过一圈的任务与当前一圈的任务共存于同一槽位中，处理槽位时只触发刻度已经到达的任务</li>
+ *     <li>schedule()、reschedule()与cancel()都是O(1)的链表操作，reschedule()会复用已有的Timeout对象，advance()推进刻度时不会创建任何对象</li>
+ *     <li>任务只会在到期时间之后被触发，最大的延迟为一个刻度加上驱动线程两次调用advance()之间的间隔</li>
+ * </ol>
+ * </p>
+ *
+ * @author 伍磊
+ */
+public final class TimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    // Timeout的状态
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int EXPIRING = 2;
+
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    // 下一个尚未处理的刻度
+    private long currentTick;
+    private int count = 0;
+    // 本轮到期的任务，重复使用以避免每次推进时创建对象
+    private final List<Timeout> expired = new ArrayList<>();
+
+    /**
+     * @param wheelSize  槽位的个数，必须为2的幂
+     * @param tickMillis 每个刻度的长度，单位毫秒
+     * @param now        当前时间，单位毫秒
+     */
+    public TimingWheel(int wheelSize, long tickMillis, long now) {
+        if (Integer.bitCount(wheelSize) != 1 || tickMillis <= 0) {
+            throw new FrameworkException(ExceptionType.CONTEXT, "Invalid timing wheel config");
+        }
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.tickMillis = tickMillis;
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * 在deadline之后执行task
+     */
+    public Timeout schedule(Runnable task, long deadline) {
+        if (task == null) {
+            throw new FrameworkException(ExceptionType.CONTEXT, Constants.UNREACHED);
+        }
+        Timeout timeout = new Timeout(task);
+        link(timeout, deadline);
+        return timeout;
+    }
+
+    /**
+     * 将timeout的到期时间修改为deadline，timeout已经被触发或取消时会被重新加入时间轮
+     */
+    public void reschedule(Timeout timeout, long deadline) {
+        if (timeout.state == SCHEDULED) {
+            unlink(timeout);
+        }
+        link(timeout, deadline);
+    }
+
+    /**
+     * @return 是否成功阻止了任务的执行，已经被触发或取消时返回false
+     */
+    public boolean cancel(Timeout timeout) {
+        if (timeout.state == SCHEDULED) {
+            unlink(timeout);
+            timeout.state = IDLE;
+            return true;
+        } else if (timeout.state == EXPIRING) {
+            timeout.state = IDLE;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 触发所有在now之前到期的任务，任务中可以再次调用schedule()、reschedule()与cancel()，
+     * 同一轮中尚未执行的到期任务被cancel()或reschedule()之后不会再被执行
+     * @return 被触发的任务个数
+     */
+    public int advance(long now) {
+        long targetTick = now / tickMillis;
+        if (targetTick < currentTick) {
+            return 0;
+        }
+        long startTick = currentTick;
+        // 落后超过一圈时每个槽位只需要处理一次
+        long endTick = Math.min(targetTick, startTick + mask);
+        // 先推进刻度，使任务中新加入的已过期任务落在之后的槽位中，不会在本轮被重复处理
+        currentTick = targetTick + 1;
+        for (long tick = startTick; tick <= endTick; tick++) {
+            Timeout timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.tick <= targetTick) {
+                    unlink(timeout);
+                    timeout.state = EXPIRING;
+                    expired.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+        int fired = 0;
+        for (int i = 0; i < expired.size(); i++) {
+            Timeout timeout = expired.get(i);
+            if (timeout.state != EXPIRING) {
+                continue;
+            }
+            timeout.state = IDLE;
+            fired++;
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                log.error("Exception thrown in timing wheel task", e);
+            }
+        }
+        expired.clear();
+        return fired;
+    }
+
+    /**
+     * 距离下一个刻度的毫秒数，可以直接作为多路复用的超时时间
+     * @return 时间轮为空时返回-1
+     */
+    public long nextDelay(long now) {
+        if (count == 0) {
+            return -1L;
+        }
+        return Math.max(currentTick * tickMillis - now, 0L);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    private void link(Timeout timeout, long deadline) {
+        // 向上取整，保证任务不会早于deadline被触发
+        long tick = Math.max(Math.ceilDiv(deadline, tickMillis), currentTick);
+        int index = (int) (tick & mask);
+        Timeout head = buckets[index];
+        timeout.tick = tick;
+        timeout.state = SCHEDULED;
+        timeout.next = head;
+        timeout.index = index;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+        count++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            buckets[timeout.index] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        count--;
+    }
+
+    /**
+     * 时间轮中的一个任务，同时也是槽位链表中的节点
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private long tick;
+        private int index;
+        private int state = IDLE;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * @return 是否仍在等待触发
+         */
+        public boolean isScheduled() {
+            return state == SCHEDULED;
+        }
+    }
+}
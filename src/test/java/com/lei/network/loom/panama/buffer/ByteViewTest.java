@@ -0,0 +1,75 @@
+package com.lei.network.loom.panama.buffer;
+
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * ByteViewTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class ByteViewTest {
+
+    @Test
+    public void test_readHeaders() {
+        byte[] data = "Content-Length: 128\r\nHost: a\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+        ReadBuffer readBuffer = new ReadBuffer(MemorySegment.ofArray(data));
+        Map<ByteView, ByteView> headers = new HashMap<>();
+        for (; ; ) {
+            ByteView line = readBuffer.readUntilView((byte) '\r', (byte) '\n');
+            if (line == null || line.isEmpty()) {
+                break;
+            }
+            int index = line.indexOf((byte) ':');
+            headers.put(line.slice(0, index), line.slice(index + 1, line.size() - index - 1).trim());
+        }
+        assertEquals(2, headers.size());
+        assertEquals(128, headers.get(ByteView.of("Content-Length")).parseInt());
+        assertEquals("a", headers.get(ByteView.of("Host")).toString());
+        assertTrue(ByteView.of("content-length").equalsIgnoreCase(ByteView.of("Content-Length")));
+        assertEquals(data.length, readBuffer.readIndex());
+    }
+
+    @Test
+    public void test_contentSemantics() {
+        byte[] bytes = {1, 2, (byte) 0xFF};
+        ByteView view = new ByteView(MemorySegment.ofArray(new byte[]{0, 1, 2, (byte) 0xFF, 0}).asSlice(1, 3));
+        assertEquals(ByteView.of(bytes), view);
+        assertEquals(Arrays.hashCode(bytes), view.hashCode());
+        assertTrue(view.contentEquals(bytes));
+        assertTrue(view.compareTo(ByteView.of(new byte[]{1, 2, 3})) > 0);
+        assertTrue(view.compareTo(ByteView.of(new byte[]{1, 2})) > 0);
+        assertEquals(0, view.compareTo(view.copy()));
+    }
+
+    @Test
+    public void test_parseLong() {
+        assertEquals(Long.MAX_VALUE, ByteView.of(String.valueOf(Long.MAX_VALUE)).parseLong());
+        assertEquals(Long.MIN_VALUE, ByteView.of(String.valueOf(Long.MIN_VALUE)).parseLong());
+        assertEquals(-42, ByteView.of("-42").parseInt());
+        assertThrows(FrameworkException.class, () -> ByteView.of("9223372036854775808").parseLong());
+        assertThrows(FrameworkException.class, () -> ByteView.of("2147483648").parseInt());
+        assertThrows(FrameworkException.class, () -> ByteView.of("1a").parseLong());
+        assertThrows(FrameworkException.class, () -> ByteView.of("-").parseLong());
+    }
+
+    @Test
+    public void test_readCStrView() {
+        ReadBuffer readBuffer = new ReadBuffer(MemorySegment.ofArray("key\0\0".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("key", readBuffer.readCStrView().toString());
+        assertNull(readBuffer.readCStrView());
+    }
+}
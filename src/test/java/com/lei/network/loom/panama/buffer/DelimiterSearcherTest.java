@@ -0,0 +1,79 @@
+package com.lei.network.loom.panama.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * <p>
+ * DelimiterSearcherTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class DelimiterSearcherTest {
+
+    private static final byte[][] SEPARATORS = {
+            {'\n'}, {'\r', '\n'}, {'\r', '\n', '\r', '\n'}, {'\0'}
+    };
+
+    private static List<DelimiterSearcher> searchers() {
+        List<DelimiterSearcher> searchers = new ArrayList<>();
+        searchers.add(new ScalarDelimiterSearcher());
+        // 启动参数中包含 --add-modules jdk.incubator.vector 时同时验证向量实现
+        searchers.add(DelimiterSearcher.CURRENT);
+        return searchers;
+    }
+
+    private static long naiveIndexOf(byte[] data, int from, byte[] separators) {
+        for (int cur = from; cur <= data.length - separators.length; cur++) {
+            boolean matches = true;
+            for (int i = 0; i < separators.length && matches; i++) {
+                matches = data[cur + i] == separators[i];
+            }
+            if (matches) {
+                return cur;
+            }
+        }
+        return -1L;
+    }
+
+    // 随机数据中只包含少量的字符，使分隔符的部分匹配与完整匹配都会频繁出现
+    @Test
+    public void test_randomData() {
+        Random random = new Random(2024);
+        byte[] alphabet = {'a', '\r', '\n', '\0'};
+        for (DelimiterSearcher searcher : searchers()) {
+            for (int round = 0; round < 2000; round++) {
+                byte[] data = new byte[random.nextInt(300)];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = random.nextInt(4) == 0 ? alphabet[random.nextInt(alphabet.length)] : (byte) 'a';
+                }
+                MemorySegment segment = MemorySegment.ofArray(data);
+                for (byte[] separators : SEPARATORS) {
+                    int from = data.length == 0 ? 0 : random.nextInt(data.length);
+                    assertEquals(naiveIndexOf(data, from, separators), searcher.indexOf(segment, from, data.length, separators));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_readUntil() {
+        byte[] data = "GET / HTTP/1.1\r\nHost: a\r\n\r\nbody".getBytes(StandardCharsets.UTF_8);
+        ReadBuffer readBuffer = new ReadBuffer(MemorySegment.ofArray(data));
+        assertArrayEquals("GET / HTTP/1.1".getBytes(StandardCharsets.UTF_8), readBuffer.readUntil((byte) '\r', (byte) '\n'));
+        assertArrayEquals("Host: a".getBytes(StandardCharsets.UTF_8), readBuffer.readUntil((byte) '\r', (byte) '\n', (byte) '\r', (byte) '\n'));
+        assertEquals(data.length - 4, readBuffer.readIndex());
+        assertNull(readBuffer.readUntil((byte) '\r', (byte) '\n'));
+        assertEquals(data.length - 4, readBuffer.readIndex());
+    }
+}
@@ -0,0 +1,85 @@
+package com.lei.network.loom.panama.buffer;
+
+import com.lei.network.loom.panama.JmhTest;
+import com.lei.network.loom.panama.util.NativeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+
+/**
+ * <p>
+ * ReadUntilTest
+ * 对比逐个位置调用NativeUtil.matches、标量实现与Vector API实现查找位于末尾的分隔符的耗时，数据中会混入不完整的分隔符
+ * </p>
+ *
+ * @author 伍磊
+ */
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public class ReadUntilTest extends JmhTest {
+
+    @Param({"64", "4096", "65536"})
+    private int size;
+
+    @Param({"LF", "CRLF", "CRLFCRLF"})
+    private String separator;
+
+    private Arena arena;
+    private MemorySegment segment;
+    private byte[] separators;
+    private final DelimiterSearcher scalar = new ScalarDelimiterSearcher();
+    private final DelimiterSearcher vector = new VectorDelimiterSearcher();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        separators = switch (separator) {
+            case "LF" -> new byte[]{'\n'};
+            case "CRLF" -> new byte[]{'\r', '\n'};
+            default -> new byte[]{'\r', '\n', '\r', '\n'};
+        };
+        arena = Arena.ofConfined();
+        segment = arena.allocate(size);
+        Random random = new Random(size);
+        for (int i = 0; i < size - separators.length; i++) {
+            segment.setAtIndex(ValueLayout.JAVA_BYTE, i, i % 97 == 96 ? (byte) '\r' : (byte) ('a' + random.nextInt(26)));
+        }
+        MemorySegment.copy(MemorySegment.ofArray(separators), 0, segment, size - separators.length, separators.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public long testMatches() {
+        for (long cur = 0; cur <= size - separators.length; cur++) {
+            if (NativeUtil.matches(segment, cur, separators)) {
+                return cur;
+            }
+        }
+        return -1L;
+    }
+
+    @Benchmark
+    public long testScalar() {
+        return scalar.indexOf(segment, 0, size, separators);
+    }
+
+    @Benchmark
+    public long testVector() {
+        return vector.indexOf(segment, 0, size, separators);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        runTest(ReadUntilTest.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.lei.network.loom.panama.buffer;
+
+import com.lei.network.loom.panama.util.RpMalloc;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * <p>
+ * WriteBufferPoolTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class WriteBufferPoolTest {
+
+    @BeforeAll
+    public static void init() {
+        RpMalloc.tInitialize();
+    }
+
+    @Test
+    public void test_sizeClassRounding() {
+        assertEquals(64L, WriteBufferPool.roundUp(64L));
+        assertEquals(128L, WriteBufferPool.roundUp(65L));
+        assertEquals(1L, WriteBufferPool.roundUp(1L));
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 4096);
+        try (WriteBuffer a = pool.acquire(1); WriteBuffer b = pool.acquire(65); WriteBuffer c = pool.acquire(1000)) {
+            // 小于最小等级时取最小等级，其余向上取整为2的幂
+            assertEquals(64L, a.size());
+            assertEquals(128L, b.size());
+            assertEquals(1024L, c.size());
+        }
+        assertEquals(3L, pool.miss());
+        assertEquals(64L + 128L + 1024L, pool.retainedBytes());
+        pool.close();
+    }
+
+    @Test
+    public void test_reuse() {
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 4096);
+        WriteBuffer first = pool.acquire(100);
+        first.writeInt(2024);
+        first.close();
+        assertEquals(128L, pool.retainedBytes());
+        // 同一等级内的请求复用已归还的WriteBuffer，并且已写入的数据被清空
+        WriteBuffer second = pool.acquire(120);
+        assertSame(first, second);
+        assertEquals(0L, second.writeIndex());
+        assertEquals(128L, second.size());
+        assertEquals(1L, pool.hit());
+        assertEquals(0L, pool.retainedBytes());
+        // 不同等级之间不会复用
+        second.close();
+        WriteBuffer other = pool.acquire(64);
+        assertNotSame(first, other);
+        assertEquals(2L, pool.miss());
+        other.close();
+        pool.close();
+    }
+
+    @Test
+    public void test_maxBufferSizeBypass() {
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 1024 * 1024);
+        WriteBuffer large = pool.acquire(2000);
+        assertEquals(2048L, large.size());
+        large.close();
+        // 超过最大等级的WriteBuffer关闭时被直接释放
+        assertEquals(0L, pool.retainedBytes());
+        WriteBuffer again = pool.acquire(2000);
+        assertNotSame(large, again);
+        assertEquals(0L, pool.hit());
+        assertEquals(2L, pool.miss());
+        again.close();
+        // 扩容后超过最大等级的WriteBuffer同样不会被放回
+        WriteBuffer grown = pool.acquire(64);
+        for (int i = 0; i < 512; i++) {
+            grown.writeInt(i);
+        }
+        assertEquals(2048L, grown.size());
+        grown.close();
+        assertEquals(0L, pool.retainedBytes());
+        pool.close();
+    }
+
+    @Test
+    public void test_retainedTrim() {
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 256);
+        WriteBuffer a = pool.acquire(128);
+        WriteBuffer b = pool.acquire(128);
+        WriteBuffer c = pool.acquire(128);
+        a.close();
+        b.close();
+        // 放回c会使空闲内存超过256，因此c被直接释放
+        c.close();
+        assertEquals(256L, pool.retainedBytes());
+        WriteBuffer d = pool.acquire(128);
+        WriteBuffer e = pool.acquire(128);
+        WriteBuffer f = pool.acquire(128);
+        assertEquals(2L, pool.hit());
+        assertEquals(4L, pool.miss());
+        assertNotSame(c, f);
+        d.close();
+        e.close();
+        f.close();
+        pool.close();
+    }
+
+    @Test
+    public void test_doubleClose() {
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 4096);
+        WriteBuffer buffer = pool.acquire(64);
+        buffer.close();
+        buffer.close();
+        assertEquals(64L, pool.retainedBytes());
+        // 重复归还的WriteBuffer只会被取出一次
+        WriteBuffer first = pool.acquire(64);
+        WriteBuffer second = pool.acquire(64);
+        assertSame(buffer, first);
+        assertNotSame(first, second);
+        assertEquals(1L, pool.hit());
+        first.close();
+        second.close();
+        pool.close();
+    }
+
+    @Test
+    public void test_closedPool() {
+        WriteBufferPool pool = new WriteBufferPool(64, 1024, 4096);
+        WriteBuffer buffer = pool.acquire(64);
+        pool.close();
+        // 关闭之后归还的WriteBuffer会被直接释放
+        buffer.close();
+        assertEquals(0L, pool.retainedBytes());
+    }
+}
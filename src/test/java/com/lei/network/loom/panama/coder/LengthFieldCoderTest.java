@@ -0,0 +1,103 @@
+package com.lei.network.loom.panama.coder;
+
+import com.lei.network.loom.panama.buffer.ReadBuffer;
+import com.lei.network.loom.panama.buffer.WriteBuffer;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * LengthFieldCoderTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class LengthFieldCoderTest {
+
+    private static final Encoder STRING_ENCODER = (writeBuffer, o) -> writeBuffer.writeBytes(((String) o).getBytes(StandardCharsets.UTF_8));
+
+    private static final Decoder STRING_DECODER = (readBuffer, entityList) -> entityList.add(new String(readBuffer.readBytes((int) readBuffer.size()), StandardCharsets.UTF_8));
+
+    @Test
+    public void test_roundTrip() {
+        for (int lengthFieldLength : new int[]{1, 2, 4, 8}) {
+            for (ByteOrder byteOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                Encoder encoder = new LengthFieldPrepender(lengthFieldLength, 0, false, byteOrder, STRING_ENCODER);
+                Decoder decoder = new LengthFieldDecoder(0, lengthFieldLength, 0, lengthFieldLength, 1024, byteOrder, STRING_DECODER);
+                WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+                encoder.encode(writeBuffer, "hello");
+                encoder.encode(writeBuffer, "");
+                encoder.encode(writeBuffer, "world");
+                MemorySegment content = writeBuffer.content();
+                assertEquals(10 + 3L * lengthFieldLength, content.byteSize());
+
+                ReadBuffer readBuffer = new ReadBuffer(content);
+                List<Object> entityList = new ArrayList<>();
+                while (readBuffer.readIndex() < readBuffer.size()) {
+                    decoder.decode(readBuffer, entityList);
+                }
+                assertEquals(List.of("hello", "", "world"), entityList);
+            }
+        }
+    }
+
+    @Test
+    public void test_bigEndianLayout() {
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new LengthFieldPrepender(4, STRING_ENCODER).encode(writeBuffer, "abc");
+        byte[] bytes = writeBuffer.content().toArray(ValueLayout.JAVA_BYTE);
+        assertEquals(0, bytes[0]);
+        assertEquals(0, bytes[2]);
+        assertEquals(3, bytes[3]);
+    }
+
+    // 长度字段包含自身，且帧头在长度字段之前还有一个字节的类型字段
+    @Test
+    public void test_offsetAndAdjustment() {
+        Encoder encoder = (writeBuffer, o) -> {
+            writeBuffer.writeByte((byte) 7);
+            new LengthFieldPrepender(2, 0, true, ByteOrder.BIG_ENDIAN, STRING_ENCODER).encode(writeBuffer, o);
+        };
+        Decoder decoder = new LengthFieldDecoder(1, 2, -2, 3, 1024, ByteOrder.BIG_ENDIAN, STRING_DECODER);
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        encoder.encode(writeBuffer, "payload");
+        List<Object> entityList = new ArrayList<>();
+        decoder.decode(new ReadBuffer(writeBuffer.content()), entityList);
+        assertEquals(List.of("payload"), entityList);
+    }
+
+    @Test
+    public void test_partialFrame() {
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new LengthFieldPrepender(4, STRING_ENCODER).encode(writeBuffer, "hello");
+        Decoder decoder = new LengthFieldDecoder(4, 1024, STRING_DECODER);
+        MemorySegment content = writeBuffer.content();
+        for (long len = 1; len < content.byteSize(); len++) {
+            ReadBuffer readBuffer = new ReadBuffer(content.asSlice(0, len));
+            List<Object> entityList = new ArrayList<>();
+            decoder.decode(readBuffer, entityList);
+            assertTrue(entityList.isEmpty());
+            assertEquals(0L, readBuffer.readIndex());
+        }
+    }
+
+    @Test
+    public void test_frameTooLarge() {
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new LengthFieldPrepender(4, STRING_ENCODER).encode(writeBuffer, "x".repeat(100));
+        Decoder decoder = new LengthFieldDecoder(4, 64, STRING_DECODER);
+        assertThrows(FrameworkException.class, () -> decoder.decode(new ReadBuffer(writeBuffer.content()), new ArrayList<>()));
+        assertThrows(FrameworkException.class, () -> new LengthFieldPrepender(1, STRING_ENCODER).encode(WriteBuffer.newHeapWriteBuffer(), "x".repeat(256)));
+    }
+}
@@ -0,0 +1,148 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.JmhTest;
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * BusyPollTest
+ * 单个客户端通过本地回环与Poller进行一问一答，对比阻塞等待与自旋轮询两种模式下单次往返的延迟分布，
+ * 使用SampleTime模式，JMH会输出p50、p99与p99.9等百分位的延迟，结束时输出平均每次往返的多路复用等待次数与空转的自旋次数，用于衡量自旋所消耗的CPU
+ * </p>
+ *
+ * @author 伍磊
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BusyPollTest extends JmhTest {
+
+    private static final int PORT = 18966;
+    private static final int PAYLOAD = 64;
+
+    @Param({"0", "1000"})
+    private long spinTime;
+
+    private Net net;
+    private volatile Poller poller;
+    private Socket socket;
+    private DataOutputStream output;
+    private DataInputStream input;
+    private final byte[] data = new byte[PAYLOAD];
+    private final byte[] received = new byte[PAYLOAD];
+    private long ops = 0L;
+    private long muxWait;
+    private long spin;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        pollerConfig.setEdgeTriggered(true);
+        pollerConfig.setSpinTime(spinTime);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        CountDownLatch connected = new CountDownLatch(1);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setDispatchMode(DispatchMode.INLINE);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                poller = channel.poller();
+                connected.countDown();
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                channel.sendMsg(data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+        socket = connect();
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        connected.await();
+        muxWait = poller.stats().muxWait();
+        spin = poller.stats().spin();
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Benchmark
+    public void testPingPong() throws IOException {
+        output.writeInt(PAYLOAD);
+        output.write(data);
+        output.flush();
+        input.readInt();
+        input.readFully(received);
+        ops++;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        PollerStats stats = poller.stats();
+        System.out.printf("%nspinTime=%d, per round trip : muxWait=%.3f, spin=%.3f%n", spinTime,
+                (double) (stats.muxWait() - muxWait) / ops, (double) (stats.spin() - spin) / ops);
+        socket.close();
+        net.exit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        runTest(BusyPollTest.class);
+    }
+}
@@ -0,0 +1,241 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * ConnectionPoolTest
+ * 后端使用只接受连接而不读取数据的ServerSocket，使发送的消息在连接上积压，从而控制每个连接的pendingWrites
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class ConnectionPoolTest {
+
+    private static final int PORT = 18972;
+    private static final int MSG_SIZE = 256 * Constants.KB;
+    private static final MemorySegment MSG = MemorySegment.ofArray(new byte[MSG_SIZE]);
+
+    private Net net;
+    private ServerSocket server;
+    private ConnectionPool pool;
+    private boolean netExited = false;
+    private final List<Socket> accepted = new CopyOnWriteArrayList<>();
+    private final List<Channel> connected = new CopyOnWriteArrayList<>();
+    private final AtomicInteger removed = new AtomicInteger(0);
+
+    @BeforeEach
+    public void setup() {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        // 水位足够高，连接在测试过程中始终可写，select()只受pendingWrites影响
+        writerConfig.setHighWatermark(Constants.GB);
+        writerConfig.setLowWatermark(Constants.GB / 2);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        net.init();
+    }
+
+    @Test
+    public void test_selectLeastPending() throws Exception {
+        startServer(PORT);
+        Loc loc = new Loc(IpType.IPV4, "127.0.0.1", PORT);
+        pool = new ConnectionPool(net, connectorConfig(), poolConfig(2));
+        pool.warmUp(loc).get(5, TimeUnit.SECONDS);
+        assertEquals(2, connected.size());
+        Channel a = connected.get(0);
+        Channel b = connected.get(1);
+
+        int pendingA = fill(a, 64);
+        assertTrue(pendingA > 0);
+        assertSame(b, pool.select(loc));
+
+        int pendingB = fill(b, 128);
+        assertTrue(pendingB > pendingA);
+        assertSame(a, pool.select(loc));
+    }
+
+    @Test
+    public void test_skipClosedChannel() throws Exception {
+        startServer(PORT + 1);
+        Loc loc = new Loc(IpType.IPV4, "127.0.0.1", PORT + 1);
+        pool = new ConnectionPool(net, connectorConfig(), poolConfig(2));
+        pool.warmUp(loc).get(5, TimeUnit.SECONDS);
+        assertEquals(2, connected.size());
+        Channel closed = connected.get(0);
+        closed.close();
+        assertTrue(await(() -> removed.get() == 1));
+        for (int i = 0; i < 16; i++) {
+            Channel selected = pool.select(loc);
+            assertNotNull(selected);
+            assertNotSame(closed, selected);
+        }
+        // 被移除的连接会自动补齐
+        assertTrue(await(() -> connected.size() == 3));
+        for (int i = 0; i < 16; i++) {
+            assertNotSame(closed, pool.select(loc));
+        }
+    }
+
+    @Test
+    public void test_ejectAndReconnect() throws Exception {
+        int port = PORT + 2;
+        Loc loc = new Loc(IpType.IPV4, "127.0.0.1", port);
+        PoolConfig poolConfig = poolConfig(1);
+        poolConfig.setMaxFailures(2);
+        poolConfig.setEjectTime(1000L);
+        pool = new ConnectionPool(net, connectorConfig(), poolConfig);
+        long start = System.currentTimeMillis();
+        pool.warmUp(loc).get(5, TimeUnit.SECONDS);
+        // 本地端口没有监听时连接会被立即拒绝，两次失败之后后端被剔除
+        Thread.sleep(200L);
+        startServer(port);
+        while (System.currentTimeMillis() - start < 600L) {
+            assertNull(pool.select(loc));
+            Thread.sleep(20L);
+        }
+        assertTrue(accepted.isEmpty());
+        assertTrue(connected.isEmpty());
+        // 剔除时间过后select()重新发起连接
+        assertTrue(await(() -> pool.select(loc) != null));
+        assertEquals(1, connected.size());
+        assertEquals(1, accepted.size());
+    }
+
+    // Net已经停止时连接在当前线程中同步失败，select()必须立即返回，而不是不断重试
+    @Test
+    public void test_syncFailureStopsFill() throws Exception {
+        Loc loc = new Loc(IpType.IPV4, "127.0.0.1", PORT + 3);
+        PoolConfig poolConfig = poolConfig(2);
+        poolConfig.setMaxFailures(3);
+        pool = new ConnectionPool(net, connectorConfig(), poolConfig);
+        net.exit();
+        netExited = true;
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<Channel> selected = CompletableFuture.supplyAsync(() -> pool.select(loc));
+            assertNull(selected.get(1, TimeUnit.SECONDS));
+        }
+        pool.warmUp(loc).get(1, TimeUnit.SECONDS);
+        assertTrue(connected.isEmpty());
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException, IOException {
+        if (pool != null) {
+            pool.close();
+        }
+        if (!netExited) {
+            net.exit();
+        }
+        if (server != null) {
+            server.close();
+        }
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    /**
+     * 向channel发送count条消息，等待pendingWrites稳定后返回
+     */
+    private static int fill(Channel channel, int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            channel.sendMsg(MSG);
+        }
+        int last = -1;
+        for (int i = 0; i < 50; i++) {
+            Thread.sleep(20L);
+            int current = channel.pendingWrites();
+            if (current == last) {
+                return current;
+            }
+            last = current;
+        }
+        return last;
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    private void startServer(int port) throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        Thread.ofVirtual().start(() -> {
+            try {
+                for (; ; ) {
+                    accepted.add(server.accept());
+                }
+            } catch (IOException e) {
+                // server closed
+            }
+        });
+    }
+
+    private static PoolConfig poolConfig(int connectionsPerLoc) {
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setConnectionsPerLoc(connectionsPerLoc);
+        return poolConfig;
+    }
+
+    private ConnectorConfig connectorConfig() {
+        ConnectorConfig connectorConfig = new ConnectorConfig();
+        connectorConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        connectorConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        connectorConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                connected.add(channel);
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+                removed.incrementAndGet();
+            }
+        });
+        return connectorConfig;
+    }
+}
@@ -0,0 +1,126 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * <p>
+ * DecodeLoopTest
+ * 心跳帧的帧体为空，frameDecoder不会解析出任何实体，同一次读取中位于其后的完整帧仍然需要被立即解码，而不是等待下一次数据到达
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class DecodeLoopTest {
+
+    private static final int PORT = 18977;
+
+    private Net net;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        // 空帧视为心跳，直接丢弃
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, (readBuffer, entityList) -> {
+            if (readBuffer.size() > 0) {
+                entityList.add(new String(readBuffer.readBytes((int) readBuffer.size()), StandardCharsets.UTF_8));
+            }
+        }));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                received.add((String) data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+    }
+
+    @Test
+    public void test_framesAfterHeartbeat() throws IOException, InterruptedException {
+        try (Socket socket = connect()) {
+            // 一次写入：心跳、两个数据帧、心跳、数据帧，之后不再发送任何数据
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.write(frames("", "a", "b", "", "c"));
+            output.flush();
+            long deadline = System.currentTimeMillis() + 3000L;
+            while (received.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertEquals(List.of("a", "b", "c"), received);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        net.exit();
+    }
+
+    private static byte[] frames(String... bodies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        for (String body : bodies) {
+            byte[] b = body.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(b.length);
+            output.write(b);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+}
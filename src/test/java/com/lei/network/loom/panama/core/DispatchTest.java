@@ -0,0 +1,97 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.JmhTest;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.handler.Handler;
+import com.lei.network.loom.panama.library.Socket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * DispatchTest
+ * 模拟Poller线程依次向多个连接分发消息，直到所有消息都被Handler处理完毕，
+ * blockMicros为0时对比两种模式的分发开销，不为0时模拟onRecv中存在阻塞操作的场景
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class DispatchTest extends JmhTest {
+
+    private static final int CHANNELS = 64;
+    private static final int MESSAGES = 16;
+
+    @Param({"INLINE", "VIRTUAL_THREAD"})
+    private DispatchMode mode;
+
+    @Param({"0", "50"})
+    private int blockMicros;
+
+    private volatile CountDownLatch latch;
+    private final List<Channel> channels = new ArrayList<>();
+    private final List<Mailbox> mailboxes = new ArrayList<>();
+    private final List<Object> entityList = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long blockNanos = blockMicros * 1000L;
+        Handler handler = new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                if (blockNanos > 0) {
+                    LockSupport.parkNanos(blockNanos);
+                }
+                latch.countDown();
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        };
+        for (int i = 0; i < CHANNELS; i++) {
+            Channel channel = new ChannelImpl(new Socket(i), null, null, handler, null, null, null);
+            channels.add(channel);
+            mailboxes.add(new Mailbox(channel));
+        }
+        for (int i = 0; i < MESSAGES; i++) {
+            entityList.add(i);
+        }
+    }
+
+    @Benchmark
+    public void testDispatch() throws InterruptedException {
+        latch = new CountDownLatch(CHANNELS * MESSAGES);
+        for (int i = 0; i < CHANNELS; i++) {
+            if (mode == DispatchMode.INLINE) {
+                Channel channel = channels.get(i);
+                for (Object entity : entityList) {
+                    channel.handler().onRecv(channel, entity);
+                }
+            } else {
+                mailboxes.get(i).offer(entityList);
+            }
+        }
+        latch.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        runTest(DispatchTest.class);
+    }
+}
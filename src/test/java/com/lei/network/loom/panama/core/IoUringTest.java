@@ -0,0 +1,182 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.JmhTest;
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import com.lei.network.loom.panama.library.IoUring;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * IoUringTest
+ * 多个客户端通过本地回环向单个Poller发送数据并等待回显，对比边缘触发的epoll与io_uring两种多路复用，
+ * 建立连接时输出注册全部连接所用的系统调用次数，结束时输出平均每次回显所产生的多路复用系统调用次数，
+ * epoll下为epoll_wait()与epoll_ctl()的调用次数之和，io_uring下为io_uring_enter()的调用次数，同时输出io_uring平均每次系统调用提交的请求个数，
+ * io_uring_recv使用缓冲区环由内核直接接收数据，此时recv()的调用次数为0
+ * </p>
+ *
+ * @author 伍磊
+ */
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IoUringTest extends JmhTest {
+
+    private static final int CLIENTS = 256;
+    private static final int PORT = 18965;
+
+    @Param({"epoll", "io_uring", "io_uring_recv"})
+    private String mode;
+
+    @Param({"256", "16384"})
+    private int payload;
+
+    private Net net;
+    private volatile Poller poller;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataOutputStream> outputs = new ArrayList<>();
+    private final List<DataInputStream> inputs = new ArrayList<>();
+    private byte[] data;
+    private byte[] received;
+    private long ops = 0L;
+    private long muxWait;
+    private long recv;
+    private long syscalls;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        pollerConfig.setEdgeTriggered(true);
+        pollerConfig.setIoUring(!"epoll".equals(mode));
+        pollerConfig.setUringRecv("io_uring_recv".equals(mode));
+        pollerConfig.setMaxFrameSize(2 * payload);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        CountDownLatch connected = new CountDownLatch(CLIENTS);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setDispatchMode(DispatchMode.INLINE);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                poller = channel.poller();
+                connected.countDown();
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                channel.sendMsg(data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+        for (int i = 0; i < CLIENTS; i++) {
+            Socket socket = connect();
+            sockets.add(socket);
+            outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        }
+        connected.await();
+        data = new byte[payload];
+        received = new byte[payload];
+        muxWait = poller.stats().muxWait();
+        recv = poller.stats().recv();
+        syscalls = syscalls();
+        IoUring uring = poller.mux().uring();
+        System.out.printf("%nmode=%s, registering %d connections : syscalls=%d%s%n", mode, CLIENTS, syscalls,
+                uring == null ? "" : STR.", submitted=\{uring.submitCount()}");
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * 多路复用相关的系统调用次数，io_uring下的ctl()不会产生系统调用
+     */
+    private long syscalls() {
+        IoUring uring = poller.mux().uring();
+        return uring == null ? poller.stats().muxWait() + poller.stats().ctl() : uring.enterCount();
+    }
+
+    @Benchmark
+    public void testEcho() throws IOException {
+        // 先让所有客户端同时发出请求，使Poller的单轮事件循环能够处理尽可能多的连接
+        for (DataOutputStream output : outputs) {
+            output.writeInt(payload);
+            output.write(data);
+            output.flush();
+        }
+        for (DataInputStream input : inputs) {
+            input.readInt();
+            input.readFully(received);
+        }
+        ops += CLIENTS;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        PollerStats stats = poller.stats();
+        IoUring uring = poller.mux().uring();
+        System.out.printf("%nmode=%s, payload=%d, per echo : muxWait=%.3f, recv=%.3f, syscalls=%.3f%s%n", mode, payload,
+                (double) (stats.muxWait() - muxWait) / ops, (double) (stats.recv() - recv) / ops, (double) (syscalls() - syscalls) / ops,
+                uring == null ? "" : String.format(", submitted per enter=%.3f", (double) uring.submitCount() / uring.enterCount()));
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        net.exit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        runTest(IoUringTest.class);
+    }
+}
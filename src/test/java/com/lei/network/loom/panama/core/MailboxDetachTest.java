@@ -0,0 +1,167 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.buffer.ByteView;
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * MailboxDetachTest
+ * VIRTUAL_THREAD模式下实体在解码返回之后才被处理，两个连接注册在同一个Poller上，第一个连接的Handler阻塞至第二个连接的数据被读取之后，
+ * 此时Poller共享的读缓冲区已经被第二个连接的数据覆盖，第一个连接收到的切片实体仍需保持原有的内容
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class MailboxDetachTest {
+
+    private static final int PORT = 18971;
+    private static final int PAYLOAD = 64;
+
+    private Net net;
+    private volatile Channel first;
+    private final CountDownLatch connected = new CountDownLatch(2);
+    private final CountDownLatch firstReceiving = new CountDownLatch(1);
+    private final CountDownLatch secondReceived = new CountDownLatch(1);
+    private final List<byte[]> firstPayloads = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setDispatchMode(DispatchMode.VIRTUAL_THREAD);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        // 帧数据不经过拷贝，同时以MemorySegment与ByteView的形式直接引用读内存
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, (readBuffer, entityList) -> {
+            MemorySegment frame = readBuffer.readSegment(readBuffer.size());
+            entityList.add(frame);
+            entityList.add(new ByteView(frame));
+        }));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                if (first == null) {
+                    first = channel;
+                }
+                connected.countDown();
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                if (channel != first) {
+                    secondReceived.countDown();
+                    return;
+                }
+                firstReceiving.countDown();
+                try {
+                    assertTrue(secondReceived.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                firstPayloads.add(data instanceof ByteView view ? view.toArray() : ((MemorySegment) data).toArray(ValueLayout.JAVA_BYTE));
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+    }
+
+    @Test
+    public void test_entitiesSurviveNextRead() throws IOException, InterruptedException {
+        try (Socket a = connect()) {
+            awaitConnected(1);
+            try (Socket b = connect()) {
+                assertTrue(connected.await(5, TimeUnit.SECONDS));
+                send(a, (byte) 'A');
+                // 第一个连接的Handler已经开始执行，说明其数据已经解码完成并放入了信箱
+                assertTrue(firstReceiving.await(5, TimeUnit.SECONDS));
+                send(b, (byte) 'B');
+                long deadline = System.currentTimeMillis() + 5000L;
+                while (firstPayloads.size() < 2 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+        }
+        byte[] expected = new byte[PAYLOAD];
+        Arrays.fill(expected, (byte) 'A');
+        assertEquals(2, firstPayloads.size());
+        for (byte[] payload : firstPayloads) {
+            assertArrayEquals(expected, payload);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        net.exit();
+    }
+
+    private void awaitConnected(long remaining) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (connected.getCount() > remaining && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(remaining, connected.getCount());
+    }
+
+    private static void send(Socket socket, byte b) throws IOException {
+        byte[] data = new byte[PAYLOAD];
+        Arrays.fill(data, b);
+        DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+        output.writeInt(PAYLOAD);
+        output.write(data);
+        output.flush();
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+}
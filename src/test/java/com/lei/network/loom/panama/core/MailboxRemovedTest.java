@@ -0,0 +1,130 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * MailboxRemovedTest
+ * VIRTUAL_THREAD模式下onRecv()阻塞时对端关闭连接，信箱中积压的消息处理完之后才能回调onRemoved()
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class MailboxRemovedTest {
+
+    private static final int PORT = 18979;
+
+    private Net net;
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch removed = new CountDownLatch(1);
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setDispatchMode(DispatchMode.VIRTUAL_THREAD);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, (readBuffer, entityList) -> entityList.add(new String(readBuffer.readBytes((int) readBuffer.size()), StandardCharsets.UTF_8))));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                events.add("connected");
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add((String) data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+                events.add("removed");
+                removed.countDown();
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+    }
+
+    @Test
+    public void test_removedAfterPendingRecv() throws Exception {
+        try (Socket socket = connect()) {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            for (String body : List.of("a", "b", "c")) {
+                byte[] b = body.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(b.length);
+                output.write(b);
+            }
+            output.flush();
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        }
+        // 连接已经关闭，但第一条消息仍在处理中，onRemoved()不能提前执行
+        assertFalse(removed.await(300, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(removed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("connected", "a", "b", "c", "removed"), events);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        net.exit();
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+}
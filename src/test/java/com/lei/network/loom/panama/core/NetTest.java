@@ -0,0 +1,45 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>
+ * NetTest
+ * Writer的配置在Poller创建之后才被校验，创建失败时已经创建的Poller的mux必须被释放，并且允许立即创建新的Net
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class NetTest {
+
+    @Test
+    public void test_failedConstruction() throws InterruptedException {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(4);
+        WriterConfig invalid = new WriterConfig();
+        invalid.setWriterCount(1);
+        invalid.setBatchSize(0);
+        int fds = openFds();
+        for (int i = 0; i < 8; i++) {
+            assertThrows(FrameworkException.class, () -> new Net(new NetConfig(), pollerConfig, invalid));
+        }
+        assertEquals(fds, openFds());
+
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        Net net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        net.init();
+        net.exit();
+    }
+
+    private static int openFds() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds == null ? 0 : fds.length;
+    }
+}
@@ -0,0 +1,239 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * TimeoutTest
+ * 每个测试只开启一种超时，超时触发后连接必须被关闭，并计入{@link PollerStats#timeout()}，
+ * 只有一个Poller，因此所有连接的统计都在同一个PollerStats中
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class TimeoutTest {
+
+    private static final int PORT = 18976;
+    private static final long TIMEOUT = 300L;
+    private static final int MSG_SIZE = 256 * Constants.KB;
+
+    private Net net;
+    private final List<Channel> connected = new CopyOnWriteArrayList<>();
+    private final List<Channel> removed = new CopyOnWriteArrayList<>();
+    private final List<Socket> sockets = new ArrayList<>();
+
+    @Test
+    public void test_idleTimeout() throws Exception {
+        start(TIMEOUT, 0L, 0L);
+        Socket socket = connect();
+        Channel channel = awaitChannel();
+        PollerStats stats = channel.poller().stats();
+        long start = System.currentTimeMillis();
+        assertTrue(await(() -> removed.contains(channel)));
+        assertTrue(System.currentTimeMillis() - start >= TIMEOUT - 50L);
+        assertTrue(await(() -> stats.timeout() == 1L));
+        assertClosedByPeer(socket);
+    }
+
+    // 持续接收数据时空闲超时不断顺延，停止发送之后才会关闭连接
+    @Test
+    public void test_idleTimeoutRescheduledOnRead() throws Exception {
+        start(TIMEOUT, 0L, 0L);
+        Socket socket = connect();
+        Channel channel = awaitChannel();
+        PollerStats stats = channel.poller().stats();
+        DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+        for (int i = 0; i < 10; i++) {
+            output.writeInt(1);
+            output.writeByte(i);
+            output.flush();
+            Thread.sleep(TIMEOUT / 3);
+            assertFalse(removed.contains(channel));
+        }
+        assertEquals(0L, stats.timeout());
+        assertTrue(await(() -> removed.contains(channel)));
+        assertTrue(await(() -> stats.timeout() == 1L));
+        assertClosedByPeer(socket);
+    }
+
+    // 对端不读取数据，发送缓冲区持续已满超过writeTimeout后关闭连接
+    @Test
+    public void test_writeTimeout() throws Exception {
+        start(0L, 0L, TIMEOUT);
+        connect(4 * Constants.KB);
+        Channel channel = awaitChannel();
+        PollerStats stats = channel.poller().stats();
+        MemorySegment msg = MemorySegment.ofArray(new byte[MSG_SIZE]);
+        for (int i = 0; i < 64; i++) {
+            channel.sendMsg(msg);
+        }
+        assertTrue(await(() -> removed.contains(channel)));
+        assertTrue(await(() -> stats.timeout() == 1L));
+    }
+
+    // 连接请求被丢弃时握手无法完成，超时后future以异常完成
+    @Test
+    public void test_handshakeTimeout() throws Exception {
+        start(0L, TIMEOUT, 0L);
+        connect();
+        PollerStats stats = awaitChannel().poller().stats();
+        try (ServerSocket server = new ServerSocket()) {
+            // 全连接队列已满时内核会直接丢弃新的SYN
+            server.bind(new InetSocketAddress("127.0.0.1", PORT + 1), 1);
+            fillBacklog(PORT + 1);
+            long start = System.currentTimeMillis();
+            CompletableFuture<Channel> future = net.connect(new Loc(IpType.IPV4, "127.0.0.1", PORT + 1), connectorConfig());
+            assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start >= TIMEOUT - 50L);
+            assertTrue(await(() -> stats.timeout() == 1L));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException, IOException {
+        if (net != null) {
+            net.exit();
+        }
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void start(long idleTimeout, long handshakeTimeout, long writeTimeout) {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        pollerConfig.setTickMillis(10L);
+        pollerConfig.setIdleTimeout(idleTimeout);
+        pollerConfig.setHandshakeTimeout(handshakeTimeout);
+        pollerConfig.setWriteTimeout(writeTimeout);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        ConnectorConfig connectorConfig = connectorConfig();
+        listenerConfig.setEncoderSupplier(connectorConfig.getEncoderSupplier());
+        listenerConfig.setDecoderSupplier(connectorConfig.getDecoderSupplier());
+        listenerConfig.setHandlerSupplier(connectorConfig.getHandlerSupplier());
+        net.init();
+        net.addListener(listenerConfig);
+    }
+
+    private ConnectorConfig connectorConfig() {
+        ConnectorConfig connectorConfig = new ConnectorConfig();
+        connectorConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        connectorConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        connectorConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                connected.add(channel);
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+                removed.add(channel);
+            }
+        });
+        return connectorConfig;
+    }
+
+    private Channel awaitChannel() throws InterruptedException {
+        assertTrue(await(() -> !connected.isEmpty()));
+        return connected.getFirst();
+    }
+
+    /**
+     * 持续发起连接直到出现连接超时，此时全连接队列已满
+     */
+    private void fillBacklog(int port) throws IOException {
+        for (int i = 0; i < 16; i++) {
+            Socket socket = new Socket();
+            sockets.add(socket);
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+            } catch (SocketTimeoutException e) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Backlog not filled");
+    }
+
+    private static void assertClosedByPeer(Socket socket) throws IOException {
+        socket.setSoTimeout(5000);
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    private Socket connect() throws IOException, InterruptedException {
+        return connect(0);
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     * @param receiveBufferSize 为0时使用默认的接收缓冲区大小
+     */
+    private Socket connect(int receiveBufferSize) throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            Socket socket = new Socket();
+            if (receiveBufferSize > 0) {
+                socket.setReceiveBufferSize(receiveBufferSize);
+            }
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                sockets.add(socket);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.JmhTest;
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * TriggerModeTest
+ * 多个客户端通过本地回环向单个Poller发送数据并等待回显，对比水平触发与边缘触发两种模式，
+ * 结束时输出平均每次回显所产生的epoll_wait()、recv()与epoll_ctl()调用次数，以及因注册状态未变化而被省略的epoll_ctl()次数，
+ * payload较大时服务端的发送缓冲区会被填满，水平触发模式下每次都需要通过epoll_ctl()注册并取消可写事件
+ * </p>
+ *
+ * @author 伍磊
+ */
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TriggerModeTest extends JmhTest {
+
+    private static final int CLIENTS = 16;
+    private static final int PORT = 18964;
+    private static final int RECEIVE_BUFFER_SIZE = 16 * 1024;
+
+    @Param({"false", "true"})
+    private boolean edgeTriggered;
+
+    @Param({"256", "4194304"})
+    private int payload;
+
+    private Net net;
+    private volatile Poller poller;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<DataOutputStream> outputs = new ArrayList<>();
+    private final List<DataInputStream> inputs = new ArrayList<>();
+    private byte[] data;
+    private byte[] received;
+    private long ops = 0L;
+    private long muxWait;
+    private long recv;
+    private long ctl;
+    private long ctlSkipped;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        pollerConfig.setEdgeTriggered(edgeTriggered);
+        pollerConfig.setMaxFrameSize(2 * payload);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        CountDownLatch connected = new CountDownLatch(CLIENTS);
+        ListenerConfig listenerConfig = new ListenerConfig();
+        listenerConfig.setIp("127.0.0.1");
+        listenerConfig.setPort(PORT);
+        listenerConfig.setDispatchMode(DispatchMode.INLINE);
+        listenerConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        listenerConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        listenerConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+                poller = channel.poller();
+                connected.countDown();
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                channel.sendMsg(data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        net.init();
+        net.addListener(listenerConfig);
+        for (int i = 0; i < CLIENTS; i++) {
+            Socket socket = connect();
+            sockets.add(socket);
+            outputs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+            inputs.add(new DataInputStream(new BufferedInputStream(socket.getInputStream())));
+        }
+        connected.await();
+        data = new byte[payload];
+        received = new byte[payload];
+        PollerStats stats = poller.stats();
+        muxWait = stats.muxWait();
+        recv = stats.recv();
+        ctl = stats.ctl();
+        ctlSkipped = stats.ctlSkipped();
+    }
+
+    /**
+     * 监听socket由Poller线程异步注册，因此需要重试直到连接成功
+     */
+    private static Socket connect() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                Socket socket = new Socket();
+                // 较小的接收缓冲区使服务端在回显大包时必然会遇到发送缓冲区已满的情况
+                socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress("127.0.0.1", PORT));
+                return socket;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Benchmark
+    public void testEcho() throws IOException {
+        for (DataOutputStream output : outputs) {
+            output.writeInt(payload);
+            output.write(data);
+            output.flush();
+        }
+        for (DataInputStream input : inputs) {
+            input.readInt();
+            input.readFully(received);
+        }
+        ops += CLIENTS;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        PollerStats stats = poller.stats();
+        System.out.printf("%nedgeTriggered=%s, payload=%d, per echo : muxWait=%.3f, recv=%.3f, ctl=%.3f, ctlSkipped=%.3f%n", edgeTriggered, payload,
+                (double) (stats.muxWait() - muxWait) / ops, (double) (stats.recv() - recv) / ops, (double) (stats.ctl() - ctl) / ops,
+                (double) (stats.ctlSkipped() - ctlSkipped) / ops);
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        net.exit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        runTest(TriggerModeTest.class);
+    }
+}
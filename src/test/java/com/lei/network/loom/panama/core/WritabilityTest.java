@@ -0,0 +1,157 @@
+package com.lei.network.loom.panama.core;
+
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.constant.Constants;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * WritabilityTest
+ * 对端不读取数据时持续发送，使pendingBytes超过高水位，对端开始读取后回落至低水位以下，
+ * 两次状态变化都必须恰好回调一次onWritabilityChanged()
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class WritabilityTest {
+
+    private static final int PORT = 18975;
+    private static final int MSG_SIZE = 256 * Constants.KB;
+    // 水位远大于内核发送与接收缓冲区的容量，超过高水位之后即使内核继续接收数据，也不会回落至低水位以下
+    private static final long HIGH_WATERMARK = 32L * Constants.MB;
+    private static final long LOW_WATERMARK = 16L * Constants.MB;
+    private static final MemorySegment MSG = MemorySegment.ofArray(new byte[MSG_SIZE]);
+
+    private Net net;
+    private ServerSocket server;
+    private volatile Socket peer;
+    private final List<Boolean> changes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        PollerConfig pollerConfig = new PollerConfig();
+        pollerConfig.setPollerCount(1);
+        WriterConfig writerConfig = new WriterConfig();
+        writerConfig.setWriterCount(1);
+        writerConfig.setHighWatermark(HIGH_WATERMARK);
+        writerConfig.setLowWatermark(LOW_WATERMARK);
+        net = new Net(new NetConfig(), pollerConfig, writerConfig);
+        net.init();
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.setReceiveBufferSize(64 * Constants.KB);
+        server.bind(new InetSocketAddress("127.0.0.1", PORT));
+    }
+
+    @Test
+    public void test_watermarkTransitions() throws Exception {
+        Thread.ofVirtual().start(() -> {
+            try {
+                peer = server.accept();
+            } catch (IOException e) {
+                // server closed
+            }
+        });
+        Channel channel = net.connect(new Loc(IpType.IPV4, "127.0.0.1", PORT), connectorConfig()).get(5, TimeUnit.SECONDS);
+        assertTrue(await(() -> peer != null));
+        assertTrue(channel.isWritable());
+
+        // 对端不读取，发送缓冲区写满后数据积压在Writer中，直到超过高水位
+        for (int i = 0; i < 1024 && channel.isWritable(); i++) {
+            channel.sendMsg(MSG);
+        }
+        assertFalse(channel.isWritable());
+        assertTrue(await(() -> changes.size() == 1));
+        assertEquals(List.of(false), changes);
+        assertTrue(channel.pendingBytes() > LOW_WATERMARK);
+
+        // 对端开始读取，积压的数据被发送出去后回落至低水位以下
+        Socket socket = peer;
+        Thread.ofVirtual().start(() -> drain(socket));
+        assertTrue(await(() -> changes.size() == 2));
+        assertTrue(channel.isWritable());
+        assertTrue(await(() -> channel.pendingBytes() == 0L));
+        Thread.sleep(100L);
+        assertEquals(List.of(false, true), changes);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException, IOException {
+        net.exit();
+        server.close();
+        if (peer != null) {
+            peer.close();
+        }
+    }
+
+    private static void drain(Socket socket) {
+        byte[] buf = new byte[MSG_SIZE];
+        try (InputStream input = socket.getInputStream()) {
+            while (input.read(buf) >= 0) {
+                // discard
+            }
+        } catch (IOException e) {
+            // socket closed
+        }
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+
+    private ConnectorConfig connectorConfig() {
+        ConnectorConfig connectorConfig = new ConnectorConfig();
+        connectorConfig.setEncoderSupplier(() -> new LengthFieldPrepender(4, (writeBuffer, o) -> writeBuffer.writeSegment((MemorySegment) o)));
+        connectorConfig.setDecoderSupplier(() -> new LengthFieldDecoder(4, Integer.MAX_VALUE, LengthFieldDecoder.HEAP_FRAME));
+        connectorConfig.setHandlerSupplier(() -> new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onWritabilityChanged(Channel channel, boolean writable) {
+                changes.add(writable);
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        });
+        return connectorConfig;
+    }
+}
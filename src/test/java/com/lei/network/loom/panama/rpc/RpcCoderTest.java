@@ -0,0 +1,188 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.buffer.ReadBuffer;
+import com.lei.network.loom.panama.buffer.WriteBuffer;
+import com.lei.network.loom.panama.coder.Decoder;
+import com.lei.network.loom.panama.coder.Encoder;
+import com.lei.network.loom.panama.coder.LengthFieldDecoder;
+import com.lei.network.loom.panama.coder.LengthFieldPrepender;
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * <p>
+ * RpcCoderTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class RpcCoderTest {
+
+    private static final Encoder STRING_ENCODER = (writeBuffer, o) -> writeBuffer.writeBytes(((String) o).getBytes(StandardCharsets.UTF_8));
+
+    private static final Decoder STRING_DECODER = (readBuffer, entityList) -> entityList.add(new String(readBuffer.readBytes((int) readBuffer.size()), StandardCharsets.UTF_8));
+
+    private static final Handler NOOP = new Handler() {
+        @Override
+        public void onConnected(Channel channel) {
+        }
+
+        @Override
+        public void onRecv(Channel channel, Object data) {
+        }
+
+        @Override
+        public void onShutdown(Channel channel) {
+        }
+
+        @Override
+        public void onRemoved(Channel channel) {
+        }
+    };
+
+    @Test
+    public void test_frameLayout() {
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new RpcEncoder(STRING_ENCODER).encode(writeBuffer, new RpcFrame(0x0102030405060708L, "ab"));
+        byte[] bytes = writeBuffer.content().toArray(ValueLayout.JAVA_BYTE);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 'a', 'b'}, bytes);
+    }
+
+    @Test
+    public void test_frameRoundTrip() {
+        Encoder encoder = new LengthFieldPrepender(4, new RpcEncoder(STRING_ENCODER));
+        Decoder decoder = new LengthFieldDecoder(4, 1024, new RpcDecoder(STRING_DECODER));
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        encoder.encode(writeBuffer, new RpcFrame(7L, "hello"));
+        encoder.encode(writeBuffer, new RpcFrame(-1L, ""));
+        encoder.encode(writeBuffer, new RpcFrame(Long.MAX_VALUE, "world"));
+
+        ReadBuffer readBuffer = new ReadBuffer(writeBuffer.content());
+        List<Object> entityList = new ArrayList<>();
+        while (readBuffer.readIndex() < readBuffer.size()) {
+            decoder.decode(readBuffer, entityList);
+        }
+        assertEquals(List.of(new RpcFrame(7L, "hello"), new RpcFrame(-1L, ""), new RpcFrame(Long.MAX_VALUE, "world")), entityList);
+    }
+
+    // bodyDecoder解码出的每个实体都携带相同的id
+    @Test
+    public void test_multipleBodies() {
+        Decoder bodyDecoder = (readBuffer, entityList) -> {
+            while (readBuffer.readIndex() < readBuffer.size()) {
+                entityList.add((int) readBuffer.readByte());
+            }
+        };
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new RpcEncoder((w, o) -> w.writeBytes((byte[]) o)).encode(writeBuffer, new RpcFrame(3L, new byte[]{1, 2}));
+        List<Object> entityList = new ArrayList<>();
+        new RpcDecoder(bodyDecoder).decode(new ReadBuffer(writeBuffer.content()), entityList);
+        assertEquals(List.of(new RpcFrame(3L, 1), new RpcFrame(3L, 2)), entityList);
+    }
+
+    // 编码RpcCall时分配并登记请求id
+    @Test
+    public void test_callRegisteredOnEncode() {
+        RpcHandler rpcHandler = new RpcHandler(NOOP, new RpcTimer(), 1000L);
+        RpcEncoder encoder = new RpcEncoder(STRING_ENCODER);
+        RpcDecoder decoder = new RpcDecoder(STRING_DECODER);
+        List<Object> entityList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RpcCall call = new RpcCall(rpcHandler, null, "call" + i, Long.MAX_VALUE);
+            WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+            encoder.encode(writeBuffer, call);
+            assertEquals(i, call.id());
+            decoder.decode(new ReadBuffer(writeBuffer.content()), entityList);
+        }
+        assertEquals(List.of(new RpcFrame(0L, "call0"), new RpcFrame(1L, "call1"), new RpcFrame(2L, "call2")), entityList);
+        assertEquals(3, rpcHandler.pendingCount());
+    }
+
+    // 编码之前已经超时的请求仍然写入完整的帧，但不会被登记
+    @Test
+    public void test_timeoutBeforeEncode() {
+        RpcHandler rpcHandler = new RpcHandler(NOOP, new RpcTimer(), 1000L);
+        RpcCall call = new RpcCall(rpcHandler, null, "late", 0L);
+        rpcHandler.timeout(call);
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        new RpcEncoder(STRING_ENCODER).encode(writeBuffer, call);
+        assertEquals(0L, call.id());
+        assertEquals(0, rpcHandler.pendingCount());
+        List<Object> entityList = new ArrayList<>();
+        new RpcDecoder(STRING_DECODER).decode(new ReadBuffer(writeBuffer.content()), entityList);
+        assertEquals(List.of(new RpcFrame(0L, "late")), entityList);
+    }
+
+    // 与LengthFieldPrepender组合时，超时的请求不能留下只有长度字段的帧，否则对端解码失败，同一连接上的其他请求也会因连接关闭而失败
+    @Test
+    public void test_timeoutBeforeEncodeWithPrepender() {
+        List<Object> unmatched = new ArrayList<>();
+        RpcHandler rpcHandler = new RpcHandler(new Handler() {
+            @Override
+            public void onConnected(Channel channel) {
+            }
+
+            @Override
+            public void onRecv(Channel channel, Object data) {
+                unmatched.add(data);
+            }
+
+            @Override
+            public void onShutdown(Channel channel) {
+            }
+
+            @Override
+            public void onRemoved(Channel channel) {
+            }
+        }, new RpcTimer(), 1000L);
+        Encoder encoder = new LengthFieldPrepender(4, new RpcEncoder(STRING_ENCODER));
+        Decoder decoder = new LengthFieldDecoder(4, 1024, new RpcDecoder(STRING_DECODER));
+        RpcCall late = new RpcCall(rpcHandler, null, "late", 0L);
+        RpcCall alive = new RpcCall(rpcHandler, null, "alive", Long.MAX_VALUE);
+        rpcHandler.timeout(late);
+        WriteBuffer writeBuffer = WriteBuffer.newHeapWriteBuffer();
+        encoder.encode(writeBuffer, late);
+        encoder.encode(writeBuffer, alive);
+
+        // 服务端解码两个请求，并以相同的id回写响应
+        ReadBuffer readBuffer = new ReadBuffer(writeBuffer.content());
+        List<Object> requests = new ArrayList<>();
+        while (readBuffer.readIndex() < readBuffer.size()) {
+            decoder.decode(readBuffer, requests);
+        }
+        assertEquals(List.of(new RpcFrame(late.id(), "late"), new RpcFrame(alive.id(), "alive")), requests);
+        WriteBuffer responses = WriteBuffer.newHeapWriteBuffer();
+        for (Object request : requests) {
+            encoder.encode(responses, request);
+        }
+
+        readBuffer = new ReadBuffer(responses.content());
+        List<Object> entityList = new ArrayList<>();
+        while (readBuffer.readIndex() < readBuffer.size()) {
+            decoder.decode(readBuffer, entityList);
+        }
+        for (Object entity : entityList) {
+            rpcHandler.onRecv(null, entity);
+        }
+        assertEquals("alive", alive.future().join());
+        assertEquals(List.of(new RpcFrame(late.id(), "late")), unmatched);
+        assertEquals(0, rpcHandler.pendingCount());
+    }
+
+    @Test
+    public void test_unsupportedMsg() {
+        RpcEncoder encoder = new RpcEncoder(STRING_ENCODER);
+        assertThrows(FrameworkException.class, () -> encoder.encode(WriteBuffer.newHeapWriteBuffer(), "raw"));
+    }
+}
@@ -0,0 +1,186 @@
+package com.lei.network.loom.panama.rpc;
+
+import com.lei.network.loom.panama.exception.FrameworkException;
+import com.lei.network.loom.panama.handler.Channel;
+import com.lei.network.loom.panama.handler.ChannelImpl;
+import com.lei.network.loom.panama.handler.Handler;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * RpcHandlerTest
+ * 直接构造RpcCall并调用register()模拟RpcEncoder在Writer线程中的登记，不依赖真实的连接
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class RpcHandlerTest {
+
+    private final List<Object> received = new CopyOnWriteArrayList<>();
+
+    private final List<Channel> removed = new CopyOnWriteArrayList<>();
+
+    private final Handler delegate = new Handler() {
+        @Override
+        public void onConnected(Channel channel) {
+        }
+
+        @Override
+        public void onRecv(Channel channel, Object data) {
+            received.add(data);
+        }
+
+        @Override
+        public void onShutdown(Channel channel) {
+        }
+
+        @Override
+        public void onRemoved(Channel channel) {
+            removed.add(channel);
+        }
+    };
+
+    private static Channel newChannel() {
+        return new ChannelImpl(null, null, null, null, null, null, null);
+    }
+
+    // 响应乱序到达时按id完成对应的请求
+    @Test
+    public void test_idCorrelation() throws Exception {
+        RpcHandler rpcHandler = new RpcHandler(delegate, new RpcTimer(), 1000L);
+        RpcCall first = new RpcCall(rpcHandler, null, "first", Long.MAX_VALUE);
+        RpcCall second = new RpcCall(rpcHandler, null, "second", Long.MAX_VALUE);
+        long firstId = rpcHandler.register(first);
+        long secondId = rpcHandler.register(second);
+        assertTrue(firstId >= 0 && secondId >= 0 && firstId != secondId);
+        assertEquals(2, rpcHandler.pendingCount());
+
+        rpcHandler.onRecv(null, new RpcFrame(secondId, "r2"));
+        assertFalse(first.future().isDone());
+        assertEquals("r2", second.future().get());
+        rpcHandler.onRecv(null, new RpcFrame(firstId, "r1"));
+        assertEquals("r1", first.future().get());
+        assertEquals(0, rpcHandler.pendingCount());
+
+        // 重复的响应与非RpcFrame消息交给被包装的Handler
+        rpcHandler.onRecv(null, new RpcFrame(firstId, "dup"));
+        rpcHandler.onRecv(null, "plain");
+        assertEquals(List.of(new RpcFrame(firstId, "dup"), "plain"), received);
+    }
+
+    @Test
+    public void test_timeout() {
+        RpcHandler rpcHandler = new RpcHandler(delegate, new RpcTimer(), 1000L);
+        RpcCall call = new RpcCall(rpcHandler, null, "body", 0L);
+        long id = rpcHandler.register(call);
+        rpcHandler.timeout(call);
+        assertTimeout(call.future());
+        assertEquals(0, rpcHandler.pendingCount());
+
+        // 超时之后到达的响应不会再完成future
+        rpcHandler.onRecv(null, new RpcFrame(id, "late"));
+        assertEquals(List.of(new RpcFrame(id, "late")), received);
+
+        // 已完成的请求不会被超时覆盖
+        RpcCall done = new RpcCall(rpcHandler, null, "body", 0L);
+        rpcHandler.onRecv(null, new RpcFrame(rpcHandler.register(done), "ok"));
+        rpcHandler.timeout(done);
+        assertEquals("ok", done.future().join());
+    }
+
+    // 由RpcTimer驱动的超时
+    @Test
+    public void test_timerTimeout() throws InterruptedException {
+        RpcTimer rpcTimer = new RpcTimer(64, 5L);
+        rpcTimer.init();
+        try {
+            RpcHandler rpcHandler = new RpcHandler(delegate, rpcTimer, 1000L);
+            RpcCall call = new RpcCall(rpcHandler, null, "body", System.currentTimeMillis() + 50L);
+            rpcTimer.schedule(call);
+            rpcHandler.register(call);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> call.future().get(5, TimeUnit.SECONDS));
+            assertInstanceOf(FrameworkException.class, e.getCause());
+            assertEquals(0, rpcHandler.pendingCount());
+        } finally {
+            rpcTimer.exit();
+        }
+    }
+
+    // 超时与登记并发执行时，请求要么未被登记，要么在超时时被移除，都不会残留在pendingCalls中
+    @Test
+    public void test_timeoutRaceWithRegister() throws Exception {
+        RpcHandler rpcHandler = new RpcHandler(delegate, new RpcTimer(), 1000L);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        int rounds = 20000;
+        RpcCall[] calls = new RpcCall[rounds];
+        for (int i = 0; i < rounds; i++) {
+            calls[i] = new RpcCall(rpcHandler, null, "body", 0L);
+        }
+        Thread timer = Thread.ofPlatform().start(() -> {
+            for (RpcCall call : calls) {
+                await(barrier);
+                rpcHandler.timeout(call);
+            }
+        });
+        for (RpcCall call : calls) {
+            await(barrier);
+            rpcHandler.register(call);
+        }
+        timer.join();
+        for (RpcCall call : calls) {
+            assertTimeout(call.future());
+        }
+        assertEquals(0, rpcHandler.pendingCount());
+    }
+
+    // 连接被移除时只有该连接上的请求以异常完成
+    @Test
+    public void test_channelRemoved() throws Exception {
+        RpcHandler rpcHandler = new RpcHandler(delegate, new RpcTimer(), 1000L);
+        Channel closed = newChannel();
+        Channel alive = newChannel();
+        RpcCall c1 = new RpcCall(rpcHandler, closed, "c1", Long.MAX_VALUE);
+        RpcCall c2 = new RpcCall(rpcHandler, closed, "c2", Long.MAX_VALUE);
+        RpcCall c3 = new RpcCall(rpcHandler, alive, "c3", Long.MAX_VALUE);
+        rpcHandler.register(c1);
+        rpcHandler.register(c2);
+        long id = rpcHandler.register(c3);
+
+        rpcHandler.onRemoved(closed);
+        assertEquals(List.of(closed), removed);
+        assertTrue(c1.future().isCompletedExceptionally());
+        assertTrue(c2.future().isCompletedExceptionally());
+        assertFalse(c3.future().isDone());
+        assertEquals(1, rpcHandler.pendingCount());
+
+        rpcHandler.onRecv(alive, new RpcFrame(id, "r3"));
+        assertEquals("r3", c3.future().get());
+        assertEquals(0, rpcHandler.pendingCount());
+    }
+
+    private static void assertTimeout(CompletableFuture<Object> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(FrameworkException.class, e.getCause());
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * CpuTopologyTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class CpuTopologyTest {
+
+    @Test
+    public void test_parse() {
+        assertArrayEquals(new int[]{0}, CpuTopology.parse("0"));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 8, 10, 11}, CpuTopology.parse("0-3,8,10-11"));
+        // 保持书写顺序并去除重复
+        assertArrayEquals(new int[]{4, 5, 0, 1}, CpuTopology.parse(" 4-5, 0-1,5 "));
+        assertThrows(FrameworkException.class, () -> CpuTopology.parse(""));
+        assertThrows(FrameworkException.class, () -> CpuTopology.parse("3-1"));
+        assertThrows(FrameworkException.class, () -> CpuTopology.parse("a,b"));
+    }
+
+    @Test
+    public void test_filter() {
+        assertArrayEquals(new int[]{3, 1}, CpuTopology.filter(new int[]{3, 2, 1, 0}, Set.of(1, 3, 5)));
+        assertArrayEquals(new int[0], CpuTopology.filter(new int[]{0, 1}, Set.of(4)));
+    }
+
+    @Test
+    public void test_spread() {
+        Set<Integer> online = IntStream.range(0, 4096).boxed().collect(Collectors.toSet());
+        int[] cpus = CpuTopology.spread(online);
+        assertTrue(cpus.length > 0);
+        assertEquals(cpus.length, Arrays.stream(cpus).distinct().count());
+        // 结果只包含允许运行的CPU
+        assertArrayEquals(new int[]{cpus[0]}, CpuTopology.spread(Set.of(cpus[0])));
+        assertArrayEquals(new int[0], CpuTopology.spread(Set.of(-1)));
+        // 与cpu自身之外的所有CPU都被排除或不允许运行时只能返回cpu自身
+        int cpu = cpus[0];
+        Set<Integer> all = Arrays.stream(cpus).boxed().collect(Collectors.toSet());
+        assertEquals(cpu, CpuTopology.sibling(cpu, all, all));
+        assertEquals(cpu, CpuTopology.sibling(cpu, Set.of(cpu), Set.of()));
+    }
+}
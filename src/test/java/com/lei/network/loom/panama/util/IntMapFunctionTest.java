@@ -0,0 +1,84 @@
+package com.lei.network.loom.panama.util;
+
+import com.lei.network.loom.panama.exception.FrameworkException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * IntMapFunctionTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class IntMapFunctionTest {
+
+    @Test
+    public void test_resize() {
+        IntMap<Integer> m = new IntMap<>(4);
+        for (int i = 0; i < 1000; i++) {
+            m.put(i, i);
+        }
+        assertEquals(1000, m.count());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, m.get(i));
+        }
+        assertNull(m.get(1000));
+        assertEquals(1000, m.asList().size());
+    }
+
+    @Test
+    public void test_replaceAndRemove() {
+        IntMap<String> m = new IntMap<>(16);
+        String a = "a";
+        String b = "b";
+        m.put(3, a);
+        assertFalse(m.remove(3, b));
+        m.replace(3, a, b);
+        assertSame(b, m.get(3));
+        assertThrows(FrameworkException.class, () -> m.replace(3, a, b));
+        assertThrows(FrameworkException.class, () -> m.replace(4, a, b));
+        assertTrue(m.remove(3, b));
+        assertFalse(m.remove(3, b));
+        assertTrue(m.isEmpty());
+    }
+
+    // 大量碰撞的key在随机删除后，剩余的key仍然可以被正确的查找到
+    @Test
+    public void test_removeWithCollisions() {
+        IntMap<Integer> m = new IntMap<>(64);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(2024);
+        for (int round = 0; round < 20000; round++) {
+            int key = random.nextInt(256) * 64 + random.nextInt(4);
+            Integer current = expected.get(key);
+            if (current == null) {
+                Integer value = round;
+                m.put(key, value);
+                expected.put(key, value);
+            } else {
+                assertTrue(m.remove(key, current));
+                expected.remove(key);
+            }
+            assertEquals(expected.size(), m.count());
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), m.get(entry.getKey()));
+        }
+        for (int key = 0; key < 256 * 64 + 4; key++) {
+            if (!expected.containsKey(key)) {
+                assertNull(m.get(key));
+            }
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.lei.network.loom.panama.util;
 import com.lei.network.loom.panama.JmhTest;
 import com.lei.network.loom.panama.library.Socket;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.runner.RunnerException;
 
@@ -53,6 +55,136 @@ public class IntMapTest extends JmhTest {
         }
     }
 
+    @Benchmark
+    public void testChainedIntMap(Blackhole bh) {
+        ChainedIntMap<Object> m = new ChainedIntMap<>(KB);
+        for(int i = 0; i < size; i++) {
+            m.put(i, o);
+            bh.consume(m.get(i));
+        }
+    }
+
+    private IntMap<Object> intMap;
+
+    private ChainedIntMap<Object> chainedIntMap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        intMap = new IntMap<>(KB);
+        chainedIntMap = new ChainedIntMap<>(KB);
+        for(int i = 0; i < size; i++) {
+            intMap.put(i, o);
+            chainedIntMap.put(i, o);
+        }
+    }
+
+    /**
+     * 模拟Poller在收割到事件后根据socket查找节点的过程
+     */
+    @Benchmark
+    public void testIntMapLookup(Blackhole bh) {
+        for(int i = 0; i < size; i++) {
+            bh.consume(intMap.get(i));
+        }
+    }
+
+    @Benchmark
+    public void testChainedIntMapLookup(Blackhole bh) {
+        for(int i = 0; i < size; i++) {
+            bh.consume(chainedIntMap.get(i));
+        }
+    }
+
+    /**
+     * 模拟连接不断关闭和重新建立的场景，操作系统会优先复用刚被释放的socket值
+     */
+    @Benchmark
+    public void testIntMapChurn(Blackhole bh) {
+        for(int i = 0; i < size; i++) {
+            bh.consume(intMap.remove(i, o));
+            intMap.put(i, o);
+        }
+    }
+
+    @Benchmark
+    public void testChainedIntMapChurn(Blackhole bh) {
+        for(int i = 0; i < size; i++) {
+            bh.consume(chainedIntMap.remove(i, o));
+            chainedIntMap.put(i, o);
+        }
+    }
+
+    /**
+     * 改为开放寻址法之前的IntMap实现，每次put都会创建一个链表节点，且不支持扩容，仅用于性能对比
+     */
+    private static final class ChainedIntMap<T> {
+
+        private final IntMapNode<T>[] nodes;
+        private final int mask;
+
+        @SuppressWarnings("unchecked")
+        ChainedIntMap(int size) {
+            this.mask = size - 1;
+            this.nodes = (IntMapNode<T>[]) new IntMapNode[size];
+        }
+
+        T get(int val) {
+            IntMapNode<T> current = nodes[val & mask];
+            while (current != null) {
+                if (current.val == val) {
+                    return current.value;
+                }
+                current = current.next;
+            }
+            return null;
+        }
+
+        void put(int val, T value) {
+            IntMapNode<T> n = new IntMapNode<>();
+            n.val = val;
+            n.value = value;
+            int slot = val & mask;
+            IntMapNode<T> current = nodes[slot];
+            if (current != null) {
+                n.next = current;
+                current.prev = n;
+            }
+            nodes[slot] = n;
+        }
+
+        boolean remove(int val, T value) {
+            int slot = val & mask;
+            IntMapNode<T> current = nodes[slot];
+            while (current != null) {
+                if (current.val != val) {
+                    current = current.next;
+                } else if (current.value != value) {
+                    return false;
+                } else {
+                    IntMapNode<T> prev = current.prev;
+                    IntMapNode<T> next = current.next;
+                    if (prev != null) {
+                        prev.next = next;
+                    } else {
+                        nodes[slot] = next;
+                    }
+                    if (next != null) {
+                        next.prev = prev;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static class IntMapNode<T> {
+            private int val;
+            private T value;
+            private IntMapNode<T> prev;
+            private IntMapNode<T> next;
+        }
+    }
+
     public static void main(String[] args) throws RunnerException {
         runTest(IntMapTest.class);
     }
@@ -0,0 +1,74 @@
+package com.lei.network.loom.panama.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * LongMapTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class LongMapTest {
+
+    @Test
+    public void test_resize() {
+        LongMap<Long> m = new LongMap<>(4);
+        for (long i = 0; i < 1000; i++) {
+            m.put(i, i);
+        }
+        assertEquals(1000, m.count());
+        for (long i = 0; i < 1000; i++) {
+            assertEquals(i, m.get(i));
+        }
+        assertNull(m.get(1000L));
+        assertEquals(1000, m.asList().size());
+    }
+
+    @Test
+    public void test_remove() {
+        LongMap<String> m = new LongMap<>(16);
+        String a = "a";
+        String b = "b";
+        m.put(Long.MAX_VALUE, a);
+        assertFalse(m.remove(Long.MAX_VALUE, b));
+        m.put(Long.MAX_VALUE, b);
+        assertSame(b, m.get(Long.MAX_VALUE));
+        assertTrue(m.remove(Long.MAX_VALUE, b));
+        assertNull(m.remove(Long.MAX_VALUE));
+        assertTrue(m.isEmpty());
+    }
+
+    // 单调递增的请求id随机完成时，剩余的key仍然可以被正确的查找到
+    @Test
+    public void test_randomRemove() {
+        LongMap<Long> m = new LongMap<>(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        long nextId = 0L;
+        for (int round = 0; round < 100000; round++) {
+            if (random.nextInt(3) != 0 || expected.isEmpty()) {
+                long id = nextId++;
+                m.put(id, id);
+                expected.put(id, id);
+            } else {
+                long id = nextId - 1 - random.nextInt((int) Math.min(nextId, 64));
+                assertEquals(expected.remove(id), m.remove(id));
+            }
+        }
+        assertEquals(expected.size(), m.count());
+        for (long id = 0; id < nextId; id++) {
+            assertEquals(expected.get(id), m.get(id));
+        }
+    }
+}
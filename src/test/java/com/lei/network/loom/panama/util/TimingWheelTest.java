@@ -0,0 +1,108 @@
+package com.lei.network.loom.panama.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ * TimingWheelTest
+ * </p>
+ *
+ * @author 伍磊
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void test_notBeforeDeadline() {
+        TimingWheel wheel = new TimingWheel(8, 10L, 0L);
+        List<Long> fired = new ArrayList<>();
+        long[] now = {0L};
+        wheel.schedule(() -> fired.add(now[0]), 25L);
+        for (now[0] = 0L; now[0] < 100L; now[0]++) {
+            wheel.advance(now[0]);
+        }
+        assertEquals(1, fired.size());
+        assertTrue(fired.getFirst() >= 25L && fired.getFirst() < 40L);
+        assertTrue(wheel.isEmpty());
+        assertEquals(-1L, wheel.nextDelay(100L));
+    }
+
+    @Test
+    public void test_cancelAndReschedule() {
+        TimingWheel wheel = new TimingWheel(8, 10L, 0L);
+        int[] fired = {0};
+        TimingWheel.Timeout a = wheel.schedule(() -> fired[0]++, 20L);
+        TimingWheel.Timeout b = wheel.schedule(() -> fired[0] += 10, 20L);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        wheel.reschedule(b, 50L);
+        assertEquals(1, wheel.count());
+        assertEquals(0, wheel.advance(40L));
+        assertEquals(1, wheel.advance(50L));
+        assertEquals(10, fired[0]);
+        assertFalse(b.isScheduled());
+        // 已经触发的Timeout可以被重新加入
+        wheel.reschedule(b, 60L);
+        assertTrue(b.isScheduled());
+        assertEquals(1, wheel.advance(60L));
+        assertEquals(20, fired[0]);
+    }
+
+    // 同一轮到期的任务之间可以相互取消
+    @Test
+    public void test_cancelInSameBatch() {
+        TimingWheel wheel = new TimingWheel(8, 10L, 0L);
+        List<String> fired = new ArrayList<>();
+        TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[2];
+        timeouts[0] = wheel.schedule(() -> {
+            fired.add("a");
+            wheel.cancel(timeouts[1]);
+        }, 10L);
+        timeouts[1] = wheel.schedule(() -> {
+            fired.add("b");
+            wheel.cancel(timeouts[0]);
+        }, 10L);
+        assertEquals(1, wheel.advance(10L));
+        assertEquals(1, fired.size());
+        assertTrue(wheel.isEmpty());
+    }
+
+    // 落后超过一圈时，所有已经到期的任务都会被触发，未到期的任务不受影响
+    @Test
+    public void test_catchUp() {
+        TimingWheel wheel = new TimingWheel(4, 10L, 0L);
+        int[] fired = {0};
+        for (long deadline = 10L; deadline <= 200L; deadline += 10L) {
+            wheel.schedule(() -> fired[0]++, deadline);
+        }
+        assertEquals(15, wheel.advance(150L));
+        assertEquals(5, wheel.count());
+        assertEquals(10L, wheel.nextDelay(150L));
+        assertEquals(5, wheel.advance(1000L));
+        assertEquals(20, fired[0]);
+    }
+
+    @Test
+    public void test_scheduleInTask() {
+        TimingWheel wheel = new TimingWheel(8, 10L, 0L);
+        int[] fired = {0};
+        TimingWheel.Timeout[] self = new TimingWheel.Timeout[1];
+        self[0] = wheel.schedule(() -> {
+            if (++fired[0] < 3) {
+                // 已经过期的deadline会在下一次推进时触发，不会在本轮重复执行
+                wheel.reschedule(self[0], 0L);
+            }
+        }, 10L);
+        assertEquals(1, wheel.advance(10L));
+        assertEquals(1, wheel.advance(20L));
+        assertEquals(1, wheel.advance(30L));
+        assertEquals(0, wheel.advance(40L));
+        assertEquals(3, fired[0]);
+    }
+}